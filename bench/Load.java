@@ -0,0 +1,94 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal stand-in for hey, used by the benchmark scripts where hey is not installed. Accepts the subset of
+ * hey's options the scripts use and prints the same summary lines: Requests/sec and the latency distribution.
+ * <p>
+ * Usage: java bench/Load.java -n requests -c concurrency [-m method] [-T content-type] [-d body] [-H header] url
+ */
+public class Load {
+
+    public static void main(String[] args) throws Exception {
+        int requests = 200;
+        int concurrency = 50;
+        String method = "GET";
+        String body = null;
+        List<String> headers = new ArrayList<>();
+        String url = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-n" -> requests = Integer.parseInt(args[++i]);
+                case "-c" -> concurrency = Integer.parseInt(args[++i]);
+                case "-m" -> method = args[++i];
+                case "-d" -> body = args[++i];
+                case "-T" -> headers.add("Content-Type: " + args[++i]);
+                case "-H" -> headers.add(args[++i]);
+                default -> url = args[i];
+            }
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(20))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        for (String header : headers) {
+            int colon = header.indexOf(':');
+            builder.header(header.substring(0, colon).trim(), header.substring(colon + 1).trim());
+        }
+        HttpRequest request = builder.build();
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newFixedThreadPool(4)).build();
+
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        Map<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+        int total = requests;
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        for (int w = 0; w < concurrency; w++) {
+            workers.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < total) {
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        statuses.computeIfAbsent(response.statusCode(), code -> new AtomicLong()).incrementAndGet();
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[i] = System.nanoTime() - sent;
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.HOURS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies);
+        System.out.printf("%nSummary:%n  Total:\t%.4f secs%n  Requests/sec:\t%.4f%n", seconds, requests / seconds);
+        System.out.printf("%nLatency distribution:%n");
+        for (int percentile : new int[]{10, 25, 50, 75, 90, 95, 99}) {
+            int index = Math.min(requests - 1, (int) Math.ceil(requests * percentile / 100.0) - 1);
+            System.out.printf("  %d%% in %.4f secs%n", percentile, latencies[index] / 1e9);
+        }
+        System.out.printf("%nStatus code distribution:%n");
+        new TreeMap<>(statuses).forEach((code, count) -> System.out.printf("  [%d]\t%d responses%n", code, count.get()));
+        if (errors.get() > 0) {
+            System.out.printf("%nError distribution:%n  [%d]\tfailed requests%n", errors.get());
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,66 @@
+#!/usr/bin/env bash
+# Compares the servlet application with the reactive variant under high concurrency.
+#
+# Builds both jars and starts the apps side by side, each against its own in-memory H2 database (MySQL mode,
+# same migrations): the servlet app on 8080 with the test profile and the reactive app on 8081. Drives
+# createInvoice, payInvoice, the first page of the list and the NDJSON stream of each with `hey`
+# (https://github.com/rakyll/hey), or with bench/Load.java where hey is not installed. Prints the summary for
+# each run; requests/sec and the 99% latency line are the figures to compare.
+#
+# Usage: bench/reactive-vs-servlet.sh [concurrency] [requests]
+# Requires: a Java 17+ runtime, curl and mvn.
+set -euo pipefail
+
+CONCURRENCY=${1:-500}
+REQUESTS=${2:-50000}
+
+# The root build installs the shared jar the reactive module compiles against. The servlet app runs from its
+# test classpath, which carries H2 and the test profile; the application itself is the same.
+mvn -q install -DskipTests
+mvn -q dependency:build-classpath -Dmdep.outputFile=target/app-classpath.txt -Dmdep.includeScope=test
+mvn -q -f reactive/pom.xml package -DskipTests
+CLASSPATH="target/classes:target/test-classes:$(cat target/app-classpath.txt)"
+
+load() {
+  if command -v hey > /dev/null; then
+    hey "$@"
+  else
+    java bench/Load.java "$@"
+  fi
+}
+
+# The benchmark is a single client, so per-client rate limiting is off.
+java -cp "$CLASSPATH" com.project.invoicesystem.InvoiceSystemApplication \
+    --spring.profiles.active=test --invoice.rate-limit.enabled=false > bench-servlet.log 2>&1 &
+SERVLET_PID=$!
+java -jar reactive/target/invoicesystem-reactive-*.jar --spring.profiles.active=reactive > bench-reactive.log 2>&1 &
+REACTIVE_PID=$!
+trap 'kill $SERVLET_PID $REACTIVE_PID 2>/dev/null || true' EXIT
+
+run_app() {
+  local name=$1 base=$2
+  echo "=== ${name} (concurrency ${CONCURRENCY}, requests ${REQUESTS}) ==="
+  until curl -sf "${base}?limit=1" > /dev/null; do sleep 1; done
+
+  # Warm up the JIT and the pool before measuring.
+  load -n 5000 -c 50 -m POST -T application/json -d '{"amount": 100.0, "due_date": "2030-01-01"}' "$base" > /dev/null
+
+  echo "--- POST /invoices"
+  load -n "$REQUESTS" -c "$CONCURRENCY" -m POST -T application/json \
+      -d '{"amount": 100.0, "due_date": "2030-01-01"}' "$base"
+
+  local id
+  id=$(curl -sf -X POST -H 'Content-Type: application/json' \
+      -d '{"amount": 1000000000.0, "due_date": "2030-01-01"}' "$base" | sed -E 's/.*"id":([0-9]+).*/\1/')
+  echo "--- POST /invoices/${id}/payments"
+  load -n "$REQUESTS" -c "$CONCURRENCY" -m POST -T application/json -d '{"amount": 0.01}' "$base/${id}/payments"
+
+  echo "--- GET /invoices"
+  load -n "$REQUESTS" -c "$CONCURRENCY" "$base"
+
+  echo "--- GET /invoices/stream"
+  load -n 200 -c 20 -H 'Accept: application/x-ndjson' "$base/stream"
+}
+
+run_app servlet http://localhost:8080/invoices
+run_app reactive http://localhost:8081/invoices
@@ -0,0 +1,62 @@
+#!/usr/bin/env bash
+# Compares platform-thread and virtual-thread request execution under high concurrency.
+#
+# Starts the app twice against the same MySQL (docker compose "db" service), once per mode, and drives
+# createInvoice and payInvoice with `hey` (https://github.com/rakyll/hey), or with bench/Load.java where
+# hey is not installed. Prints the summary for each run; requests/sec and the 99% latency line are the
+# figures to compare. DB_PROFILE=test runs against an in-memory H2 database instead of MySQL.
+#
+# Usage: [DB_PROFILE=local|test] bench/request-threads.sh [concurrency] [requests]
+# Requires: a Java 21 runtime for the virtual-thread run, curl and mvn.
+set -euo pipefail
+
+CONCURRENCY=${1:-500}
+REQUESTS=${2:-50000}
+DB_PROFILE=${DB_PROFILE:-local}
+BASE=http://localhost:8080/invoices
+
+# The test classpath carries H2 and the test profile; the application itself is the same.
+mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/app-classpath.txt -Dmdep.includeScope=test
+CLASSPATH="target/classes:target/test-classes:$(cat target/app-classpath.txt)"
+
+load() {
+  if command -v hey > /dev/null; then
+    hey "$@"
+  else
+    java bench/Load.java "$@"
+  fi
+}
+
+run_mode() {
+  local profiles=$1
+  echo "=== profiles: ${profiles} (concurrency ${CONCURRENCY}, requests ${REQUESTS}) ==="
+  # The benchmark is a single client hammering two endpoints, so per-client rate limiting is turned off.
+  java -cp "$CLASSPATH" com.project.invoicesystem.InvoiceSystemApplication \
+      --spring.profiles.active="$profiles" --invoice.rate-limit.enabled=false > "bench-${profiles//,/-}.log" 2>&1 &
+  local pid=$!
+  trap 'kill $pid 2>/dev/null || true' RETURN
+  until curl -sf http://localhost:8080/actuator/health > /dev/null; do sleep 1; done
+
+  # Warm up the JIT and the pool before measuring.
+  load -n 5000 -c 50 -m POST -T application/json -d '{"amount": 100.0, "due_date": "2030-01-01"}' "$BASE" > /dev/null
+
+  echo "--- POST /invoices"
+  load -n "$REQUESTS" -c "$CONCURRENCY" -m POST -T application/json \
+      -d '{"amount": 100.0, "due_date": "2030-01-01"}' "$BASE"
+
+  local id
+  id=$(curl -sf -X POST -H 'Content-Type: application/json' \
+      -d '{"amount": 1000000000.0, "due_date": "2030-01-01"}' "$BASE" | sed -E 's/.*"id":([0-9]+).*/\1/')
+  echo "--- POST /invoices/${id}/payments"
+  load -n "$REQUESTS" -c "$CONCURRENCY" -m POST -T application/json -d '{"amount": 0.01}' "$BASE/${id}/payments"
+
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+}
+
+run_mode "$DB_PROFILE"
+if java -XshowSettings:properties -version 2>&1 | grep -qE 'java.specification.version = (1[0-9]|20)$'; then
+  echo "=== profiles: ${DB_PROFILE},virtual skipped: virtual threads need a Java 21 runtime ==="
+else
+  run_mode "$DB_PROFILE",virtual
+fi
@@ -0,0 +1,15 @@
+#!/bin/bash
+# Runs once, when the replica's data directory is first initialized: points it at the primary and starts
+# replicating. GTID auto-positioning lets it catch up from the beginning of the primary's binary log.
+set -e
+
+mysql -uroot -p"$MYSQL_ROOT_PASSWORD" <<SQL
+CHANGE REPLICATION SOURCE TO
+    SOURCE_HOST = 'db',
+    SOURCE_PORT = 3306,
+    SOURCE_USER = 'root',
+    SOURCE_PASSWORD = '$MYSQL_ROOT_PASSWORD',
+    SOURCE_AUTO_POSITION = 1,
+    GET_SOURCE_PUBLIC_KEY = 1;
+START REPLICA;
+SQL
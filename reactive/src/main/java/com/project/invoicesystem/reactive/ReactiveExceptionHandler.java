@@ -0,0 +1,35 @@
+package com.project.invoicesystem.reactive;
+
+import com.project.invoicesystem.exception.ApiErrorResponse;
+import com.project.invoicesystem.exception.IdempotencyConflictException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Maps errors to the same responses as the servlet application's {@code GlobalExceptionHandler}.
+ */
+@RestControllerAdvice
+public class ReactiveExceptionHandler {
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ApiErrorResponse> handleIllegalArgumentException(IllegalArgumentException ex, ServerHttpRequest request) {
+        return new ResponseEntity<>(new ApiErrorResponse(ex.getMessage(), details(request)), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<ApiErrorResponse> handleIdempotencyConflictException(IdempotencyConflictException ex, ServerHttpRequest request) {
+        return new ResponseEntity<>(new ApiErrorResponse(ex.getMessage(), details(request)), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ApiErrorResponse> handleGlobalException(Exception ex, ServerHttpRequest request) {
+        return new ResponseEntity<>(new ApiErrorResponse("Internal Server Error", details(request)), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    private static String details(ServerHttpRequest request) {
+        return "uri=" + request.getPath().value();
+    }
+}
@@ -0,0 +1,59 @@
+package com.project.invoicesystem.reactive;
+
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.service.IdempotencyKeys;
+import com.project.invoicesystem.service.IdempotencyRecord;
+import com.project.invoicesystem.service.IdempotencyStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Non-blocking counterpart of {@code IdempotencyService}: runs a request at most once per idempotency key and
+ * replays its response to retries, with the scopes, fingerprints and replay rules of {@link IdempotencyKeys}.
+ * The key is reserved before the request runs, its response stored once the request's transaction has
+ * committed, and the reservation released if the request fails or is cancelled, so that it can be retried.
+ */
+@Component
+public class ReactiveIdempotency {
+
+    private final IdempotencyStore idempotencyStore;
+    private final Duration ttl;
+
+    public ReactiveIdempotency(IdempotencyStore idempotencyStore,
+                               @Value("${invoice.idempotency.ttl:24h}") Duration ttl) {
+        this.idempotencyStore = idempotencyStore;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Runs the operation unless a request with the same key already completed, in which case its stored
+     * response is returned without running the operation again. Without a key the operation simply runs.
+     *
+     * @param scope what the key applies to, e.g. the payments of one invoice.
+     * @param key the client's idempotency key, or null.
+     * @param fingerprint identifies the request, so a key cannot be reused for a different one.
+     * @param operation the operation to run, in its own transaction.
+     * @return the operation's response or the stored one; an IllegalArgumentException if the key is too long,
+     * or an IdempotencyConflictException if the key was used for a different request or that request is still running.
+     */
+    public Mono<InvoiceResponseDTO> execute(String scope, String key, String fingerprint, Mono<InvoiceResponseDTO> operation) {
+        if (key == null) {
+            return operation;
+        }
+        return Mono.defer(() -> {
+            String scopedKey = IdempotencyKeys.scopedKey(scope, key);
+            Optional<IdempotencyRecord> existing = idempotencyStore.reserve(scopedKey, fingerprint);
+            if (existing.isPresent()) {
+                return Mono.fromCallable(() -> IdempotencyKeys.replay(existing.get(), fingerprint));
+            }
+            return operation
+                    .doOnNext(response -> idempotencyStore.complete(scopedKey, response, ttl))
+                    .doOnError(e -> idempotencyStore.release(scopedKey))
+                    .doOnCancel(() -> idempotencyStore.release(scopedKey));
+        });
+    }
+}
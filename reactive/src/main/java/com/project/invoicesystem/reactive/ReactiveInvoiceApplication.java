@@ -0,0 +1,33 @@
+package com.project.invoicesystem.reactive;
+
+import com.project.invoicesystem.service.IdempotencyStore;
+import com.project.invoicesystem.service.InMemoryIdempotencyStore;
+import com.project.invoicesystem.service.InvoiceChanges;
+import com.project.invoicesystem.service.InvoiceRules;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Reactive variant of the invoice API: creating, reading, listing, streaming, exporting and paying invoices
+ * under the same {@code /invoices} paths, served by WebFlux over R2DBC against the same schema. Requests are
+ * validated by {@link InvoiceRules}, payments applied and outbox events written as described by
+ * {@link InvoiceChanges}, like in the servlet application. Built as its own jar by {@code reactive/pom.xml}.
+ */
+@SpringBootApplication
+public class ReactiveInvoiceApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveInvoiceApplication.class, args);
+    }
+
+    /**
+     * The servlet application's node-local dedupe store. Without a transaction synchronization it stores
+     * responses as soon as they are completed, which {@link ReactiveIdempotency} only does after the commit.
+     */
+    @Bean
+    public IdempotencyStore idempotencyStore(@Value("${invoice.idempotency.maximum-size:100000}") long maximumSize) {
+        return new InMemoryIdempotencyStore(maximumSize);
+    }
+}
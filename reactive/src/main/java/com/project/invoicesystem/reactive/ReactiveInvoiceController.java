@@ -0,0 +1,120 @@
+package com.project.invoicesystem.reactive;
+
+import com.project.invoicesystem.constants.InvoiceFileFormat;
+import com.project.invoicesystem.controller.InvoiceController;
+import com.project.invoicesystem.dto.InvoiceFilter;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.dto.PaymentResponseDTO;
+import com.project.invoicesystem.service.IdempotencyKeys;
+import com.project.invoicesystem.service.InvoiceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The invoice endpoints of {@link InvoiceController} that do not depend on servlet-only infrastructure,
+ * with the same paths, parameters and response bodies. Creating and paying invoices honours
+ * {@value InvoiceController#IDEMPOTENCY_KEY_HEADER} headers like the servlet application, with keys remembered
+ * by this node only.
+ */
+@RestController
+@RequestMapping("/invoices")
+public class ReactiveInvoiceController {
+
+    @Autowired
+    private ReactiveInvoiceService invoiceService;
+
+    @Autowired
+    private ReactiveIdempotency idempotency;
+
+    @PostMapping
+    public Mono<ResponseEntity<InvoiceResponseDTO>> createInvoice(@RequestBody InvoiceRequestDTO invoiceRequest,
+                                                                  @RequestHeader(value = InvoiceController.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotency.execute(IdempotencyKeys.INVOICE_SCOPE, idempotencyKey,
+                        IdempotencyKeys.fingerprint(invoiceRequest), invoiceService.createInvoice(invoiceRequest))
+                .map(invoice -> new ResponseEntity<>(invoice, HttpStatus.CREATED));
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<List<InvoiceResponseDTO>>> getInvoices(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "" + InvoiceService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String status,
+            @RequestParam(name = "due_from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueFrom,
+            @RequestParam(name = "due_to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueTo) {
+        return invoiceService.getInvoices(after, limit, new InvoiceFilter(status, dueFrom, dueTo))
+                .map(page -> {
+                    ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+                    if (page.size() == Math.min(limit, InvoiceService.MAX_PAGE_SIZE)) {
+                        builder.header(InvoiceController.NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getId()));
+                    }
+                    return builder.body(page);
+                });
+    }
+
+    @GetMapping("/{id}")
+    public Mono<InvoiceResponseDTO> getInvoice(@PathVariable Long id) {
+        return invoiceService.getInvoice(id);
+    }
+
+    /**
+     * Streams every matching invoice as one JSON object per line, at the pace the client reads them.
+     */
+    @GetMapping(path = "/stream", produces = InvoiceController.NDJSON)
+    public Flux<InvoiceResponseDTO> streamInvoices(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) String status,
+            @RequestParam(name = "due_from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueFrom,
+            @RequestParam(name = "due_to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueTo) {
+        return invoiceService.streamInvoices(after, new InvoiceFilter(status, dueFrom, dueTo));
+    }
+
+    /**
+     * Downloads every invoice as a CSV or NDJSON file, at the pace the client reads it. Responses are
+     * gzip-compressed by the server for clients that accept it.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<Flux<String>> exportInvoices(@RequestParam(defaultValue = "csv") String format) {
+        InvoiceFileFormat fileFormat = InvoiceFileFormat.of(format);
+        Flux<String> body = fileFormat == InvoiceFileFormat.CSV ? invoiceService.exportCsv() : invoiceService.exportNdjson();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(fileFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("invoices." + fileFormat.getExtension()).build().toString())
+                .body(body);
+    }
+
+    @PostMapping("/{id}/payments")
+    public Mono<InvoiceResponseDTO> payInvoice(@PathVariable Long id, @RequestBody Map<String, Double> paymentRequest,
+                                               @RequestHeader(value = InvoiceController.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        double amount = paymentRequest.get("amount");
+        return idempotency.execute(IdempotencyKeys.paymentScope(id), idempotencyKey,
+                IdempotencyKeys.fingerprint(amount), invoiceService.payInvoice(id, amount));
+    }
+
+    @GetMapping("/{id}/payments")
+    public Flux<PaymentResponseDTO> getPayments(@PathVariable Long id,
+                                                @RequestParam(required = false) Long after,
+                                                @RequestParam(defaultValue = "" + InvoiceService.DEFAULT_PAGE_SIZE) int limit) {
+        return invoiceService.getPayments(id, after, limit);
+    }
+}
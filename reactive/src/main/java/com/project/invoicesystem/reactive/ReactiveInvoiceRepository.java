@@ -0,0 +1,159 @@
+package com.project.invoicesystem.reactive;
+
+import com.project.invoicesystem.dto.InvoiceEventDTO;
+import com.project.invoicesystem.dto.InvoiceFilter;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.dto.PaymentResponseDTO;
+import com.project.invoicesystem.entity.InvoiceStatusConverter;
+import com.project.invoicesystem.service.InvoiceChanges;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * SQL access to the invoice, payment and outbox tables over R2DBC. Statuses are stored as the codes of
+ * {@link InvoiceStatusConverter} and timestamps as UTC, as Hibernate writes them.
+ */
+@Repository
+public class ReactiveInvoiceRepository {
+
+    private static final String INVOICE_COLUMNS = "id, amount, paid_amount, due_date, status";
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public Mono<InvoiceResponseDTO> findById(long id) {
+        return databaseClient.sql("select " + INVOICE_COLUMNS + " from invoice where id = :id")
+                .bind("id", id)
+                .map(ReactiveInvoiceRepository::toInvoice)
+                .one();
+    }
+
+    public Mono<InvoiceResponseDTO> findArchived(long id) {
+        return databaseClient.sql("select " + INVOICE_COLUMNS + " from invoice_archive where id = :id")
+                .bind("id", id)
+                .map(ReactiveInvoiceRepository::toInvoice)
+                .one();
+    }
+
+    /**
+     * Finds the next keyset page of invoices matching the filter, in ID order.
+     *
+     * @throws IllegalArgumentException if the filter names an unknown status.
+     */
+    public Flux<InvoiceResponseDTO> findPage(long after, int limit, InvoiceFilter filter) {
+        StringBuilder sql = new StringBuilder("select ").append(INVOICE_COLUMNS).append(" from invoice where id > :after");
+        if (filter.getStatus() != null) {
+            sql.append(" and status = :status");
+        }
+        if (filter.getDueFrom() != null) {
+            sql.append(" and due_date >= :dueFrom");
+        }
+        if (filter.getDueTo() != null) {
+            sql.append(" and due_date <= :dueTo");
+        }
+        sql.append(" order by id limit :limit");
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString())
+                .bind("after", after)
+                .bind("limit", limit);
+        if (filter.getStatus() != null) {
+            spec = spec.bind("status", InvoiceStatusConverter.toCode(filter.getStatus()));
+        }
+        if (filter.getDueFrom() != null) {
+            spec = spec.bind("dueFrom", filter.getDueFrom());
+        }
+        if (filter.getDueTo() != null) {
+            spec = spec.bind("dueTo", filter.getDueTo());
+        }
+        return spec.map(ReactiveInvoiceRepository::toInvoice).all();
+    }
+
+    public Mono<Void> insert(InvoiceResponseDTO invoice) {
+        return databaseClient.sql("insert into invoice (id, amount, paid_amount, due_date, status, version)"
+                        + " values (:id, :amount, :paidAmount, :dueDate, :status, 0)")
+                .bind("id", invoice.getId())
+                .bind("amount", invoice.getAmount())
+                .bind("paidAmount", invoice.getPaidAmount())
+                .bind("dueDate", invoice.getDueDate())
+                .bind("status", InvoiceStatusConverter.toCode(invoice.getStatus()))
+                .then();
+    }
+
+    /**
+     * Adds a payment to a pending invoice with {@link InvoiceChanges#APPLY_PAYMENT_SQL}, the statement of the
+     * servlet application's atomic payment mode.
+     *
+     * @return 0 if the invoice does not exist or is not pending, 1 otherwise.
+     */
+    public Mono<Long> applyPayment(long id, double amount) {
+        return databaseClient.sql(InvoiceChanges.APPLY_PAYMENT_SQL)
+                .bind("id", id)
+                .bind("amount", amount)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Void> insertPayment(PaymentResponseDTO payment) {
+        return databaseClient.sql("insert into payment (id, invoice_id, amount, created_at, folded)"
+                        + " values (:id, :invoiceId, :amount, :createdAt, true)")
+                .bind("id", payment.getId())
+                .bind("invoiceId", payment.getInvoiceId())
+                .bind("amount", payment.getAmount())
+                .bind("createdAt", toUtc(payment.getCreatedAt()))
+                .then();
+    }
+
+    public Flux<PaymentResponseDTO> findPayments(long invoiceId, long after, int limit) {
+        return databaseClient.sql("select id, invoice_id, amount, created_at, rejected from payment"
+                        + " where invoice_id = :invoiceId and id > :after order by id limit :limit")
+                .bind("invoiceId", invoiceId)
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(row -> new PaymentResponseDTO(row.get("id", Long.class), row.get("invoice_id", Long.class),
+                        row.get("amount", BigDecimal.class).doubleValue(),
+                        row.get("created_at", LocalDateTime.class).toInstant(ZoneOffset.UTC),
+                        Boolean.TRUE.equals(row.get("rejected", Boolean.class))))
+                .all();
+    }
+
+    /**
+     * Writes an event of {@link InvoiceChanges} to the outbox, from where the servlet application's relay
+     * publishes it to the change feed.
+     */
+    public Mono<Void> insertEvent(long id, InvoiceEventDTO event) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("insert into invoice_event"
+                        + " (id, type, invoice_id, payment_amount, amount, paid_amount, status, created_at)"
+                        + " values (:id, :type, :invoiceId, :paymentAmount, :amount, :paidAmount, :status, :createdAt)")
+                .bind("id", id)
+                .bind("type", event.getType())
+                .bind("invoiceId", event.getInvoiceId());
+        spec = event.getPaymentAmount() == null ? spec.bindNull("paymentAmount", Double.class)
+                : spec.bind("paymentAmount", event.getPaymentAmount());
+        return spec.bind("amount", event.getAmount())
+                .bind("paidAmount", event.getPaidAmount())
+                .bind("status", InvoiceStatusConverter.toCode(event.getStatus()))
+                .bind("createdAt", toUtc(event.getCreatedAt()))
+                .then();
+    }
+
+    private static InvoiceResponseDTO toInvoice(Readable row) {
+        return new InvoiceResponseDTO(row.get("id", Long.class),
+                row.get("amount", BigDecimal.class).doubleValue(),
+                row.get("paid_amount", BigDecimal.class).doubleValue(),
+                row.get("due_date", LocalDate.class),
+                InvoiceStatusConverter.fromCode(row.get("status", Byte.class)));
+    }
+
+    private static LocalDateTime toUtc(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
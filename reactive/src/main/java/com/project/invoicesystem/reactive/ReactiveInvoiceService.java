@@ -0,0 +1,208 @@
+package com.project.invoicesystem.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.InvoiceEventDTO;
+import com.project.invoicesystem.dto.InvoiceFilter;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.dto.PaymentResponseDTO;
+import com.project.invoicesystem.service.InvoiceChanges;
+import com.project.invoicesystem.service.InvoiceCsv;
+import com.project.invoicesystem.service.InvoiceRules;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of the invoice operations of {@code InvoiceService}, with the same validation
+ * and error messages from {@link InvoiceRules}. Payments run the statement of the atomic payment mode and
+ * changes are written to the outbox as the events of {@link InvoiceChanges}, like in the servlet application;
+ * the receivables view and invoice cache of servlet instances are not updated. IDs are allocated before a
+ * change's transaction starts: a block is reserved in a transaction of its own, and doing that while holding
+ * a connection would let a full pool of requests wait on each other for a second one.
+ */
+@Service
+public class ReactiveInvoiceService {
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+    /** The allocation size of the ID generators of the JPA entities. */
+    private static final int ID_BLOCK_SIZE = 500;
+
+    private final ReactiveInvoiceRepository invoiceRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final ObjectMapper objectMapper;
+    private final TableIdAllocator invoiceIds;
+    private final TableIdAllocator paymentIds;
+    private final TableIdAllocator eventIds;
+
+    public ReactiveInvoiceService(ReactiveInvoiceRepository invoiceRepository, DatabaseClient databaseClient,
+                                  ReactiveTransactionManager transactionManager, ObjectMapper objectMapper) {
+        this.invoiceRepository = invoiceRepository;
+        this.objectMapper = objectMapper;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+        TransactionalOperator ownTransaction = TransactionalOperator.create(transactionManager,
+                new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        this.invoiceIds = new TableIdAllocator(databaseClient, ownTransaction, "invoice_seq", ID_BLOCK_SIZE);
+        this.paymentIds = new TableIdAllocator(databaseClient, ownTransaction, "payment_seq", ID_BLOCK_SIZE);
+        this.eventIds = new TableIdAllocator(databaseClient, ownTransaction, "invoice_event_seq", ID_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a new pending invoice.
+     *
+     * @param request the data for the new invoice.
+     * @return the created invoice, or an IllegalArgumentException if the request is invalid.
+     */
+    public Mono<InvoiceResponseDTO> createInvoice(InvoiceRequestDTO request) {
+        return Mono.fromRunnable(() -> InvoiceRules.validateNewInvoice(request))
+                .then(Mono.zip(invoiceIds.nextId(), eventIds.nextIds(1)))
+                .flatMap(ids -> {
+                    InvoiceResponseDTO invoice = new InvoiceResponseDTO(ids.getT1(), request.getAmount(), 0,
+                            request.getDueDate(), InvoiceStatusConstants.PENDING);
+                    return invoiceRepository.insert(invoice)
+                            .then(recordEvents(InvoiceChanges.created(invoice), ids.getT2()))
+                            .thenReturn(invoice)
+                            .as(transactionalOperator::transactional);
+                });
+    }
+
+    /**
+     * Retrieves a single invoice, falling back to the archive.
+     *
+     * @param id the ID of the invoice.
+     * @return the invoice, or an IllegalArgumentException if it is not found.
+     */
+    public Mono<InvoiceResponseDTO> getInvoice(long id) {
+        return invoiceRepository.findById(id)
+                .switchIfEmpty(invoiceRepository.findArchived(id))
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException(InvoiceRules.NOT_FOUND)));
+    }
+
+    /**
+     * Retrieves one page of invoices ordered by ID, starting after the given cursor.
+     *
+     * @param after the ID of the last invoice on the previous page, or null for the first page.
+     * @param limit the maximum number of invoices to return, capped at the maximum page size.
+     * @param filter optional status and due-date criteria.
+     */
+    public Mono<List<InvoiceResponseDTO>> getInvoices(Long after, int limit, InvoiceFilter filter) {
+        return Mono.defer(() -> findPage(after == null ? 0L : after, InvoiceRules.clampPageSize(limit), filter));
+    }
+
+    /**
+     * Emits every invoice matching the filter in ID order. Invoices are read in keyset batches of 1000,
+     * each with its own query, and the next batch is only read once the subscriber has requested past the
+     * current one, so a slow client holds neither a connection nor more than a batch of invoices.
+     *
+     * @param after the ID to start after, or null to start from the beginning.
+     * @param filter optional status and due-date criteria.
+     */
+    public Flux<InvoiceResponseDTO> streamInvoices(Long after, InvoiceFilter filter) {
+        return Mono.defer(() -> findPage(after == null ? 0L : after, STREAM_FETCH_SIZE, filter))
+                .expand(batch -> batch.size() < STREAM_FETCH_SIZE ? Mono.empty()
+                        : findPage(batch.get(batch.size() - 1).getId(), STREAM_FETCH_SIZE, filter))
+                .concatMapIterable(batch -> batch);
+    }
+
+    /**
+     * Emits every invoice as CSV lines in the layout of the servlet application's export, header first.
+     * Unlike that export, the batches are read in separate statements rather than from one snapshot.
+     */
+    public Flux<String> exportCsv() {
+        return Flux.concat(Mono.just(InvoiceCsv.HEADER + "\n"),
+                streamInvoices(null, new InvoiceFilter()).map(ReactiveInvoiceService::toCsvRow));
+    }
+
+    /**
+     * Emits every invoice as NDJSON lines, one JSON object per line.
+     */
+    public Flux<String> exportNdjson() {
+        return streamInvoices(null, new InvoiceFilter()).map(this::toJsonLine);
+    }
+
+    /**
+     * Pays towards a pending invoice, marking it as paid once fully paid.
+     *
+     * @param id the ID of the invoice.
+     * @param amount the amount to pay.
+     * @return the invoice after the payment, or an IllegalArgumentException if the amount is invalid or the
+     * invoice is not found or not pending.
+     */
+    public Mono<InvoiceResponseDTO> payInvoice(long id, double amount) {
+        return Mono.fromRunnable(() -> InvoiceRules.validatePayment(amount))
+                .then(Mono.zip(paymentIds.nextId(), eventIds.nextIds(InvoiceChanges.MAX_PAYMENT_EVENTS)))
+                .flatMap(ids -> invoiceRepository.applyPayment(id, amount)
+                        .flatMap(updated -> invoiceRepository.findById(id)
+                                .switchIfEmpty(archivedOrMissing(id))
+                                .doOnNext(invoice -> InvoiceChanges.requireApplied(updated, invoice.getStatus())))
+                        .flatMap(invoice -> invoiceRepository.insertPayment(new PaymentResponseDTO(ids.getT1(), id, amount, Instant.now(), false))
+                                .then(recordEvents(InvoiceChanges.paymentMade(invoice, amount), ids.getT2()))
+                                .thenReturn(invoice))
+                        .as(transactionalOperator::transactional));
+    }
+
+    /**
+     * Retrieves the payments recorded against an invoice in the order they were made.
+     *
+     * @param id the ID of the invoice.
+     * @param after the ID of the last payment on the previous page, or null for the first page.
+     * @param limit the maximum number of payments to return, capped at the maximum page size.
+     * @return the payments, or an IllegalArgumentException if the invoice is not found.
+     */
+    public Flux<PaymentResponseDTO> getPayments(long id, Long after, int limit) {
+        return Mono.fromCallable(() -> InvoiceRules.clampPageSize(limit))
+                .flatMapMany(pageSize -> getInvoice(id)
+                        .thenMany(invoiceRepository.findPayments(id, after == null ? 0L : after, pageSize)));
+    }
+
+    private Mono<List<InvoiceResponseDTO>> findPage(long after, int limit, InvoiceFilter filter) {
+        return Flux.defer(() -> invoiceRepository.findPage(after, limit, filter)).collectList();
+    }
+
+    /**
+     * Archived invoices are settled, so paying one fails as not pending rather than not found.
+     */
+    private Mono<InvoiceResponseDTO> archivedOrMissing(long id) {
+        return invoiceRepository.findArchived(id)
+                .flatMap(archived -> Mono.<InvoiceResponseDTO>error(new IllegalArgumentException(InvoiceRules.NOT_PENDING)))
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException(InvoiceRules.NOT_FOUND)));
+    }
+
+    /**
+     * @param eventIds IDs allocated beforehand, at least one per event.
+     */
+    private Mono<Void> recordEvents(List<InvoiceEventDTO> events, List<Long> eventIds) {
+        return Flux.range(0, events.size())
+                .concatMap(i -> invoiceRepository.insertEvent(eventIds.get(i), events.get(i)))
+                .then();
+    }
+
+    private String toJsonLine(InvoiceResponseDTO invoice) {
+        try {
+            return objectMapper.writeValueAsString(invoice) + "\n";
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String toCsvRow(InvoiceResponseDTO invoice) {
+        StringBuilder row = new StringBuilder(64);
+        try {
+            InvoiceCsv.appendRow(row, invoice);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return row.toString();
+    }
+}
@@ -0,0 +1,101 @@
+package com.project.invoicesystem.reactive;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Allocates IDs from one of the single-row {@code *_seq} tables with the pooled-lo scheme Hibernate uses for
+ * them, so that IDs allocated here never collide with those allocated by the servlet application. Each block
+ * of {@code increment} IDs is reserved in its own transaction, which holds the sequence row only briefly, and
+ * callers that find the current block used up wait for the same reservation rather than each reserving one.
+ */
+final class TableIdAllocator {
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator ownTransaction;
+    private final String table;
+    private final int increment;
+
+    private long next;
+    private long limit;
+    /** The reservation in progress, or null. */
+    private Mono<Void> refill;
+
+    /**
+     * @param ownTransaction an operator that starts a new transaction.
+     * @param table the sequence table, e.g. {@code invoice_seq}.
+     * @param increment the block size, which must match the entity's generator.
+     */
+    TableIdAllocator(DatabaseClient databaseClient, TransactionalOperator ownTransaction, String table, int increment) {
+        this.databaseClient = databaseClient;
+        this.ownTransaction = ownTransaction;
+        this.table = table;
+        this.increment = increment;
+    }
+
+    /**
+     * @return the next ID, reserving a new block first if the current one is used up.
+     */
+    Mono<Long> nextId() {
+        return Mono.defer(() -> {
+            Long id = take();
+            return id != null ? Mono.just(id) : refill().then(nextId());
+        });
+    }
+
+    /**
+     * @param count the number of IDs.
+     * @return the next IDs, in the order they were allocated.
+     */
+    Mono<List<Long>> nextIds(int count) {
+        return Flux.range(0, count).concatMap(i -> nextId()).collectList();
+    }
+
+    private synchronized Long take() {
+        return next < limit ? next++ : null;
+    }
+
+    /**
+     * @return the reservation in progress, starting one if there is none.
+     */
+    private synchronized Mono<Void> refill() {
+        if (refill == null) {
+            refill = reserveBlock()
+                    .doOnNext(this::startBlock)
+                    .doOnError(e -> endRefill())
+                    .then()
+                    .cache();
+        }
+        return refill;
+    }
+
+    /**
+     * Starts handing out a newly reserved block. Runs before the callers waiting for it resume, so they
+     * find the block rather than the finished reservation.
+     */
+    private synchronized void startBlock(long first) {
+        next = first;
+        limit = first + increment;
+        refill = null;
+    }
+
+    private synchronized void endRefill() {
+        refill = null;
+    }
+
+    private Mono<Long> reserveBlock() {
+        return databaseClient.sql("select next_val from " + table + " for update")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .flatMap(first -> databaseClient.sql("update " + table + " set next_val = :next")
+                        .bind("next", first + increment)
+                        .fetch()
+                        .rowsUpdated()
+                        .thenReturn(first))
+                .as(ownTransaction::transactional);
+    }
+}
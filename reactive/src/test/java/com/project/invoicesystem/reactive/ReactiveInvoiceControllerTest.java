@@ -0,0 +1,167 @@
+package com.project.invoicesystem.reactive;
+
+import com.project.invoicesystem.controller.InvoiceController;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.dto.PaymentResponseDTO;
+import com.project.invoicesystem.service.InvoiceCsv;
+import com.project.invoicesystem.service.InvoiceRules;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = ReactiveInvoiceApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+class ReactiveInvoiceControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private ReactiveInvoiceService invoiceService;
+
+    @Test
+    void testCreateGetAndPayInvoice() {
+        InvoiceResponseDTO created = create(100.0, LocalDate.of(2024, 1, 31));
+        assertEquals("pending", created.getStatus());
+
+        InvoiceResponseDTO fetched = webTestClient.get().uri("/invoices/{id}", created.getId()).exchange()
+                .expectStatus().isOk()
+                .expectBody(InvoiceResponseDTO.class).returnResult().getResponseBody();
+        assertEquals(created, fetched);
+
+        InvoiceResponseDTO partlyPaid = pay(created.getId(), 40.0);
+        assertEquals(40.0, partlyPaid.getPaidAmount());
+        assertEquals("pending", partlyPaid.getStatus());
+        InvoiceResponseDTO paid = pay(created.getId(), 60.0);
+        assertEquals("paid", paid.getStatus());
+
+        webTestClient.post().uri("/invoices/{id}/payments", created.getId()).bodyValue(Map.of("amount", 1.0)).exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo(InvoiceRules.NOT_PENDING);
+
+        List<PaymentResponseDTO> payments = webTestClient.get().uri("/invoices/{id}/payments", created.getId()).exchange()
+                .expectStatus().isOk()
+                .expectBodyList(PaymentResponseDTO.class).returnResult().getResponseBody();
+        assertEquals(List.of(40.0, 60.0), payments.stream().map(PaymentResponseDTO::getAmount).toList());
+    }
+
+    @Test
+    void testRetriedPaymentIsAppliedOnce() {
+        InvoiceResponseDTO created = create(100.0, LocalDate.of(2024, 1, 31));
+
+        InvoiceResponseDTO first = pay(created.getId(), 100.0, "payment-1");
+        InvoiceResponseDTO retried = pay(created.getId(), 100.0, "payment-1");
+        assertEquals(first, retried);
+        assertEquals(100.0, retried.getPaidAmount());
+
+        webTestClient.post().uri("/invoices/{id}/payments", created.getId())
+                .header(InvoiceController.IDEMPOTENCY_KEY_HEADER, "payment-1")
+                .bodyValue(Map.of("amount", 50.0)).exchange()
+                .expectStatus().isEqualTo(409);
+
+        List<PaymentResponseDTO> payments = webTestClient.get().uri("/invoices/{id}/payments", created.getId()).exchange()
+                .expectStatus().isOk()
+                .expectBodyList(PaymentResponseDTO.class).returnResult().getResponseBody();
+        assertEquals(1, payments.size());
+        List<String> events = databaseClient.sql("select type from invoice_event where invoice_id = :id order by id")
+                .bind("id", created.getId())
+                .map(row -> row.get("type", String.class))
+                .all().collectList().block();
+        assertEquals(List.of("created", "payment", "paid"), events);
+    }
+
+    @Test
+    void testMoreConcurrentChangesThanPooledConnections() {
+        List<InvoiceResponseDTO> created = Flux.range(0, 60)
+                .flatMap(i -> invoiceService.createInvoice(new InvoiceRequestDTO(1.0, LocalDate.of(2024, 1, 31))), 60)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+        assertEquals(60, created.size());
+        LongSummaryStatistics ids = created.stream().mapToLong(InvoiceResponseDTO::getId).summaryStatistics();
+        assertTrue(ids.getMax() - ids.getMin() < 1000, "concurrent callers reserved an ID block each");
+
+        List<InvoiceResponseDTO> paid = Flux.fromIterable(created)
+                .flatMap(invoice -> invoiceService.payInvoice(invoice.getId(), 1.0), 60)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+        assertTrue(paid.stream().allMatch(invoice -> "paid".equals(invoice.getStatus())));
+    }
+
+    @Test
+    void testInvalidAndUnknownInvoicesAreRejected() {
+        webTestClient.post().uri("/invoices").bodyValue(new InvoiceRequestDTO(-1.0, LocalDate.of(2024, 1, 31))).exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Invoice amount must be positive");
+        webTestClient.post().uri("/invoices/{id}/payments", Long.MAX_VALUE).bodyValue(Map.of("amount", 0.001)).exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Payment amount must not have more than 2 decimal places");
+        webTestClient.get().uri("/invoices/{id}", Long.MAX_VALUE).exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo(InvoiceRules.NOT_FOUND);
+        webTestClient.post().uri("/invoices/{id}/payments", Long.MAX_VALUE).bodyValue(Map.of("amount", 1.0)).exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo(InvoiceRules.NOT_FOUND);
+    }
+
+    @Test
+    void testListStreamAndExport() {
+        InvoiceResponseDTO first = create(10.0, LocalDate.of(2024, 2, 29));
+        InvoiceResponseDTO second = create(20.0, LocalDate.of(2024, 3, 31));
+
+        webTestClient.get().uri("/invoices?after={after}&limit=1", first.getId() - 1).exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(InvoiceController.NEXT_CURSOR_HEADER, String.valueOf(first.getId()))
+                .expectBodyList(InvoiceResponseDTO.class).isEqualTo(List.of(first));
+
+        List<InvoiceResponseDTO> streamed = webTestClient.get().uri("/invoices/stream?after={after}", first.getId() - 1)
+                .accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .returnResult(InvoiceResponseDTO.class).getResponseBody().collectList().block();
+        assertEquals(List.of(first, second), streamed);
+
+        String csv = webTestClient.get().uri("/invoices/export?format=csv").exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith("text/csv")
+                .expectBody(String.class).returnResult().getResponseBody();
+        String[] lines = csv.split("\n");
+        assertEquals(InvoiceCsv.HEADER, lines[0]);
+        assertEquals(second.getId() + ",20.00,0.00,2024-03-31,pending", lines[lines.length - 1]);
+    }
+
+    private InvoiceResponseDTO create(double amount, LocalDate dueDate) {
+        return webTestClient.post().uri("/invoices").bodyValue(new InvoiceRequestDTO(amount, dueDate)).exchange()
+                .expectStatus().isCreated()
+                .expectBody(InvoiceResponseDTO.class).returnResult().getResponseBody();
+    }
+
+    private InvoiceResponseDTO pay(long id, double amount) {
+        return webTestClient.post().uri("/invoices/{id}/payments", id).bodyValue(Map.of("amount", amount)).exchange()
+                .expectStatus().isOk()
+                .expectBody(InvoiceResponseDTO.class).returnResult().getResponseBody();
+    }
+
+    private InvoiceResponseDTO pay(long id, double amount, String idempotencyKey) {
+        return webTestClient.post().uri("/invoices/{id}/payments", id)
+                .header(InvoiceController.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .bodyValue(Map.of("amount", amount)).exchange()
+                .expectStatus().isOk()
+                .expectBody(InvoiceResponseDTO.class).returnResult().getResponseBody();
+    }
+}
@@ -0,0 +1,85 @@
+package com.project.invoicesystem.benchmark;
+
+import com.project.invoicesystem.dto.BatchItemResultDTO;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.service.InvoiceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code createInvoices} with 1000 requests per operation, as {@code POST /invoices/batch} does, with JDBC
+ * batching off (a batch size of 1) and at the configured 500. By default this runs on H2 and measures
+ * Hibernate's batching. To measure the MySQL driver's rewrite of a batch into multi-row inserts, run it
+ * once with and once without {@code rewriteBatchedStatements=true} in the URL, e.g.
+ * {@code -p url=jdbc:mysql://localhost:3306/invoicesystemdb?rewriteBatchedStatements=true -p username=admin -p password=password}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class BatchInsertBenchmark {
+
+    private static final int INVOICES = 1000;
+
+    @Param({"1", "500"})
+    private int jdbcBatchSize;
+
+    /** A JDBC URL, or {@code h2} for an in-memory database. */
+    @Param({"h2"})
+    private String url;
+
+    @Param({"sa"})
+    private String username;
+
+    @Param({""})
+    private String password;
+
+    private ConfigurableApplicationContext context;
+
+    private InvoiceService invoiceService;
+
+    private final List<InvoiceRequestDTO> requests = new ArrayList<>(INVOICES);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> args = new ArrayList<>(List.of("--spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize));
+        if (!"h2".equals(url)) {
+            args.addAll(List.of("--spring.datasource.url=" + url, "--spring.datasource.username=" + username,
+                    "--spring.datasource.password=" + password, "--spring.datasource.driver-class-name="));
+        }
+        context = BenchmarkContext.start("batch-insert-" + jdbcBatchSize, args.toArray(String[]::new));
+        invoiceService = context.getBean(InvoiceService.class);
+        for (int i = 0; i < INVOICES; i++) {
+            requests.add(new InvoiceRequestDTO(100.0 + i, LocalDate.now().plusDays(30)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<BatchItemResultDTO> createInvoices() {
+        return invoiceService.createInvoices(requests.iterator());
+    }
+}
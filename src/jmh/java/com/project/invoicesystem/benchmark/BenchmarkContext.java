@@ -0,0 +1,33 @@
+package com.project.invoicesystem.benchmark;
+
+import com.project.invoicesystem.InvoiceSystemApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the application without a web server against an in-memory H2 database in MySQL mode, with the
+ * schema created by the regular Flyway migrations, unless the arguments point it at another database.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * @param database the name of the in-memory database, so that benchmarks do not share data.
+     * @param args further properties as {@code --name=value}; later ones override the defaults.
+     * @return the started context; the caller closes it.
+     */
+    static ConfigurableApplicationContext start(String database, String... args) {
+        String[] all = new String[args.length + 4];
+        all[0] = "--spring.profiles.active=test";
+        all[1] = "--spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+        all[2] = "--logging.level.root=WARN";
+        all[3] = "--spring.main.banner-mode=off";
+        System.arraycopy(args, 0, all, 4, args.length);
+        return new SpringApplicationBuilder(InvoiceSystemApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(all);
+    }
+}
@@ -0,0 +1,59 @@
+package com.project.invoicesystem.benchmark;
+
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.mapper.InvoiceMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the MapStruct invoice mappings used on every request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+    private final InvoiceMapper invoiceMapper = InvoiceMapper.INSTANCE;
+
+    private Invoice invoice;
+
+    private InvoiceRequestDTO request;
+
+    @Setup
+    public void setUp() {
+        invoice = new Invoice(199.99, LocalDate.of(2030, 1, 1));
+        invoice.setId(42L);
+        invoice.setPaidAmount(50.0);
+        invoice.setStatus(InvoiceStatusConstants.PENDING);
+        request = new InvoiceRequestDTO();
+        request.setAmount(199.99);
+        request.setDueDate(LocalDate.of(2030, 1, 1));
+    }
+
+    @Benchmark
+    public InvoiceResponseDTO toDto() {
+        return invoiceMapper.toDto(invoice);
+    }
+
+    @Benchmark
+    public Invoice toEntity() {
+        return invoiceMapper.toEntity(request);
+    }
+}
@@ -0,0 +1,83 @@
+package com.project.invoicesystem.benchmark;
+
+import com.project.invoicesystem.config.CacheConfig;
+import com.project.invoicesystem.dto.OverdueSummaryDTO;
+import com.project.invoicesystem.service.InvoiceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full overdue sweep over a synthetic set of pending invoices, all of them overdue and one in three
+ * partially paid. The data set is re-seeded before every iteration, so each measurement is a cold sweep.
+ * Run the 10M case explicitly with {@code -p invoices=10000000} and a large enough heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class OverdueProcessingBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int invoices;
+
+    private ConfigurableApplicationContext context;
+
+    private InvoiceService invoiceService;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = BenchmarkContext.start("overdue");
+        invoiceService = context.getBean(InvoiceService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    /**
+     * Replaces all invoices with ids 1..invoices due 60 days ago. The id sequence is only ever moved
+     * forward, so ids Hibernate still holds in its pooled block cannot collide with seeded rows.
+     */
+    @Setup(Level.Iteration)
+    public void seed() {
+        jdbcTemplate.update("DELETE FROM overdue_partition");
+        jdbcTemplate.update("DELETE FROM payment");
+        jdbcTemplate.update("DELETE FROM invoice");
+        jdbcTemplate.update("INSERT INTO invoice (id, amount, paid_amount, due_date, status, version)"
+                + " SELECT x, 100.00, CASE WHEN MOD(x, 3) = 0 THEN 40.00 ELSE 0 END, DATEADD('DAY', -60, CURRENT_DATE), 0, 0"
+                + " FROM SYSTEM_RANGE(1, ?)", invoices);
+        jdbcTemplate.update("UPDATE invoice_seq SET next_val = GREATEST(next_val, ?)", invoices + 1L);
+        Cache cache = context.getBean(CacheManager.class).getCache(CacheConfig.INVOICES);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public OverdueSummaryDTO processOverdueInvoices() {
+        return invoiceService.processOverdueInvoices(10.0, 30);
+    }
+}
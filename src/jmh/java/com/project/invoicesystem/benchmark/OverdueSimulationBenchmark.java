@@ -0,0 +1,74 @@
+package com.project.invoicesystem.benchmark;
+
+import com.project.invoicesystem.dto.OverdueSimulationDTO;
+import com.project.invoicesystem.service.OverdueSimulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overdue simulations over a synthetic set of pending invoices due over the past 180 days, one in three
+ * partially paid: from the in-memory snapshot, and including the read of the snapshot from H2. Run the 10M
+ * case explicitly with {@code -p invoices=10000000} and a large enough heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class OverdueSimulationBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int invoices;
+
+    private ConfigurableApplicationContext context;
+
+    private OverdueSimulator overdueSimulator;
+
+    private int overdueDays;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("simulation-" + invoices);
+        overdueSimulator = context.getBean(OverdueSimulator.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO invoice (id, amount, paid_amount, due_date, status, version)"
+                + " SELECT x, 100.00, CASE WHEN MOD(x, 3) = 0 THEN 40.00 ELSE 0 END, DATEADD('DAY', -MOD(x, 180), CURRENT_DATE), 0, 0"
+                + " FROM SYSTEM_RANGE(1, ?)", invoices);
+        jdbcTemplate.update("UPDATE invoice_seq SET next_val = GREATEST(next_val, ?)", invoices + 1L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * A different overdue period on every call, all answered from the same snapshot.
+     */
+    @Benchmark
+    public OverdueSimulationDTO simulateFromSnapshot() {
+        overdueDays = (overdueDays + 1) % 180;
+        return overdueSimulator.simulate(10.0, overdueDays, false);
+    }
+
+    @Benchmark
+    public OverdueSimulationDTO simulateWithRead() {
+        return overdueSimulator.simulate(10.0, 30, true);
+    }
+}
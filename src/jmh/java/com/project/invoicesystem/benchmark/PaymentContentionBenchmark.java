@@ -0,0 +1,82 @@
+package com.project.invoicesystem.benchmark;
+
+import com.project.invoicesystem.constants.PaymentMode;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.service.InvoiceService;
+import com.project.invoicesystem.service.PaymentBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payments from 8 threads spread over a small set of invoices, per payment mode. With one hot invoice
+ * every payment contends for the same row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Threads(8)
+@Fork(1)
+public class PaymentContentionBenchmark {
+
+    @Param({"OPTIMISTIC", "ATOMIC", "LEDGER", "BUFFERED"})
+    private PaymentMode mode;
+
+    @Param({"1", "16"})
+    private int hotInvoices;
+
+    private ConfigurableApplicationContext context;
+
+    private InvoiceService invoiceService;
+
+    private long[] invoiceIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("payments-" + mode + "-" + hotInvoices);
+        invoiceService = context.getBean(InvoiceService.class);
+        InvoiceService target = AopTestUtils.getTargetObject(invoiceService);
+        ReflectionTestUtils.setField(target, "paymentMode", mode);
+        // Lets the buffer's scheduled flush run, so the buffered mode is measured with flushes in the background.
+        ReflectionTestUtils.setField(context.getBean(PaymentBuffer.class), "paymentMode", mode);
+        invoiceIds = new long[hotInvoices];
+        for (int i = 0; i < hotInvoices; i++) {
+            InvoiceRequestDTO request = new InvoiceRequestDTO();
+            request.setAmount(1_000_000_000.0);
+            request.setDueDate(LocalDate.now().plusYears(1));
+            invoiceIds[i] = invoiceService.createInvoice(request).getId();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public InvoiceResponseDTO payInvoice() {
+        long id = invoiceIds[ThreadLocalRandom.current().nextInt(invoiceIds.length)];
+        return invoiceService.payInvoice(id, 0.01);
+    }
+}
@@ -0,0 +1,95 @@
+package com.project.invoicesystem.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.project.invoicesystem.config.BinaryFormatConfig;
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Jackson serialization of invoice list payloads in each response format, both buffered into a byte
+ * array (as for a regular response) and streamed to an output stream, plus gzip on top of the buffered
+ * payload. The payload sizes, raw and gzipped, are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    private ObjectWriter writer;
+
+    private List<InvoiceResponseDTO> invoices;
+
+    @Setup
+    public void setUp() throws IOException {
+        writer = new ObjectMapper(factory()).findAndRegisterModules().writerFor(List.class);
+        invoices = new ArrayList<>(size);
+        LocalDate dueDate = LocalDate.of(2030, 1, 1);
+        for (int i = 0; i < size; i++) {
+            invoices.add(new InvoiceResponseDTO((long) i + 1, 100.0 + i, i % 3 == 0 ? 40.0 : 0.0,
+                    dueDate.plusDays(i % 365), InvoiceStatusConstants.PENDING));
+        }
+        System.out.printf("%n%s, %d invoices: %d bytes, %d bytes gzipped%n",
+                format, size, toBytes().length, toGzipBytes().length);
+    }
+
+    private JsonFactory factory() {
+        switch (format) {
+            case "smile":
+                return BinaryFormatConfig.smileFactory();
+            case "cbor":
+                return BinaryFormatConfig.cborFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+
+    @Benchmark
+    public byte[] toBytes() throws IOException {
+        return writer.writeValueAsBytes(invoices);
+    }
+
+    @Benchmark
+    public void toStream() throws IOException {
+        writer.writeValue(OutputStream.nullOutputStream(), invoices);
+    }
+
+    @Benchmark
+    public byte[] toGzipBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            writer.writeValue(gzip, invoices);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,53 @@
+package com.project.invoicesystem.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary response formats for service-to-service clients, chosen with the {@code Accept} header:
+ * {@code application/x-jackson-smile} and {@code application/cbor}. Both are written by Jackson with the
+ * same modules and settings as JSON, and take the place of Spring MVC's default binary converters, so
+ * JSON stays the format for clients that accept anything.
+ */
+@Configuration
+public class BinaryFormatConfig {
+
+    /**
+     * Smile with back references for repeated field names and short string values, so that an invoice
+     * list carries each field name and status once rather than once per invoice.
+     */
+    public static SmileFactory smileFactory() {
+        return SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+    }
+
+    /**
+     * CBOR with amounts written as single-precision floats where that loses nothing. String
+     * references are left off because not every CBOR decoder supports them.
+     */
+    public static CBORFactory cborFactory() {
+        return CBORFactory.builder()
+                .enable(CBORGenerator.Feature.WRITE_MINIMAL_INTS)
+                .enable(CBORGenerator.Feature.WRITE_MINIMAL_DOUBLES)
+                .build();
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(smileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(cborFactory()).build());
+    }
+}
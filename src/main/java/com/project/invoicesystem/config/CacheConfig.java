@@ -0,0 +1,43 @@
+package com.project.invoicesystem.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String INVOICES = "invoices";
+
+    /**
+     * Local, bounded invoice cache. Puts and evictions made inside a transaction are applied only after it commits,
+     * so the cache never serves state that was rolled back. Set {@code invoice.cache.type} to anything other than
+     * {@code caffeine} to fall back to Spring Boot's cache auto-configuration, e.g. a distributed cache selected
+     * with {@code spring.cache.type}.
+     *
+     * @param maximumSize the maximum number of cached invoices.
+     * @param ttl how long an entry is served after it was written.
+     * @return the cache manager.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "invoice.cache.type", havingValue = "caffeine", matchIfMissing = true)
+    public CacheManager cacheManager(@Value("${invoice.cache.maximum-size:10000}") long maximumSize,
+                                     @Value("${invoice.cache.ttl:30s}") Duration ttl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(INVOICES);
+        cacheManager.setAllowNullValues(false);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats());
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -0,0 +1,11 @@
+package com.project.invoicesystem.config;
+
+/**
+ * The connection pools a {@link ReadWriteRoutingDataSource} chooses between.
+ */
+public enum DataSourceRoute {
+    /** The writable primary database. */
+    PRIMARY,
+    /** A read replica, which may lag behind the primary. */
+    REPLICA
+}
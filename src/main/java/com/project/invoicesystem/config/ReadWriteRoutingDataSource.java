@@ -0,0 +1,21 @@
+package com.project.invoicesystem.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to the replica when the current thread allows it, and everything else to the
+ * primary. The routing decision is made when a connection is requested, so this data source must be wrapped
+ * in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction manager
+ * then marks the transaction read-only before the first statement actually fetches a connection.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (ReplicaReads.isAllowed() && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return DataSourceRoute.REPLICA;
+        }
+        return DataSourceRoute.PRIMARY;
+    }
+}
@@ -0,0 +1,50 @@
+package com.project.invoicesystem.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Marks the current thread as allowed to read from the replica. Read-only transactions run on the replica
+ * only while this is set, so reads made by background jobs and by write requests always see the primary.
+ */
+public final class ReplicaReads {
+
+    private static final ThreadLocal<Boolean> ALLOWED = new ThreadLocal<>();
+
+    private ReplicaReads() {
+    }
+
+    /**
+     * Lets read-only transactions on the current thread use the replica until {@link #clear()} is called.
+     */
+    public static void allow() {
+        ALLOWED.set(Boolean.TRUE);
+    }
+
+    public static void clear() {
+        ALLOWED.remove();
+    }
+
+    public static boolean isAllowed() {
+        return ALLOWED.get() != null;
+    }
+
+    /**
+     * Runs a read on the primary even if the current thread may use the replica. Used for results that are
+     * shared with other requests, such as cache entries, which must not capture a lagging replica's state.
+     * The read must open its own connection, i.e. it must not join a transaction that already holds one.
+     *
+     * @param read the read to run.
+     * @return the read's result.
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        Boolean allowed = ALLOWED.get();
+        ALLOWED.remove();
+        try {
+            return read.get();
+        } finally {
+            if (allowed != null) {
+                ALLOWED.set(allowed);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.project.invoicesystem.constants;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * How far past its due date a pending invoice is, as reported in receivables summaries.
+ */
+public enum AgingBucket {
+    /** Not due yet, or due today. */
+    CURRENT("current", Long.MIN_VALUE, 0),
+    DAYS_1_30("1-30", 1, 30),
+    DAYS_31_60("31-60", 31, 60),
+    DAYS_61_90("61-90", 61, 90),
+    /** More than 90 days overdue. */
+    DAYS_OVER_90("90+", 91, Long.MAX_VALUE);
+
+    private final String label;
+    private final long minDaysOverdue;
+    private final long maxDaysOverdue;
+
+    AgingBucket(String label, long minDaysOverdue, long maxDaysOverdue) {
+        this.label = label;
+        this.minDaysOverdue = minDaysOverdue;
+        this.maxDaysOverdue = maxDaysOverdue;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Finds the bucket of an invoice.
+     *
+     * @param dueDate the invoice's due date; invoices without one are treated as current.
+     * @param today the date to age against.
+     * @return the bucket.
+     */
+    public static AgingBucket of(LocalDate dueDate, LocalDate today) {
+        if (dueDate == null) {
+            return CURRENT;
+        }
+        long daysOverdue = ChronoUnit.DAYS.between(dueDate, today);
+        for (AgingBucket bucket : values()) {
+            if (daysOverdue >= bucket.minDaysOverdue && daysOverdue <= bucket.maxDaysOverdue) {
+                return bucket;
+            }
+        }
+        throw new IllegalStateException("No aging bucket for " + daysOverdue + " days");
+    }
+}
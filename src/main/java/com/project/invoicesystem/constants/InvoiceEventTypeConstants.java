@@ -0,0 +1,13 @@
+package com.project.invoicesystem.constants;
+
+/**
+ * Types of the invoice change events written to the outbox.
+ */
+public class InvoiceEventTypeConstants {
+    public static final String CREATED = "created";
+    public static final String PAYMENT = "payment";
+    public static final String PAYMENT_REJECTED = "payment_rejected";
+    public static final String PAID = "paid";
+    public static final String VOID = "void";
+    public static final String REISSUED = "reissued";
+}
@@ -0,0 +1,45 @@
+package com.project.invoicesystem.constants;
+
+import java.util.Locale;
+
+/**
+ * File formats supported by bulk invoice export and import.
+ */
+public enum InvoiceFileFormat {
+    /** Comma-separated values with a header line. */
+    CSV("csv", "text/csv"),
+    /** One JSON object per line. */
+    NDJSON("ndjson", "application/x-ndjson");
+
+    private final String extension;
+    private final String mediaType;
+
+    InvoiceFileFormat(String extension, String mediaType) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Finds a format by its name.
+     *
+     * @param name the format name, case-insensitive.
+     * @return the format.
+     * @throws IllegalArgumentException if the format is not supported.
+     */
+    public static InvoiceFileFormat of(String name) {
+        for (InvoiceFileFormat format : values()) {
+            if (format.extension.equals(name.toLowerCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported format: " + name);
+    }
+}
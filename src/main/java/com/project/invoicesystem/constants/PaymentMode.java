@@ -0,0 +1,21 @@
+package com.project.invoicesystem.constants;
+
+/**
+ * How {@code InvoiceService.payInvoice} applies a payment to the invoice row.
+ */
+public enum PaymentMode {
+    /** Read the invoice, update it in memory and save it, retrying on version conflicts. */
+    OPTIMISTIC,
+    /** Add the amount and derive the status in a single conditional UPDATE, for invoices under heavy contention. */
+    ATOMIC,
+    /**
+     * Only append the payment to the ledger; the invoice's paid amount and status are brought up to date
+     * by the periodic fold, so payment bursts run at insert speed without touching the invoice row.
+     */
+    LEDGER,
+    /**
+     * Append the payment to a local log and coalesce the payments of each invoice in memory; every flush
+     * window applies one aggregated update per invoice. For invoices receiving many small payments.
+     */
+    BUFFERED
+}
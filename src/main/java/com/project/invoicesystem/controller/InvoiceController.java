@@ -1,72 +1,403 @@
 package com.project.invoicesystem.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.project.invoicesystem.constants.InvoiceFileFormat;
+import com.project.invoicesystem.dto.BatchItemResultDTO;
+import com.project.invoicesystem.dto.ImportResultDTO;
+import com.project.invoicesystem.dto.InvoiceEventDTO;
+import com.project.invoicesystem.dto.InvoiceFilter;
 import com.project.invoicesystem.dto.InvoiceRequestDTO;
 import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.dto.OverdueJobDTO;
+import com.project.invoicesystem.dto.OverdueSimulationDTO;
+import com.project.invoicesystem.dto.PaymentResponseDTO;
+import com.project.invoicesystem.dto.ReceivablesSummaryDTO;
+import com.project.invoicesystem.service.IdempotencyKeys;
+import com.project.invoicesystem.service.IdempotencyService;
+import com.project.invoicesystem.service.InvoiceChangeFeed;
 import com.project.invoicesystem.service.InvoiceService;
+import com.project.invoicesystem.service.InvoiceTransferService;
+import com.project.invoicesystem.service.OverdueJob;
+import com.project.invoicesystem.service.OverdueJobService;
+import com.project.invoicesystem.service.OverdueSimulator;
+import com.project.invoicesystem.service.ReceivablesService;
 import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
 
 @RestController
 @RequestMapping("/invoices")
 public class InvoiceController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String NDJSON = "application/x-ndjson";
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     @Autowired
     private InvoiceService invoiceService;
 
+    @Autowired
+    private OverdueJobService overdueJobService;
+
+    @Autowired
+    private OverdueSimulator overdueSimulator;
+
+    @Autowired
+    private ReceivablesService receivablesService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private InvoiceChangeFeed invoiceChangeFeed;
+
+    @Autowired
+    private InvoiceTransferService invoiceTransferService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
-     * Creates a new invoice in the system.
+     * Creates a new invoice in the system. A retry carrying the same idempotency key returns the invoice
+     * created by the first request instead of creating another one.
      *
      * @param invoiceRequest the data required to create a new invoice.
+     * @param idempotencyKey optional client-chosen key identifying the request across retries.
      * @return a ResponseEntity containing the created invoice details with HTTP status 201 (Created).
      */
     @PostMapping
-    public ResponseEntity<InvoiceResponseDTO> createInvoice(@RequestBody InvoiceRequestDTO invoiceRequest) {
-        InvoiceResponseDTO response = invoiceService.createInvoice(invoiceRequest);
+    public ResponseEntity<InvoiceResponseDTO> createInvoice(@RequestBody InvoiceRequestDTO invoiceRequest,
+                                                            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        InvoiceResponseDTO response = idempotencyService.execute(IdempotencyKeys.INVOICE_SCOPE, idempotencyKey,
+                IdempotencyKeys.fingerprint(invoiceRequest), () -> invoiceService.createInvoice(invoiceRequest));
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
     /**
-     * Retrieves all invoices in the system.
+     * Creates invoices in bulk from a JSON array.
+     *
+     * @param invoiceRequests the invoices to create.
+     * @return a ResponseEntity containing one result per request with HTTP status 200 (OK).
+     */
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BatchItemResultDTO>> createInvoices(@RequestBody List<InvoiceRequestDTO> invoiceRequests) {
+        List<BatchItemResultDTO> response = invoiceService.createInvoices(invoiceRequests.iterator());
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Creates invoices in bulk from newline-delimited JSON. Requests are parsed as they are consumed,
+     * so the request body is never materialized in memory as a whole.
      *
-     * @return a ResponseEntity containing a list of all invoices with HTTP status 200 (OK).
+     * @param body the request body, one invoice request per line.
+     * @return a ResponseEntity containing one result per request with HTTP status 200 (OK).
+     * @throws IOException if the request body cannot be read.
+     */
+    @PostMapping(path = "/batch", consumes = NDJSON)
+    public ResponseEntity<List<BatchItemResultDTO>> createInvoicesFromStream(InputStream body) throws IOException {
+        try (MappingIterator<InvoiceRequestDTO> requests = objectMapper.readerFor(InvoiceRequestDTO.class).readValues(body)) {
+            List<BatchItemResultDTO> response = invoiceService.createInvoices(requests);
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (RuntimeException e) {
+            // MappingIterator wraps parse errors of individual lines in unchecked exceptions.
+            if (e.getCause() instanceof JsonProcessingException) {
+                throw new IllegalArgumentException("Malformed invoice request: " + e.getCause().getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves one page of invoices ordered by ID. When the page is full, the ID to pass as
+     * {@code after} for the next page is returned in the {@value #NEXT_CURSOR_HEADER} header.
+     *
+     * @param after the ID of the last invoice on the previous page.
+     * @param limit the maximum number of invoices to return.
+     * @param status optional status to filter on.
+     * @param dueFrom optional inclusive lower bound on the due date.
+     * @param dueTo optional inclusive upper bound on the due date.
+     * @return a ResponseEntity containing the page of invoices with HTTP status 200 (OK).
      */
     @GetMapping
-    public ResponseEntity<List<InvoiceResponseDTO>> getInvoices() {
-        List<InvoiceResponseDTO> response = invoiceService.getInvoices();
+    public ResponseEntity<List<InvoiceResponseDTO>> getInvoices(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "" + InvoiceService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String status,
+            @RequestParam(name = "due_from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueFrom,
+            @RequestParam(name = "due_to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueTo) {
+        List<InvoiceResponseDTO> response = invoiceService.getInvoices(after, limit, new InvoiceFilter(status, dueFrom, dueTo));
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (response.size() == Math.min(limit, InvoiceService.MAX_PAGE_SIZE)) {
+            builder.header(NEXT_CURSOR_HEADER, String.valueOf(response.get(response.size() - 1).getId()));
+        }
+        return builder.body(response);
+    }
+
+    /**
+     * Summarizes receivables by status and, for pending invoices, by how many days they are overdue
+     * (current, 1-30, 31-60, 61-90, 90+). Totals come from an in-memory view unless exact figures are requested.
+     *
+     * @param exact whether to aggregate the totals in the database instead.
+     * @return a ResponseEntity containing the summary with HTTP status 200 (OK).
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<ReceivablesSummaryDTO> getSummary(@RequestParam(defaultValue = "false") boolean exact) {
+        return new ResponseEntity<>(receivablesService.getSummary(exact), HttpStatus.OK);
+    }
+
+    /**
+     * Long-polls the invoice change feed: returns the events published after {@code since} as soon as
+     * there are any, or an empty list once {@code wait} seconds have passed. The position of the last
+     * event is returned in the {@value #NEXT_CURSOR_HEADER} header, to be passed as {@code since} next.
+     *
+     * @param since the position of the last event already seen, 0 to start from the beginning.
+     * @param limit the maximum number of events to return.
+     * @param wait how many seconds to wait for new events.
+     * @return a future ResponseEntity containing the events with HTTP status 200 (OK).
+     */
+    @GetMapping(path = "/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<List<InvoiceEventDTO>>> getChanges(@RequestParam(defaultValue = "0") long since,
+                                                                               @RequestParam(defaultValue = "" + InvoiceService.DEFAULT_PAGE_SIZE) int limit,
+                                                                               @RequestParam(defaultValue = "30") int wait) {
+        return invoiceChangeFeed.poll(since, limit, Duration.ofSeconds(wait)).thenApply(events -> {
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+            if (!events.isEmpty()) {
+                builder.header(NEXT_CURSOR_HEADER, String.valueOf(events.get(events.size() - 1).getPosition()));
+            }
+            return builder.body(events);
+        });
+    }
+
+    /**
+     * Streams the invoice change feed as server-sent events, starting after {@code since} or, when a
+     * client reconnects, after the {@code Last-Event-ID} it last received.
+     *
+     * @param since the position of the last event already seen, 0 to start from the beginning.
+     * @param lastEventId the SSE id of the last event received before reconnecting.
+     * @return the emitter streaming the events.
+     */
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(defaultValue = "0") long since,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return invoiceChangeFeed.stream(lastEventId != null ? lastEventId : since);
+    }
+
+    /**
+     * Retrieves a single invoice. Lookups are served from the invoice cache when possible.
+     *
+     * @param id the ID of the invoice.
+     * @return a ResponseEntity containing the invoice details with HTTP status 200 (OK).
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<InvoiceResponseDTO> getInvoice(@PathVariable Long id) {
+        InvoiceResponseDTO response = invoiceService.getInvoice(id);
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
     /**
-     * Pays an invoice by updating its status with the specified payment amount.
+     * Streams all matching invoices as newline-delimited JSON, one invoice per line.
+     * Rows are read and written in batches, so memory use does not grow with the table size. Like the export,
+     * the body is written on the request thread so that long streams are not cut off by the async request
+     * timeout and keep their connection permit until the last row is written.
+     *
+     * @param after optional ID to start after.
+     * @param status optional status to filter on.
+     * @param dueFrom optional inclusive lower bound on the due date.
+     * @param dueTo optional inclusive upper bound on the due date.
+     * @param response the response to write the invoices to.
+     * @throws IOException if the response cannot be written.
+     */
+    @GetMapping(path = "/stream", produces = NDJSON)
+    public void streamInvoices(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) String status,
+            @RequestParam(name = "due_from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueFrom,
+            @RequestParam(name = "due_to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueTo,
+            HttpServletResponse response) throws IOException {
+        InvoiceFilter filter = new InvoiceFilter(status, dueFrom, dueTo);
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try (SequenceWriter writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n")
+                .writeValues(response.getOutputStream())) {
+            invoiceService.streamInvoices(after, filter, invoice -> {
+                try {
+                    writer.write(invoice);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Exports all invoices as a CSV or newline-delimited JSON file, compressed with gzip when the client
+     * accepts it. The file is written while rows are read from a database cursor, so exports of any size
+     * run in constant memory. It is written on the request thread rather than asynchronously so that long
+     * exports are not cut off by the async request timeout.
+     *
+     * @param format the file format, {@code csv} or {@code ndjson}.
+     * @param acceptEncoding the encodings the client accepts.
+     * @param response the response to write the file to.
+     * @throws IOException if the response cannot be written.
+     */
+    @GetMapping("/export")
+    public void exportInvoices(@RequestParam(defaultValue = "csv") String format,
+                               @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                               HttpServletResponse response) throws IOException {
+        InvoiceFileFormat fileFormat = InvoiceFileFormat.of(format);
+        response.setContentType(fileFormat.getMediaType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("invoices." + fileFormat.getExtension()).build().toString());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        OutputStream out = response.getOutputStream();
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            out = new GZIPOutputStream(out, 64 * 1024);
+        }
+        invoiceTransferService.exportInvoices(fileFormat, out);
+    }
+
+    /**
+     * Imports invoices from a CSV or newline-delimited JSON file, optionally sent with
+     * {@code Content-Encoding: gzip}. The file is parsed while it is uploaded and inserted in chunks, so
+     * files of any size can be imported; invalid lines are reported by line number and skipped.
+     *
+     * @param format the file format, {@code csv} or {@code ndjson}.
+     * @param contentEncoding the encoding of the request body.
+     * @param body the request body.
+     * @return a ResponseEntity containing the import counts and errors with HTTP status 200 (OK).
+     * @throws IOException if the request body cannot be read.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<ImportResultDTO> importInvoices(@RequestParam(defaultValue = "csv") String format,
+                                                          @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+                                                          InputStream body) throws IOException {
+        InvoiceFileFormat fileFormat = InvoiceFileFormat.of(format);
+        try {
+            InputStream in = "gzip".equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(body, 64 * 1024) : body;
+            return new ResponseEntity<>(invoiceTransferService.importInvoices(fileFormat, in), HttpStatus.OK);
+        } catch (ZipException e) {
+            throw new IllegalArgumentException("Malformed gzip body: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Pays an invoice by updating its status with the specified payment amount. A retry carrying the same
+     * idempotency key returns the response of the first request without applying the payment again.
      *
      * @param id the ID of the invoice to be paid.
      * @param paymentRequest a map containing the payment amount.
+     * @param idempotencyKey optional client-chosen key identifying the request across retries.
      * @return a ResponseEntity containing the updated invoice details with HTTP status 200 (OK).
      */
     @PostMapping("/{id}/payments")
-    public ResponseEntity<InvoiceResponseDTO> payInvoice(@PathVariable Long id, @RequestBody Map<String, Double> paymentRequest) {
+    public ResponseEntity<InvoiceResponseDTO> payInvoice(@PathVariable Long id, @RequestBody Map<String, Double> paymentRequest,
+                                                         @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         double amount = paymentRequest.get("amount");
-        InvoiceResponseDTO response = invoiceService.payInvoice(id, amount);
+        InvoiceResponseDTO response = idempotencyService.execute(IdempotencyKeys.paymentScope(id), idempotencyKey,
+                IdempotencyKeys.fingerprint(amount), () -> invoiceService.payInvoice(id, amount));
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
     /**
-     * Processes overdue invoices and applies late fees based on the overdue days.
+     * Lists the payments recorded against an invoice, oldest first.
      *
-     * @param request a map containing the late fee and the number of overdue days.
-     * @return a ResponseEntity with HTTP status 204 (No Content) after processing the overdue invoices.
+     * @param id the ID of the invoice.
+     * @param after the ID of the last payment on the previous page.
+     * @param limit the maximum number of payments to return.
+     * @return a ResponseEntity containing the payments with HTTP status 200 (OK).
+     */
+    @GetMapping("/{id}/payments")
+    public ResponseEntity<List<PaymentResponseDTO>> getPayments(@PathVariable Long id,
+                                                                @RequestParam(required = false) Long after,
+                                                                @RequestParam(defaultValue = "" + InvoiceService.DEFAULT_PAGE_SIZE) int limit) {
+        List<PaymentResponseDTO> response = invoiceService.getPayments(id, after, limit);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Submits an overdue sweep to run in the background. While a sweep is queued or running, further
+     * submissions return that sweep instead of starting an overlapping one.
+     *
+     * @param request a map containing the late fee and overdue days.
+     * @return a ResponseEntity containing the job with HTTP status 202 (Accepted) and its location.
      */
     @PostMapping("/process-overdue")
-    public ResponseEntity<Void> processOverdue(@RequestBody Map<String, Object> request) {
-        double lateFee = (double) request.get("late_fee");
-        int overdueDays = (int) request.get("overdue_days");
-        invoiceService.processOverdueInvoices(lateFee, overdueDays);
-        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    public ResponseEntity<OverdueJobDTO> processOverdue(@RequestBody Map<String, Object> request) {
+        double lateFee = ((Number) request.get("late_fee")).doubleValue();
+        int overdueDays = ((Number) request.get("overdue_days")).intValue();
+        OverdueJob job = overdueJobService.submit(lateFee, overdueDays);
+        return ResponseEntity.accepted()
+                .location(URI.create("/invoices/jobs/" + job.getId()))
+                .body(job.toDto());
+    }
+
+    /**
+     * Reports the progress of an overdue sweep.
+     *
+     * @param id the ID of the job.
+     * @return a ResponseEntity containing the job with HTTP status 200 (OK).
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<OverdueJobDTO> getJob(@PathVariable String id) {
+        return new ResponseEntity<>(overdueJobService.getJob(id).toDto(), HttpStatus.OK);
+    }
+
+    /**
+     * Cancels an overdue sweep. Chunks already committed stay committed; the remaining partitions are
+     * picked up by the next sweep.
+     *
+     * @param id the ID of the job.
+     * @return a ResponseEntity containing the job with HTTP status 202 (Accepted).
+     */
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<OverdueJobDTO> cancelJob(@PathVariable String id) {
+        return new ResponseEntity<>(overdueJobService.cancel(id).toDto(), HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * Projects what an overdue sweep with the given parameters would do today, without changing any
+     * invoice. Pending invoices are read at most once per {@code invoice.overdue.simulation.snapshot-ttl}.
+     *
+     * @param lateFee the late fee to simulate.
+     * @param overdueDays the number of days after which an invoice is considered overdue.
+     * @param refresh whether to read the pending invoices again instead of using a recent snapshot.
+     * @return a ResponseEntity containing the projected counts and amounts with HTTP status 200 (OK).
+     */
+    @GetMapping("/overdue-simulation")
+    public ResponseEntity<OverdueSimulationDTO> simulateOverdue(@RequestParam("late_fee") double lateFee,
+                                                                @RequestParam("overdue_days") int overdueDays,
+                                                                @RequestParam(defaultValue = "false") boolean refresh) {
+        return new ResponseEntity<>(overdueSimulator.simulate(lateFee, overdueDays, refresh), HttpStatus.OK);
     }
 
 }
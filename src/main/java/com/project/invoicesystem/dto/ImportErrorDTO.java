@@ -0,0 +1,14 @@
+package com.project.invoicesystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportErrorDTO {
+
+    private long line;
+    private String error;
+}
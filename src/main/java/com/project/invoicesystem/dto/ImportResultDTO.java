@@ -0,0 +1,18 @@
+package com.project.invoicesystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportResultDTO {
+
+    private long imported;
+    private long failed;
+    /** The first failed lines, up to invoice.import.max-reported-errors of them. */
+    private List<ImportErrorDTO> errors;
+}
@@ -0,0 +1,25 @@
+package com.project.invoicesystem.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class InvoiceEventDTO {
+
+    private Long position;
+    private String type;
+    private Long invoiceId;
+    private Long relatedInvoiceId;
+    private Double paymentAmount;
+    private double amount;
+    private double paidAmount;
+    private String status;
+    private Instant createdAt;
+}
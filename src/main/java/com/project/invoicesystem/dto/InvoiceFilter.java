@@ -0,0 +1,17 @@
+package com.project.invoicesystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvoiceFilter {
+
+    private String status;
+    private LocalDate dueFrom;
+    private LocalDate dueTo;
+}
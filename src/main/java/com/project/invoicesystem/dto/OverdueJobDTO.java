@@ -0,0 +1,40 @@
+package com.project.invoicesystem.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OverdueJobDTO {
+
+    private String id;
+    private String status;
+    @JsonProperty("late_fee")
+    private double lateFee;
+    @JsonProperty("overdue_days")
+    private int overdueDays;
+    /** For scheduled sweeps, the watermark: invoices due before it were left out. */
+    @JsonProperty("due_from")
+    private LocalDate dueFrom;
+    /** Overdue invoices closed so far, as paid or void; each was reissued. */
+    private long processed;
+    private long paid;
+    private long voided;
+    /** Partitions abandoned after a chunk failed; they are resumed by the next run. */
+    @JsonProperty("failed_partitions")
+    private long failedPartitions;
+    /** Processed invoices per second. */
+    private double throughput;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+}
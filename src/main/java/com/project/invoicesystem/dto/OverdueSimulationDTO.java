@@ -0,0 +1,28 @@
+package com.project.invoicesystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OverdueSimulationDTO {
+
+    /** Pending invoices due before this date are overdue. */
+    private LocalDate cutoff;
+    /** When the pending invoices were read from the database. */
+    private Instant snapshotAt;
+    /** Overdue invoices; each would be closed and reissued. */
+    private long overdue;
+    private long paid;
+    private long voided;
+    /** The unpaid amount of the overdue invoices. */
+    private double outstandingAmount;
+    private double lateFeeAmount;
+    /** The total amount of the reissued invoices. */
+    private double reissuedAmount;
+}
@@ -0,0 +1,35 @@
+package com.project.invoicesystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OverdueSummaryDTO {
+
+    private long scanned;
+    private long paid;
+    private long voided;
+    private long reissued;
+    /** Partitions abandoned after a chunk failed; they are resumed by the next run. */
+    private long failed;
+
+    public OverdueSummaryDTO(long scanned, long paid, long voided, long reissued) {
+        this(scanned, paid, voided, reissued, 0);
+    }
+
+    /**
+     * Adds the counts of another summary to this one.
+     *
+     * @param other the summary to add.
+     */
+    public void add(OverdueSummaryDTO other) {
+        this.scanned += other.scanned;
+        this.paid += other.paid;
+        this.voided += other.voided;
+        this.reissued += other.reissued;
+        this.failed += other.failed;
+    }
+}
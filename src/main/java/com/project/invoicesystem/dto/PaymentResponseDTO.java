@@ -0,0 +1,20 @@
+package com.project.invoicesystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaymentResponseDTO {
+
+    private Long id;
+    private Long invoiceId;
+    private double amount;
+    private Instant createdAt;
+    /** Whether the payment was accepted but could not be applied because the invoice was no longer pending. */
+    private boolean rejected;
+}
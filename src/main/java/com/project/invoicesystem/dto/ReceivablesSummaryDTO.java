@@ -0,0 +1,22 @@
+package com.project.invoicesystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReceivablesSummaryDTO {
+
+    /** The date the aging buckets were computed against. */
+    private LocalDate asOf;
+    private ReceivablesTotalsDTO total;
+    /** Totals per invoice status. */
+    private Map<String, ReceivablesTotalsDTO> byStatus;
+    /** Totals of pending invoices per aging bucket label. */
+    private Map<String, ReceivablesTotalsDTO> byAging;
+}
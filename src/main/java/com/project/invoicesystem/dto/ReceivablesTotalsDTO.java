@@ -0,0 +1,30 @@
+package com.project.invoicesystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReceivablesTotalsDTO {
+
+    private long count;
+    private double amount;
+    private double paidAmount;
+    private double outstanding;
+
+    /**
+     * Adds a group of invoices to the totals.
+     *
+     * @param count the number of invoices.
+     * @param amount the sum of their amounts.
+     * @param paidAmount the sum of their paid amounts.
+     */
+    public void add(long count, double amount, double paidAmount) {
+        this.count += count;
+        this.amount += amount;
+        this.paidAmount += paidAmount;
+        this.outstanding += amount - paidAmount;
+    }
+}
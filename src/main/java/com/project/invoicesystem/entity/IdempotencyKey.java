@@ -0,0 +1,59 @@
+package com.project.invoicesystem.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+@Entity
+@Table(indexes = @Index(name = "idx_idempotency_key_expires_at", columnList = "expires_at"))
+@Data
+@NoArgsConstructor
+public class IdempotencyKey implements Persistable<String> {
+
+    @Id
+    private String id;
+
+    @Column(nullable = false)
+    private String fingerprint;
+
+    /** The JSON response of the completed request, or null while it is in progress. */
+    @Column(length = 1000)
+    private String response;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    @Transient
+    private boolean newKey = true;
+
+    public IdempotencyKey(String id, String fingerprint, Instant expiresAt) {
+        this.id = id;
+        this.fingerprint = fingerprint;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Keys are always inserted rather than merged, so a concurrent request reserving the same key
+     * fails on the primary key.
+     */
+    @Override
+    public boolean isNew() {
+        return newKey;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newKey = false;
+    }
+}
@@ -2,27 +2,44 @@ package com.project.invoicesystem.entity;
 
 
 import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDate;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_invoice_status_due_amounts", columnList = "status, due_date, amount, paid_amount"),
+        @Index(name = "idx_invoice_status_id", columnList = "status, id")
+})
 @Data
 @NoArgsConstructor
 public class Invoice {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @PooledTableId(table = "invoice_seq", allocationSize = 500)
     private Long id;
+    @Column(nullable = false, precision = 19, scale = 2)
+    @JdbcTypeCode(SqlTypes.DECIMAL)
     private double amount;
+    @Column(nullable = false, precision = 19, scale = 2)
+    @JdbcTypeCode(SqlTypes.DECIMAL)
     private double paidAmount;
     private LocalDate dueDate;
+    @Column(nullable = false)
+    @Convert(converter = InvoiceStatusConverter.class)
     private String status;
+    @Version
+    private long version;
 
     public Invoice(double amount, LocalDate dueDate) {
         this.amount = amount;
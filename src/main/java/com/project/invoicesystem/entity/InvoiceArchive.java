@@ -0,0 +1,70 @@
+package com.project.invoicesystem.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Transient;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * A paid or void invoice moved out of the invoice table by the archiver. Settled invoices no longer
+ * change, so the archive keeps their final state without a version.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+public class InvoiceArchive implements Persistable<Long> {
+
+    @Id
+    private Long id;
+    @Column(nullable = false, precision = 19, scale = 2)
+    @JdbcTypeCode(SqlTypes.DECIMAL)
+    private double amount;
+    @Column(nullable = false, precision = 19, scale = 2)
+    @JdbcTypeCode(SqlTypes.DECIMAL)
+    private double paidAmount;
+    @Column(nullable = false)
+    private LocalDate dueDate;
+    @Column(nullable = false)
+    @Convert(converter = InvoiceStatusConverter.class)
+    private String status;
+    @Column(nullable = false)
+    private Instant archivedAt;
+
+    @Transient
+    private boolean newArchive = true;
+
+    public InvoiceArchive(Invoice invoice, Instant archivedAt) {
+        this.id = invoice.getId();
+        this.amount = invoice.getAmount();
+        this.paidAmount = invoice.getPaidAmount();
+        this.dueDate = invoice.getDueDate();
+        this.status = invoice.getStatus();
+        this.archivedAt = archivedAt;
+    }
+
+    /**
+     * Archived invoices keep their IDs and are always inserted, so an invoice archived twice by racing
+     * archivers fails on the primary key instead of being merged.
+     */
+    @Override
+    public boolean isNew() {
+        return newArchive;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newArchive = false;
+    }
+}
@@ -0,0 +1,30 @@
+package com.project.invoicesystem.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+/**
+ * Running totals of the archived invoices of one status, updated in the same transaction as the archive
+ * so that summaries can include archived invoices without scanning the archive.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+public class InvoiceArchiveTotal {
+
+    /** The status code, see {@link InvoiceStatusConverter}. */
+    @Id
+    private Byte status;
+    private long invoiceCount;
+    @Column(nullable = false, precision = 19, scale = 2)
+    @JdbcTypeCode(SqlTypes.DECIMAL)
+    private double amount;
+    @Column(nullable = false, precision = 19, scale = 2)
+    @JdbcTypeCode(SqlTypes.DECIMAL)
+    private double paidAmount;
+}
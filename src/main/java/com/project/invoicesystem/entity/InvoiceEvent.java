@@ -0,0 +1,68 @@
+package com.project.invoicesystem.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+
+/**
+ * A change of an invoice, written to the outbox in the transaction that made the change.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_invoice_event_position", columnList = "position", unique = true))
+@Data
+@NoArgsConstructor
+public class InvoiceEvent {
+
+    @Id
+    @PooledTableId(table = "invoice_event_seq", allocationSize = 500)
+    private Long id;
+    /**
+     * Position in the change feed, assigned by the relay when the event is published; null until then.
+     * Unlike the ID, positions follow the order in which events become visible.
+     */
+    private Long position;
+    @Column(nullable = false, length = 16)
+    private String type;
+    @Column(nullable = false)
+    private Long invoiceId;
+    /** For reissued invoices, the overdue invoice they replace. */
+    private Long relatedInvoiceId;
+    /** For payments, the amount paid. */
+    @Column(precision = 19, scale = 2)
+    @JdbcTypeCode(SqlTypes.DECIMAL)
+    private Double paymentAmount;
+    @Column(nullable = false, precision = 19, scale = 2)
+    @JdbcTypeCode(SqlTypes.DECIMAL)
+    private double amount;
+    @Column(nullable = false, precision = 19, scale = 2)
+    @JdbcTypeCode(SqlTypes.DECIMAL)
+    private double paidAmount;
+    @Column(nullable = false)
+    @Convert(converter = InvoiceStatusConverter.class)
+    private String status;
+    private Instant createdAt;
+
+    /**
+     * Describes the given invoice as it is after the change.
+     *
+     * @param type one of the values of {@code InvoiceEventTypeConstants}.
+     * @param invoice the changed invoice.
+     */
+    public InvoiceEvent(String type, Invoice invoice) {
+        this.type = type;
+        this.invoiceId = invoice.getId();
+        this.amount = invoice.getAmount();
+        this.paidAmount = invoice.getPaidAmount();
+        this.status = invoice.getStatus();
+        this.createdAt = Instant.now();
+    }
+}
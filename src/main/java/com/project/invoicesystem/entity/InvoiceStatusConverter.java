@@ -0,0 +1,63 @@
+package com.project.invoicesystem.entity;
+
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores the invoice status as a one-byte code while the rest of the application keeps working
+ * with the values of {@link InvoiceStatusConstants}.
+ */
+@Converter
+public class InvoiceStatusConverter implements AttributeConverter<String, Byte> {
+
+    public static final byte PENDING = 0;
+    public static final byte PAID = 1;
+    public static final byte VOID = 2;
+
+    @Override
+    public Byte convertToDatabaseColumn(String status) {
+        return status == null ? null : toCode(status);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Byte code) {
+        return code == null ? null : fromCode(code);
+    }
+
+    /**
+     * @param status one of the values of {@link InvoiceStatusConstants}.
+     * @return the status code stored in the database.
+     * @throws IllegalArgumentException if the status is unknown.
+     */
+    public static byte toCode(String status) {
+        switch (status) {
+            case InvoiceStatusConstants.PENDING:
+                return PENDING;
+            case InvoiceStatusConstants.PAID:
+                return PAID;
+            case InvoiceStatusConstants.VOID:
+                return VOID;
+            default:
+                throw new IllegalArgumentException("Unknown invoice status: " + status);
+        }
+    }
+
+    /**
+     * @param code a status code stored in the database.
+     * @return the corresponding value of {@link InvoiceStatusConstants}.
+     * @throws IllegalArgumentException if the code is unknown.
+     */
+    public static String fromCode(byte code) {
+        switch (code) {
+            case PENDING:
+                return InvoiceStatusConstants.PENDING;
+            case PAID:
+                return InvoiceStatusConstants.PAID;
+            case VOID:
+                return InvoiceStatusConstants.VOID;
+            default:
+                throw new IllegalArgumentException("Unknown invoice status code: " + code);
+        }
+    }
+}
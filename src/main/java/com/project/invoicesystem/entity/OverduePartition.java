@@ -0,0 +1,63 @@
+package com.project.invoicesystem.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+@Entity
+@Table(indexes = @Index(name = "idx_overdue_partition_run_key", columnList = "run_key, done"))
+@Data
+@NoArgsConstructor
+public class OverduePartition implements Persistable<String> {
+
+    @Id
+    private String id;
+    private String runKey;
+    private int partitionIndex;
+    private long rangeStart;
+    private long rangeEnd;
+    private long checkpoint;
+    private boolean done;
+    private String owner;
+    private Instant leaseExpiresAt;
+    private long scanned;
+    private long paid;
+    private long voided;
+
+    @Transient
+    private boolean newPartition = true;
+
+    public OverduePartition(String runKey, int partitionIndex, long rangeStart, long rangeEnd) {
+        this.id = runKey + "#" + partitionIndex;
+        this.runKey = runKey;
+        this.partitionIndex = partitionIndex;
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+        this.checkpoint = rangeStart;
+    }
+
+    /**
+     * Partitions are created with assigned IDs, so they are always inserted rather than merged.
+     * A concurrent planner creating the same partition then fails on the primary key instead of
+     * silently overwriting it.
+     */
+    @Override
+    public boolean isNew() {
+        return newPartition;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newPartition = false;
+    }
+}
@@ -0,0 +1,26 @@
+package com.project.invoicesystem.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * State of the scheduled overdue sweep shared by all instances: the lock that lets only one of them
+ * run it at a time and the watermark up to which invoices have been swept.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+public class OverdueSchedule {
+
+    @Id
+    private String id;
+    /** Every pending invoice due before this date has been swept; null before the first complete sweep. */
+    private LocalDate watermark;
+    private String owner;
+    private Instant lockExpiresAt;
+}
@@ -0,0 +1,43 @@
+package com.project.invoicesystem.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_payment_invoice_id", columnList = "invoice_id, id"),
+        @Index(name = "idx_payment_folded", columnList = "folded, id")
+})
+@Data
+@NoArgsConstructor
+public class Payment {
+
+    @Id
+    @PooledTableId(table = "payment_seq", allocationSize = 500)
+    private Long id;
+    private Long invoiceId;
+    @Column(nullable = false, precision = 19, scale = 2)
+    @JdbcTypeCode(SqlTypes.DECIMAL)
+    private double amount;
+    private Instant createdAt;
+    /** Whether the payment has been processed: added to the invoice's paid amount, or rejected. */
+    private boolean folded;
+    /** Whether the payment was not added to the invoice because the invoice was no longer pending. */
+    private boolean rejected;
+
+    public Payment(Long invoiceId, double amount, boolean folded) {
+        this.invoiceId = invoiceId;
+        this.amount = amount;
+        this.createdAt = Instant.now();
+        this.folded = folded;
+    }
+}
@@ -0,0 +1,49 @@
+package com.project.invoicesystem.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Transient;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * Checkpoint of a segment of the local payment log whose payments have been applied to the database.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+public class PaymentBufferSegment implements Persistable<String> {
+
+    @Id
+    private String id;
+    @Column(nullable = false)
+    private Instant flushedAt;
+
+    @Transient
+    private boolean newSegment = true;
+
+    public PaymentBufferSegment(String id, Instant flushedAt) {
+        this.id = id;
+        this.flushedAt = flushedAt;
+    }
+
+    /**
+     * Segments are always inserted, so a segment flushed twice fails on the primary key instead of being merged.
+     */
+    @Override
+    public boolean isNew() {
+        return newSegment;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newSegment = false;
+    }
+}
@@ -0,0 +1,26 @@
+package com.project.invoicesystem.entity;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates IDs from a single-row {@code next_val} table with the pooled-lo optimizer, so that one update
+ * of the table reserves {@link #allocationSize()} IDs and batched inserts need no per-row round trip.
+ * The table is used on every database, including those with native sequences, so the schema is the same
+ * on MySQL and H2.
+ */
+@IdGeneratorType(PooledTableIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface PooledTableId {
+
+    /** The name of the table holding the next value. */
+    String table();
+
+    /** The number of IDs reserved per update of the table. */
+    int allocationSize();
+}
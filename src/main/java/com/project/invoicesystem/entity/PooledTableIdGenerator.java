@@ -0,0 +1,30 @@
+package com.project.invoicesystem.entity;
+
+import org.hibernate.MappingException;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * The generator behind {@link PooledTableId}: a {@link SequenceStyleGenerator} forced onto its table
+ * structure with the pooled-lo optimizer.
+ */
+public class PooledTableIdGenerator extends SequenceStyleGenerator {
+
+    private final PooledTableId config;
+
+    public PooledTableIdGenerator(PooledTableId config) {
+        this.config = config;
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        parameters.setProperty(SEQUENCE_PARAM, config.table());
+        parameters.setProperty(INCREMENT_PARAM, String.valueOf(config.allocationSize()));
+        parameters.setProperty(OPT_PARAM, "pooled-lo");
+        parameters.setProperty(FORCE_TBL_PARAM, "true");
+        super.configure(type, parameters, serviceRegistry);
+    }
+}
@@ -1,23 +1,81 @@
 package com.project.invoicesystem.exception;
 
+import com.project.invoicesystem.service.InvoiceMetrics;
+import com.project.invoicesystem.service.InvoiceRules;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.context.request.WebRequest;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    @Autowired
+    private InvoiceMetrics invoiceMetrics;
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ApiErrorResponse> handleIllegalArgumentException(IllegalArgumentException ex, WebRequest request) {
+        countFailedPayment(request, paymentFailureReason(ex.getMessage()));
         ApiErrorResponse error = new ApiErrorResponse(ex.getMessage(), request.getDescription(false));
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<ApiErrorResponse> handleIdempotencyConflictException(IdempotencyConflictException ex, WebRequest request) {
+        countFailedPayment(request, "idempotency_conflict");
+        ApiErrorResponse error = new ApiErrorResponse(ex.getMessage(), request.getDescription(false));
+        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Answers without a body: the client asked for an event stream, which cannot carry an error response.
+     */
+    @ExceptionHandler(TooManyStreamsException.class)
+    public ResponseEntity<Void> handleTooManyStreamsException(TooManyStreamsException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiErrorResponse> handleGlobalException(Exception ex, WebRequest request) {
+        countFailedPayment(request, ex instanceof ConcurrencyFailureException ? "conflict" : "error");
         ApiErrorResponse error = new ApiErrorResponse("Internal Server Error", request.getDescription(false));
         return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
     }
+
+    /**
+     * Counts the failure if the request was a payment.
+     *
+     * @param request the failed request.
+     * @param reason the failure reason.
+     */
+    private void countFailedPayment(WebRequest request, String reason) {
+        if (request instanceof ServletWebRequest) {
+            ServletWebRequest servletRequest = (ServletWebRequest) request;
+            if (servletRequest.getHttpMethod() == HttpMethod.POST
+                    && servletRequest.getRequest().getRequestURI().endsWith("/payments")) {
+                invoiceMetrics.paymentFailed(reason);
+            }
+        }
+    }
+
+    /**
+     * Maps a validation message to a metric tag with a fixed set of values.
+     *
+     * @param message the exception message.
+     * @return the failure reason.
+     */
+    private String paymentFailureReason(String message) {
+        if (InvoiceRules.NOT_FOUND.equals(message)) {
+            return "not_found";
+        }
+        if (InvoiceRules.NOT_PENDING.equals(message)) {
+            return "not_pending";
+        }
+        return "invalid_request";
+    }
 }
@@ -0,0 +1,12 @@
+package com.project.invoicesystem.exception;
+
+/**
+ * Thrown when an idempotency key is reused for a different request, or while the request that first
+ * used it is still in progress.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.project.invoicesystem.exception;
+
+/**
+ * Thrown when a change stream is requested while {@code invoice.outbox.feed.max-streams} streams are open.
+ */
+public class TooManyStreamsException extends RuntimeException {
+
+    public TooManyStreamsException(String message) {
+        super(message);
+    }
+}
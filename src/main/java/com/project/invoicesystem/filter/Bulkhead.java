@@ -0,0 +1,104 @@
+package com.project.invoicesystem.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed number of permits with a FIFO queue that sheds load adaptively. Requests normally wait up to
+ * {@code maxWait} for a permit. Once every request has waited at least {@code target} for a whole
+ * {@code interval}, the queue is standing rather than absorbing a burst, and the bulkhead turns overloaded:
+ * waits are cut to {@code target} so that excess requests are rejected quickly instead of timing out behind
+ * each other. It recovers as soon as a request gets a permit in less than {@code target}.
+ */
+final class Bulkhead {
+
+    private final Semaphore permits;
+    private final long maxWaitNanos;
+    private final long targetNanos;
+    private final long intervalNanos;
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    private long aboveTargetSince = -1;
+    private volatile boolean overloaded;
+
+    Bulkhead(String name, int permits, Duration maxWait, Duration target, Duration interval, MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(permits, true);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.targetNanos = target.toNanos();
+        this.intervalNanos = interval.toNanos();
+        this.waitTimer = Timer.builder("invoice.bulkhead.wait")
+                .description("Time requests waited for a permit")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("invoice.bulkhead.rejected")
+                .description("Requests rejected because no permit became free in time")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        Gauge.builder("invoice.bulkhead.limit", this, bulkhead -> permits)
+                .description("Permits of the bulkhead")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        Gauge.builder("invoice.bulkhead.available", this, bulkhead -> bulkhead.permits.availablePermits())
+                .description("Permits currently free")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        Gauge.builder("invoice.bulkhead.overloaded", this, bulkhead -> bulkhead.overloaded ? 1 : 0)
+                .description("1 while the bulkhead sheds load")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Waits for a permit, for a shorter time while overloaded.
+     *
+     * @return whether a permit was acquired; if so, it must be given back with {@link #release()}.
+     */
+    boolean tryAcquire() {
+        long timeout = overloaded ? Math.min(targetNanos, maxWaitNanos) : maxWaitNanos;
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(timeout, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        long now = System.nanoTime();
+        waitTimer.record(now - start, TimeUnit.NANOSECONDS);
+        observe(now - start, now);
+        if (!acquired) {
+            rejected.increment();
+        }
+        return acquired;
+    }
+
+    void release() {
+        permits.release();
+    }
+
+    int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    boolean isOverloaded() {
+        return overloaded;
+    }
+
+    private synchronized void observe(long waitedNanos, long now) {
+        if (waitedNanos < targetNanos) {
+            aboveTargetSince = -1;
+            overloaded = false;
+        } else if (aboveTargetSince < 0) {
+            aboveTargetSince = now;
+        } else if (now - aboveTargetSince >= intervalNanos) {
+            overloaded = true;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.project.invoicesystem.filter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Bounds the number of invoice requests working against the connection pool at once. With virtual
+ * threads every request gets its own thread, so without this bound thousands of them would queue inside
+ * Hikari and fail with connection timeouts; here they wait briefly for a permit and are otherwise
+ * rejected with 503 before touching the database. When requests keep queueing longer than
+ * {@code invoice.db.queue-target}, waits are shortened so that the excess is shed quickly (see {@link Bulkhead}).
+ * <p>
+ * Overdue sweep requests ({@code /invoices/process-overdue}, {@code /invoices/jobs} and
+ * {@code /invoices/overdue-simulation}) have a bulkhead of their own, so that a burst of them cannot take permits
+ * from invoice traffic and vice versa.
+ */
+@Component
+public class ConnectionLimitFilter extends OncePerRequestFilter {
+
+    private final Bulkhead invoices;
+
+    private final Bulkhead overdue;
+
+    public ConnectionLimitFilter(@Value("${invoice.db.max-concurrent-requests:20}") int maxConcurrentRequests,
+                                 @Value("${invoice.db.acquire-timeout:1s}") Duration acquireTimeout,
+                                 @Value("${invoice.db.queue-target:50ms}") Duration queueTarget,
+                                 @Value("${invoice.db.queue-interval:500ms}") Duration queueInterval,
+                                 @Value("${invoice.overdue.bulkhead.max-concurrent-requests:2}") int maxConcurrentOverdueRequests,
+                                 MeterRegistry meterRegistry) {
+        this.invoices = new Bulkhead("invoices", maxConcurrentRequests, acquireTimeout, queueTarget, queueInterval, meterRegistry);
+        this.overdue = new Bulkhead("overdue", maxConcurrentOverdueRequests, acquireTimeout, queueTarget, queueInterval, meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/invoices");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Bulkhead bulkhead = isOverdueRequest(request) ? overdue : invoices;
+        if (!bulkhead.tryAcquire()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many concurrent requests");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * @return the number of permits currently free for invoice requests.
+     */
+    public int getAvailablePermits() {
+        return invoices.getAvailablePermits();
+    }
+
+    /**
+     * @return whether invoice requests are currently being shed because they queue too long.
+     */
+    public boolean isOverloaded() {
+        return invoices.isOverloaded();
+    }
+
+    private static boolean isOverdueRequest(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.equals("/invoices/process-overdue") || path.startsWith("/invoices/jobs/")
+                || path.equals("/invoices/overdue-simulation");
+    }
+}
@@ -0,0 +1,151 @@
+package com.project.invoicesystem.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how often each client may call each invoice endpoint, with one token bucket per client and endpoint.
+ * Requests over the limit are rejected with 429 before they wait for a database permit in
+ * {@link ConnectionLimitFilter}, so one misbehaving client cannot crowd out the others.
+ * <p>
+ * Clients are identified by the {@code invoice.rate-limit.client-header} header, or by their address when it is
+ * missing. Behind a proxy or load balancer that address is the proxy's, so all clients without the header share
+ * one bucket; the filter is therefore only enabled by {@code invoice.rate-limit.enabled} where a trusted component
+ * sets the header. Endpoints are named after their controller method in kebab case, e.g. {@code pay-invoice}; each gets
+ * {@code invoice.rate-limit.rate} requests per second with bursts of {@code invoice.rate-limit.burst}, unless
+ * overridden by {@code invoice.rate-limit.endpoints.<endpoint>.rate} and {@code .burst}. A rate of 0 leaves an
+ * endpoint unlimited.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 10)
+@ConditionalOnProperty(name = "invoice.rate-limit.enabled", havingValue = "true")
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String ENDPOINTS_PREFIX = "invoice.rate-limit.endpoints.";
+
+    private final HandlerMapping handlerMapping;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final String clientHeader;
+    private final double defaultRate;
+    private final double defaultBurst;
+    private final Cache<String, TokenBucket> buckets;
+    private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+    private final Map<Method, String> endpointNames = new ConcurrentHashMap<>();
+
+    public RateLimitFilter(@Lazy @Qualifier("requestMappingHandlerMapping") HandlerMapping handlerMapping,
+                           Environment environment,
+                           MeterRegistry meterRegistry,
+                           @Value("${invoice.rate-limit.client-header:X-Client-Id}") String clientHeader,
+                           @Value("${invoice.rate-limit.rate:100}") double defaultRate,
+                           @Value("${invoice.rate-limit.burst:200}") double defaultBurst,
+                           @Value("${invoice.rate-limit.max-clients:100000}") long maxClients,
+                           @Value("${invoice.rate-limit.idle-timeout:5m}") Duration idleTimeout) {
+        this.handlerMapping = handlerMapping;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.clientHeader = clientHeader;
+        this.defaultRate = defaultRate;
+        this.defaultBurst = defaultBurst;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(idleTimeout)
+                .build();
+        Gauge.builder("invoice.rate-limit.buckets", buckets, Cache::estimatedSize)
+                .description("Client and endpoint pairs currently tracked")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/invoices");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String endpoint = resolveEndpoint(request);
+        Limit limit = endpoint == null ? null : limits.computeIfAbsent(endpoint, this::loadLimit);
+        if (limit != null && limit.rate() > 0) {
+            long now = System.nanoTime();
+            TokenBucket bucket = buckets.get(endpoint + "|" + resolveClient(request),
+                    key -> new TokenBucket(limit.burst(), limit.rate(), now));
+            long waitNanos = bucket.tryConsume(now);
+            if (waitNanos > 0) {
+                meterRegistry.counter("invoice.rate-limit.rejected", "endpoint", endpoint).increment();
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999))));
+                response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Rate limit exceeded");
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * @return the name of the controller method handling the request in kebab case, or null if none does.
+     */
+    private String resolveEndpoint(HttpServletRequest request) {
+        HandlerExecutionChain chain;
+        try {
+            chain = handlerMapping.getHandler(request);
+        } catch (Exception e) {
+            return null;
+        }
+        if (chain == null || !(chain.getHandler() instanceof HandlerMethod handlerMethod)) {
+            return null;
+        }
+        return endpointNames.computeIfAbsent(handlerMethod.getMethod(),
+                method -> method.getName().replaceAll("([a-z0-9])([A-Z])", "$1-$2").toLowerCase(Locale.ROOT));
+    }
+
+    private String resolveClient(HttpServletRequest request) {
+        String client = request.getHeader(clientHeader);
+        return client == null || client.isBlank() ? request.getRemoteAddr() : client;
+    }
+
+    private Limit loadLimit(String endpoint) {
+        Limit limit = new Limit(
+                environment.getProperty(ENDPOINTS_PREFIX + endpoint + ".rate", Double.class, defaultRate),
+                environment.getProperty(ENDPOINTS_PREFIX + endpoint + ".burst", Double.class, defaultBurst));
+        Gauge.builder("invoice.rate-limit.rate", limit, Limit::rate)
+                .description("Requests per second allowed per client")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+        Gauge.builder("invoice.rate-limit.burst", limit, Limit::burst)
+                .description("Requests a client may send at once")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+        return limit;
+    }
+
+    private record Limit(double rate, double burst) {
+    }
+}
@@ -0,0 +1,52 @@
+package com.project.invoicesystem.filter;
+
+import com.project.invoicesystem.config.ReplicaReads;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Lets GET requests read from the replica. A client that has to see its own preceding writes sends
+ * {@value #READ_YOUR_WRITES_HEADER}{@code : true} to be served from the primary instead; setting
+ * {@code invoice.datasource.read-your-writes} makes that the default, which clients can then turn off with
+ * {@code false}.
+ */
+@Component
+@ConditionalOnProperty(name = "invoice.datasource.replica.jdbc-url")
+public class ReplicaReadFilter extends OncePerRequestFilter {
+
+    public static final String READ_YOUR_WRITES_HEADER = "X-Read-Your-Writes";
+
+    @Value("${invoice.datasource.read-your-writes:false}")
+    private boolean readYourWritesByDefault;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader(READ_YOUR_WRITES_HEADER);
+        boolean readYourWrites = header == null ? readYourWritesByDefault : Boolean.parseBoolean(header);
+        if (readYourWrites) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ReplicaReads.allow();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaReads.clear();
+        }
+    }
+}
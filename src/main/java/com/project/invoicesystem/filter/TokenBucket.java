@@ -0,0 +1,36 @@
+package com.project.invoicesystem.filter;
+
+/**
+ * Allows bursts of up to {@code capacity} requests and {@code rate} requests per second on average.
+ * Tokens are refilled lazily from the time elapsed since the last request.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double capacity, double rate, long now) {
+        this.capacity = capacity;
+        this.tokensPerNano = rate / 1_000_000_000d;
+        this.tokens = capacity;
+        this.refilledAt = now;
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @param now the current {@link System#nanoTime()}.
+     * @return 0 if a token was taken, otherwise the nanoseconds until the next token is available.
+     */
+    synchronized long tryConsume(long now) {
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens--;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+}
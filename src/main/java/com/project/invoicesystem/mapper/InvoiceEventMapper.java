@@ -0,0 +1,16 @@
+package com.project.invoicesystem.mapper;
+
+import com.project.invoicesystem.dto.InvoiceEventDTO;
+import com.project.invoicesystem.entity.InvoiceEvent;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.factory.Mappers;
+
+@Mapper
+public interface InvoiceEventMapper {
+    InvoiceEventMapper INSTANCE = Mappers.getMapper(InvoiceEventMapper.class);
+    InvoiceEventDTO toDto(InvoiceEvent entity);
+    @Mapping(target = "id", ignore = true)
+    InvoiceEvent toEntity(InvoiceEventDTO dto);
+
+}
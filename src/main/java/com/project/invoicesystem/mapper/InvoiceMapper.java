@@ -3,13 +3,17 @@ package com.project.invoicesystem.mapper;
 import com.project.invoicesystem.dto.InvoiceRequestDTO;
 import com.project.invoicesystem.dto.InvoiceResponseDTO;
 import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.entity.InvoiceArchive;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 
 @Mapper
 public interface InvoiceMapper {
     InvoiceMapper INSTANCE = Mappers.getMapper(InvoiceMapper.class);
+    @Mapping(target = "version", ignore = true)
     Invoice toEntity(InvoiceRequestDTO dto);
     InvoiceResponseDTO toDto(Invoice entity);
+    InvoiceResponseDTO toDto(InvoiceArchive entity);
 
 }
@@ -0,0 +1,13 @@
+package com.project.invoicesystem.mapper;
+
+import com.project.invoicesystem.dto.PaymentResponseDTO;
+import com.project.invoicesystem.entity.Payment;
+import org.mapstruct.Mapper;
+import org.mapstruct.factory.Mappers;
+
+@Mapper
+public interface PaymentMapper {
+    PaymentMapper INSTANCE = Mappers.getMapper(PaymentMapper.class);
+    PaymentResponseDTO toDto(Payment entity);
+
+}
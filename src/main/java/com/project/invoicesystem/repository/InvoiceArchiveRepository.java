@@ -0,0 +1,7 @@
+package com.project.invoicesystem.repository;
+
+import com.project.invoicesystem.entity.InvoiceArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface InvoiceArchiveRepository extends JpaRepository<InvoiceArchive, Long> {
+}
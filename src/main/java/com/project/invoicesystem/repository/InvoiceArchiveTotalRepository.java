@@ -0,0 +1,19 @@
+package com.project.invoicesystem.repository;
+
+import com.project.invoicesystem.entity.InvoiceArchiveTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface InvoiceArchiveTotalRepository extends JpaRepository<InvoiceArchiveTotal, Byte> {
+
+    /**
+     * Adds newly archived invoices to the totals of their status. Must run in the transaction that archives them.
+     */
+    @Modifying
+    @Query("update InvoiceArchiveTotal t set t.invoiceCount = t.invoiceCount + :count, t.amount = t.amount + :amount,"
+            + " t.paidAmount = t.paidAmount + :paidAmount where t.status = :status")
+    int add(@Param("status") byte status, @Param("count") long count,
+            @Param("amount") double amount, @Param("paidAmount") double paidAmount);
+}
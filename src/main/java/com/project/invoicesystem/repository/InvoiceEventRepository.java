@@ -0,0 +1,29 @@
+package com.project.invoicesystem.repository;
+
+import com.project.invoicesystem.entity.InvoiceEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.List;
+
+public interface InvoiceEventRepository extends JpaRepository<InvoiceEvent, Long> {
+
+    /**
+     * Locks the oldest unpublished events, skipping those a relay on another instance is publishing
+     * (a lock timeout of -2 means SKIP LOCKED).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = AvailableSettings.JAKARTA_LOCK_TIMEOUT, value = "-2"))
+    List<InvoiceEvent> findByPositionIsNullOrderById(Limit limit);
+
+    @Query("select coalesce(max(e.position), 0) from InvoiceEvent e")
+    long maxPosition();
+
+    List<InvoiceEvent> findByPositionGreaterThanOrderByPosition(long since, Limit limit);
+}
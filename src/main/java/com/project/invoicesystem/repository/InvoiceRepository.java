@@ -1,7 +1,116 @@
 package com.project.invoicesystem.repository;
 
 import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.service.InvoiceChanges;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface InvoiceRepository extends JpaRepository<Invoice, Long>, JpaSpecificationExecutor<Invoice> {
+
+    /**
+     * Finds the next chunk of invoices with the given status that fell due in [dueFrom, cutoff) and whose
+     * ID lies in (after, upTo], using the (status, due_date) index and keyset pagination on the ID.
+     * A null dueFrom leaves the range open; the driver inlines the parameter, so MySQL folds the
+     * condition away and still ranges over the index.
+     */
+    @Query("select i from Invoice i where i.status = :status and (:dueFrom is null or i.dueDate >= :dueFrom)"
+            + " and i.dueDate < :cutoff and i.id > :after and i.id <= :upTo order by i.id")
+    List<Invoice> findDueBetween(@Param("status") String status, @Param("dueFrom") LocalDate dueFrom,
+                                 @Param("cutoff") LocalDate cutoff, @Param("after") long after,
+                                 @Param("upTo") long upTo, Limit limit);
+
+    /**
+     * Returns the lowest and highest ID of the invoices with the given status that fell due in
+     * [dueFrom, cutoff), or nulls if there are none. A null dueFrom leaves the range open.
+     */
+    @Query("select min(i.id), max(i.id) from Invoice i where i.status = :status"
+            + " and (:dueFrom is null or i.dueDate >= :dueFrom) and i.dueDate < :cutoff")
+    List<Object[]> findIdRangeDueBetween(@Param("status") String status, @Param("dueFrom") LocalDate dueFrom,
+                                         @Param("cutoff") LocalDate cutoff);
+
+    /**
+     * Returns the earliest due date of the invoices with the given status, or null if there are none.
+     * MySQL reads it from the first entry of the status's range in the (status, due_date, ...) index.
+     */
+    @Query("select min(i.dueDate) from Invoice i where i.status = :status")
+    LocalDate findEarliestDueDate(@Param("status") String status);
+
+    /**
+     * Adds a payment to a pending invoice with {@link InvoiceChanges#APPLY_PAYMENT_SQL}, the statement the
+     * reactive variant runs as well. Returns 0 if the invoice does not exist or is not pending.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(nativeQuery = true, value = InvoiceChanges.APPLY_PAYMENT_SQL)
+    int applyPayment(@Param("id") Long id, @Param("amount") double amount);
+
+    /**
+     * Adds already accepted payments to a pending invoice. Used when folding the payment ledger, followed
+     * by {@link #settlePaid}. Returns 0 if the invoice is no longer pending, e.g. because an overdue sweep
+     * closed it after the payments were accepted.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Invoice i set i.paidAmount = i.paidAmount + :amount, i.version = i.version + 1"
+            + " where i.id = :id and i.status = :pending")
+    int addPaidAmount(@Param("id") Long id, @Param("amount") double amount, @Param("pending") String pending);
+
+    /**
+     * Marks the given invoices as paid where they are pending and fully paid.
+     *
+     * @return the number of invoices that became paid.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Invoice i set i.status = :paid, i.version = i.version + 1"
+            + " where i.id in :ids and i.status = :pending and i.paidAmount >= i.amount")
+    int settlePaid(@Param("ids") Collection<Long> ids, @Param("pending") String pending, @Param("paid") String paid);
+
+    /**
+     * Returns the outstanding amount and the number of invoices with the given status.
+     */
+    @Query("select coalesce(sum(i.amount - i.paidAmount), 0), count(i) from Invoice i where i.status = :status")
+    List<Object[]> sumOutstanding(@Param("status") String status);
+
+    /**
+     * Returns the invoice count, amount and paid amount per status and due date, as
+     * [status, dueDate, count, amount, paidAmount] rows. Served from the covering
+     * (status, due_date, amount, paid_amount) index without reading the table, but still a scan of every
+     * index entry, so it takes time proportional to the number of invoices.
+     */
+    @Query("select i.status, i.dueDate, count(i), coalesce(sum(i.amount), 0), coalesce(sum(i.paidAmount), 0)"
+            + " from Invoice i group by i.status, i.dueDate")
+    List<Object[]> sumByStatusAndDueDate();
+
+    /**
+     * Locks invoices with one of the given statuses that fell due before the cutoff and have no ledger
+     * payments waiting to be folded, for moving them to the archive. Archivers on other instances skip
+     * the locked rows, as the lock timeout of -2 stands for SKIP LOCKED. There is no ordering, so MySQL
+     * stops reading the (status, due_date) index at the limit.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = AvailableSettings.JAKARTA_LOCK_TIMEOUT, value = "-2"))
+    @Query("select i from Invoice i where i.status in :statuses and i.dueDate < :cutoff"
+            + " and not exists (select p.id from Payment p where p.invoiceId = i.id and p.folded = false)")
+    List<Invoice> findArchivable(@Param("statuses") Collection<String> statuses, @Param("cutoff") LocalDate cutoff,
+                                 Limit limit);
+
+    /**
+     * Deletes the given invoices where they still have one of the given statuses.
+     *
+     * @return the number of invoices deleted.
+     */
+    @Modifying
+    @Query("delete from Invoice i where i.id in :ids and i.status in :statuses")
+    int deleteWithStatus(@Param("ids") Collection<Long> ids, @Param("statuses") Collection<String> statuses);
 }
@@ -0,0 +1,36 @@
+package com.project.invoicesystem.repository;
+
+import com.project.invoicesystem.dto.InvoiceFilter;
+import com.project.invoicesystem.entity.Invoice;
+import org.springframework.data.jpa.domain.Specification;
+
+public final class InvoiceSpecifications {
+
+    private InvoiceSpecifications() {
+    }
+
+    /**
+     * Builds a keyset predicate selecting invoices after the given id that match the filter.
+     * Only the criteria that are set are added, so the generated SQL stays index friendly.
+     *
+     * @param after the last invoice ID already seen by the caller.
+     * @param filter the optional status and due-date criteria.
+     * @return the combined specification.
+     */
+    public static Specification<Invoice> page(long after, InvoiceFilter filter) {
+        Specification<Invoice> spec = (root, query, cb) -> cb.greaterThan(root.get("id"), after);
+        if (filter == null) {
+            return spec;
+        }
+        if (filter.getStatus() != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("status"), filter.getStatus()));
+        }
+        if (filter.getDueFrom() != null) {
+            spec = spec.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("dueDate"), filter.getDueFrom()));
+        }
+        if (filter.getDueTo() != null) {
+            spec = spec.and((root, query, cb) -> cb.lessThanOrEqualTo(root.get("dueDate"), filter.getDueTo()));
+        }
+        return spec;
+    }
+}
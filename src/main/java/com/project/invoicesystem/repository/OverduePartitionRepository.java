@@ -0,0 +1,72 @@
+package com.project.invoicesystem.repository;
+
+import com.project.invoicesystem.entity.OverduePartition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface OverduePartitionRepository extends JpaRepository<OverduePartition, String> {
+
+    List<OverduePartition> findByRunKeyOrderByPartitionIndex(String runKey);
+
+    List<OverduePartition> findByRunKeyAndDoneFalseOrderByPartitionIndex(String runKey);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OverduePartition p where p.runKey = :runKey and p.done = true")
+    int deleteByRunKeyAndDoneTrue(@Param("runKey") String runKey);
+
+    /**
+     * Returns the keys of runs whose key sorts before the given one. Run keys start with the run's date, so
+     * passing a date returns the runs started on earlier days.
+     */
+    @Query("select distinct p.runKey from OverduePartition p where p.runKey < :before")
+    List<String> findRunKeysBefore(@Param("before") String before);
+
+    boolean existsByRunKeyAndDoneFalseAndLeaseExpiresAtAfter(String runKey, Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OverduePartition p where p.runKey = :runKey")
+    int deleteByRunKey(@Param("runKey") String runKey);
+
+    /**
+     * Claims a partition for the given owner if it is unfinished and either unowned or its lease has expired.
+     * Returns 1 if the claim succeeded.
+     */
+    @Transactional
+    @Modifying
+    @Query("update OverduePartition p set p.owner = :owner, p.leaseExpiresAt = :expiresAt"
+            + " where p.id = :id and p.done = false"
+            + " and (p.owner is null or p.leaseExpiresAt < :now)")
+    int claim(@Param("id") String id, @Param("owner") String owner,
+              @Param("expiresAt") Instant expiresAt, @Param("now") Instant now);
+
+    /**
+     * Records the progress of a processed chunk and renews the lease. Returns 0 if the caller no longer
+     * owns the partition, in which case the chunk must be rolled back.
+     */
+    @Modifying
+    @Query("update OverduePartition p set p.checkpoint = :checkpoint, p.leaseExpiresAt = :expiresAt,"
+            + " p.scanned = p.scanned + :scanned, p.paid = p.paid + :paid, p.voided = p.voided + :voided"
+            + " where p.id = :id and p.owner = :owner")
+    int checkpoint(@Param("id") String id, @Param("owner") String owner, @Param("checkpoint") long checkpoint,
+                   @Param("expiresAt") Instant expiresAt, @Param("scanned") long scanned,
+                   @Param("paid") long paid, @Param("voided") long voided);
+
+    @Transactional
+    @Modifying
+    @Query("update OverduePartition p set p.done = true, p.owner = null, p.leaseExpiresAt = null"
+            + " where p.id = :id and p.owner = :owner")
+    int complete(@Param("id") String id, @Param("owner") String owner);
+
+    @Transactional
+    @Modifying
+    @Query("update OverduePartition p set p.owner = null, p.leaseExpiresAt = null where p.id = :id and p.owner = :owner")
+    int release(@Param("id") String id, @Param("owner") String owner);
+}
@@ -0,0 +1,47 @@
+package com.project.invoicesystem.repository;
+
+import com.project.invoicesystem.entity.OverdueSchedule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+public interface OverdueScheduleRepository extends JpaRepository<OverdueSchedule, String> {
+
+    /**
+     * Takes the schedule's lock for the given owner if it is free or has expired. Returns 1 if the lock
+     * was taken.
+     */
+    @Transactional
+    @Modifying
+    @Query("update OverdueSchedule s set s.owner = :owner, s.lockExpiresAt = :expiresAt"
+            + " where s.id = :id and (s.owner is null or s.lockExpiresAt < :now)")
+    int lock(@Param("id") String id, @Param("owner") String owner,
+             @Param("expiresAt") Instant expiresAt, @Param("now") Instant now);
+
+    /**
+     * Extends the lock if the given owner still holds it. Returns 0 if another instance has taken it over.
+     */
+    @Transactional
+    @Modifying
+    @Query("update OverdueSchedule s set s.lockExpiresAt = :expiresAt where s.id = :id and s.owner = :owner")
+    int renew(@Param("id") String id, @Param("owner") String owner, @Param("expiresAt") Instant expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("update OverdueSchedule s set s.owner = null, s.lockExpiresAt = null where s.id = :id and s.owner = :owner")
+    int unlock(@Param("id") String id, @Param("owner") String owner);
+
+    /**
+     * Moves the watermark forward; it never moves back, even if a slower sweep finishes last.
+     */
+    @Transactional
+    @Modifying
+    @Query("update OverdueSchedule s set s.watermark = :watermark"
+            + " where s.id = :id and (s.watermark is null or s.watermark < :watermark)")
+    int advanceWatermark(@Param("id") String id, @Param("watermark") LocalDate watermark);
+}
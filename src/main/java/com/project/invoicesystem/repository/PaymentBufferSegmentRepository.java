@@ -0,0 +1,7 @@
+package com.project.invoicesystem.repository;
+
+import com.project.invoicesystem.entity.PaymentBufferSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface PaymentBufferSegmentRepository extends JpaRepository<PaymentBufferSegment, String> {
+}
@@ -0,0 +1,41 @@
+package com.project.invoicesystem.repository;
+
+import com.project.invoicesystem.entity.Payment;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface PaymentRepository extends JpaRepository<Payment, Long> {
+
+    List<Payment> findByInvoiceIdAndIdGreaterThanOrderById(Long invoiceId, Long after, Limit limit);
+
+    /**
+     * Locks the oldest payments that have not yet been added to their invoices, so that concurrent
+     * folds on other instances skip over them instead of applying them twice. A lock timeout of -2 is
+     * rendered as SKIP LOCKED.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = AvailableSettings.JAKARTA_LOCK_TIMEOUT, value = "-2"))
+    List<Payment> findByFoldedFalseOrderById(Limit limit);
+
+    @Query("select coalesce(sum(p.amount), 0) from Payment p where p.invoiceId = :invoiceId and p.folded = false")
+    double sumUnfolded(@Param("invoiceId") Long invoiceId);
+
+    @Modifying
+    @Query("update Payment p set p.folded = true where p.id in :ids")
+    int markFolded(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update Payment p set p.folded = true, p.rejected = true where p.id in :ids")
+    int markRejected(@Param("ids") Collection<Long> ids);
+}
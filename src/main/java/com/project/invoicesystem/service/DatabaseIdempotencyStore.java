@@ -0,0 +1,104 @@
+package com.project.invoicesystem.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.entity.IdempotencyKey;
+import com.project.invoicesystem.repository.IdempotencyKeyRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Dedupe store shared by all instances through the {@code idempotency_key} table. A key is reserved by
+ * inserting its row in the request's transaction, and the response is written to it in the same
+ * transaction, so the row only becomes visible together with the request's changes. A concurrent request
+ * with the same key waits for that transaction on the primary key and then either replays its response
+ * or, if it rolled back, runs itself.
+ */
+@Component
+@ConditionalOnProperty(name = "invoice.idempotency.store", havingValue = "database")
+public class DatabaseIdempotencyStore implements IdempotencyStore {
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Override
+    public Optional<IdempotencyRecord> reserve(String key, String fingerprint) {
+        Instant now = Instant.now();
+        idempotencyKeyRepository.deleteIfExpired(key, now);
+        Optional<IdempotencyKey> existing = idempotencyKeyRepository.findById(key);
+        if (existing.isPresent()) {
+            return existing.map(this::toRecord);
+        }
+        try {
+            // Expires with the request's transaction; completing the request sets the real expiry.
+            idempotencyKeyRepository.saveAndFlush(new IdempotencyKey(key, fingerprint, now));
+            return Optional.empty();
+        } catch (DataIntegrityViolationException e) {
+            // Another request committed the key meanwhile. This transaction's session is unusable now, so
+            // its row is read in a new one. If it is gone again, the client is told to retry.
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            return Optional.of(transactionTemplate.execute(status -> idempotencyKeyRepository.findById(key)
+                    .map(this::toRecord)
+                    .orElseGet(() -> new IdempotencyRecord(fingerprint, null))));
+        }
+    }
+
+    @Override
+    public void complete(String key, InvoiceResponseDTO response, Duration ttl) {
+        try {
+            idempotencyKeyRepository.complete(key, objectMapper.writeValueAsString(response), Instant.now().plus(ttl));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Nothing to do: the reservation was rolled back with the request's transaction.
+     */
+    @Override
+    public void release(String key) {
+    }
+
+    @Override
+    public void remove(String key) {
+        idempotencyKeyRepository.deleteById(key);
+    }
+
+    /**
+     * Purges expired keys.
+     */
+    @Scheduled(fixedDelayString = "${invoice.idempotency.purge-interval:10m}")
+    public void purgeExpired() {
+        idempotencyKeyRepository.deleteExpired(Instant.now());
+    }
+
+    private IdempotencyRecord toRecord(IdempotencyKey key) {
+        if (key.getResponse() == null) {
+            return new IdempotencyRecord(key.getFingerprint(), null);
+        }
+        try {
+            return new IdempotencyRecord(key.getFingerprint(), objectMapper.readValue(key.getResponse(), InvoiceResponseDTO.class));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.exception.IdempotencyConflictException;
+
+/**
+ * How idempotency keys are scoped and requests fingerprinted, and when a stored response is replayed, shared
+ * by {@link IdempotencyService} and the reactive variant of the API so a key means the same in both.
+ */
+public final class IdempotencyKeys {
+
+    public static final int MAX_KEY_LENGTH = 200;
+    public static final String INVOICE_SCOPE = "invoice";
+
+    private IdempotencyKeys() {
+    }
+
+    /**
+     * @param invoiceId the ID of the paid invoice.
+     * @return the scope of the keys of payments towards the invoice.
+     */
+    public static String paymentScope(long invoiceId) {
+        return "payment:" + invoiceId;
+    }
+
+    /**
+     * @param request the request to create an invoice.
+     * @return the fingerprint of the request.
+     */
+    public static String fingerprint(InvoiceRequestDTO request) {
+        return request.getAmount() + "|" + request.getDueDate();
+    }
+
+    /**
+     * @param amount the amount of a payment.
+     * @return the fingerprint of the payment request.
+     */
+    public static String fingerprint(double amount) {
+        return String.valueOf(amount);
+    }
+
+    /**
+     * @param scope what the key applies to.
+     * @param key the client's idempotency key.
+     * @return the key as stored.
+     * @throws IllegalArgumentException if the key is empty or too long.
+     */
+    public static String scopedKey(String scope, String key) {
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        return scope + ":" + key;
+    }
+
+    /**
+     * @param record what the store holds for a key that could not be reserved.
+     * @param fingerprint identifies the retried request.
+     * @return the stored response.
+     * @throws IdempotencyConflictException if the key was used for a different request or that request is still running.
+     */
+    public static InvoiceResponseDTO replay(IdempotencyRecord record, String fingerprint) {
+        if (!record.getFingerprint().equals(fingerprint)) {
+            throw new IdempotencyConflictException("Idempotency key was already used for a different request");
+        }
+        if (!record.isCompleted()) {
+            throw new IdempotencyConflictException("A request with this idempotency key is in progress");
+        }
+        return record.getResponse();
+    }
+}
@@ -0,0 +1,23 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * What a dedupe store holds for an idempotency key.
+ */
+@Data
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    /** Identifies the request the key was first used with. */
+    private String fingerprint;
+
+    /** The response of the completed request, or null while it is in progress. */
+    private InvoiceResponseDTO response;
+
+    public boolean isCompleted() {
+        return response != null;
+    }
+}
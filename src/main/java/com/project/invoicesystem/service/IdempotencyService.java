@@ -0,0 +1,112 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per idempotency key and replays its response to retries. The key is
+ * reserved, the request runs and its response is stored in one transaction, so a request whose changes
+ * committed always has its response stored, and a request that failed or was cut short left nothing
+ * behind that would block its retry. Work the request defers until after the commit can still fail; the
+ * stored response is then removed again so that the failure is not replayed as a success. Keys are scoped and
+ * replayed by the rules of {@link IdempotencyKeys}.
+ */
+@Service
+public class IdempotencyService {
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${invoice.idempotency.ttl:24h}")
+    private Duration ttl = Duration.ofHours(24);
+
+    @Value("${invoice.payment.max-attempts:10}")
+    private int maxAttempts = 10;
+
+    /**
+     * Runs the operation unless a request with the same key already completed, in which case its stored
+     * response is returned without running the operation again. Without a key the operation simply runs.
+     * With a key, the operation joins the transaction that stores its response; a concurrency failure
+     * rolls back both and the whole request is retried.
+     *
+     * @param scope what the key applies to, e.g. the payments of one invoice.
+     * @param key the client's idempotency key, or null.
+     * @param fingerprint identifies the request, so a key cannot be reused for a different one.
+     * @param operation the operation to run.
+     * @return the operation's response, or the stored one.
+     * @throws IllegalArgumentException if the key is too long.
+     * @throws IdempotencyConflictException if the key was used for a different request or that request is still running.
+     */
+    public InvoiceResponseDTO execute(String scope, String key, String fingerprint, Supplier<InvoiceResponseDTO> operation) {
+        if (key == null) {
+            return operation.get();
+        }
+        String scopedKey = IdempotencyKeys.scopedKey(scope, key);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        // A concurrency failure inside the operation is retried there, within this transaction, which can
+        // then only roll back; that surfaces as an unexpected rollback and is retried here as a whole.
+        RetryTemplate retryTemplate = RetryTemplate.builder()
+                .maxAttempts(maxAttempts)
+                .retryOn(ConcurrencyFailureException.class)
+                .retryOn(UnexpectedRollbackException.class)
+                .exponentialBackoff(5, 2, 200, true)
+                .build();
+        return retryTemplate.execute(context -> {
+            AtomicBoolean reserved = new AtomicBoolean();
+            AtomicBoolean committed = new AtomicBoolean();
+            try {
+                return transactionTemplate.execute(status -> {
+                    Optional<IdempotencyRecord> existing = idempotencyStore.reserve(scopedKey, fingerprint);
+                    if (existing.isPresent()) {
+                        // Nothing of this request may commit; a failed reservation can leave the transaction unusable.
+                        status.setRollbackOnly();
+                        return IdempotencyKeys.replay(existing.get(), fingerprint);
+                    }
+                    reserved.set(true);
+                    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                            @Override
+                            public void afterCompletion(int completion) {
+                                committed.set(completion == STATUS_COMMITTED);
+                            }
+                        });
+                    }
+                    return run(scopedKey, operation);
+                });
+            } catch (RuntimeException e) {
+                if (committed.get()) {
+                    idempotencyStore.remove(scopedKey);
+                } else if (reserved.get()) {
+                    idempotencyStore.release(scopedKey);
+                }
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Runs the operation for a reserved key and stores its response inside the caller's transaction.
+     */
+    private InvoiceResponseDTO run(String scopedKey, Supplier<InvoiceResponseDTO> operation) {
+        InvoiceResponseDTO response = operation.get();
+        idempotencyStore.complete(scopedKey, response, ttl);
+        return response;
+    }
+}
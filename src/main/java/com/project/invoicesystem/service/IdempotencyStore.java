@@ -0,0 +1,49 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Remembers the responses of requests made with an idempotency key. Selected with
+ * {@code invoice.idempotency.store}: {@code memory} for a single node, {@code database} for clusters.
+ * Reservations and responses are written in the transaction of the request they belong to, where the
+ * store supports it, and a reservation holds until its request completes or fails; it never expires
+ * while the request is running.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Reserves a key for a request that is about to run, unless the key is already known.
+     *
+     * @param key the scoped idempotency key.
+     * @param fingerprint identifies the request.
+     * @return empty if the key was reserved for this request, otherwise the existing record.
+     */
+    Optional<IdempotencyRecord> reserve(String key, String fingerprint);
+
+    /**
+     * Stores the response of a reserved request. It is replayed once the request's transaction commits.
+     *
+     * @param key the scoped idempotency key.
+     * @param response the response to replay.
+     * @param ttl how long the response is replayed.
+     */
+    void complete(String key, InvoiceResponseDTO response, Duration ttl);
+
+    /**
+     * Forgets a reservation whose request failed or rolled back, so that it can be retried.
+     *
+     * @param key the scoped idempotency key.
+     */
+    void release(String key);
+
+    /**
+     * Forgets a key whose request committed but then failed, e.g. because a payment taken into the write-behind
+     * buffer could not be written to its log after the commit, so that the failure is not replayed as a success.
+     *
+     * @param key the scoped idempotency key.
+     */
+    void remove(String key);
+}
@@ -0,0 +1,81 @@
+package com.project.invoicesystem.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded, node-local dedupe store. Completed entries expire after their TTL and are evicted beyond the
+ * maximum size; reservations of running requests are neither expired nor evicted. A response is stored
+ * once the request's transaction has committed.
+ */
+@Component
+@ConditionalOnProperty(name = "invoice.idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Cache<String, Entry> entries;
+
+    public InMemoryIdempotencyStore(@Value("${invoice.idempotency.maximum-size:100000}") long maximumSize) {
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maximumSize)
+                .weigher((String key, Entry entry) -> entry.record.isCompleted() ? 1 : 0)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return entry.ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return entry.ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> reserve(String key, String fingerprint) {
+        Entry existing = entries.asMap().putIfAbsent(key, new Entry(new IdempotencyRecord(fingerprint, null), null));
+        return existing == null ? Optional.empty() : Optional.of(existing.record);
+    }
+
+    @Override
+    public void complete(String key, InvoiceResponseDTO response, Duration ttl) {
+        AfterCommit.run(() -> entries.asMap().computeIfPresent(key, (k, entry) ->
+                new Entry(new IdempotencyRecord(entry.record.getFingerprint(), response), ttl)));
+    }
+
+    @Override
+    public void release(String key) {
+        entries.invalidate(key);
+    }
+
+    @Override
+    public void remove(String key) {
+        entries.invalidate(key);
+    }
+
+    private static final class Entry {
+
+        private final IdempotencyRecord record;
+        /** How long a completed entry is kept; a reservation is kept until it completes or is released. */
+        private final long ttlNanos;
+
+        Entry(IdempotencyRecord record, Duration ttl) {
+            this.record = record;
+            this.ttlNanos = ttl == null ? Long.MAX_VALUE : ttl.toNanos();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.entity.InvoiceArchive;
+import com.project.invoicesystem.entity.InvoiceArchiveTotal;
+import com.project.invoicesystem.entity.InvoiceStatusConverter;
+import com.project.invoicesystem.repository.InvoiceArchiveRepository;
+import com.project.invoicesystem.repository.InvoiceArchiveTotalRepository;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Moves paid and void invoices that fell due long ago from the invoice table to the archive, so that
+ * the invoice table and its indexes only hold the invoices that are still worked on. Each batch inserts
+ * the archived rows, adds them to the per-status archive totals and deletes them from the invoice table
+ * in one transaction. Archivers on several instances skip each other's locked invoices; if two of them
+ * still archive the same invoice, the archive's primary key rejects one batch and it is retried on the
+ * next run.
+ * <p>
+ * Scheduled runs are off unless {@code invoice.archive.enabled} is set, because listing, streaming, the
+ * change feed and export read only the invoice table and would stop returning archived invoices.
+ */
+@Component
+public class InvoiceArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoiceArchiver.class);
+    private static final List<String> SETTLED = List.of(InvoiceStatusConstants.PAID, InvoiceStatusConstants.VOID);
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private InvoiceArchiveRepository invoiceArchiveRepository;
+
+    @Autowired
+    private InvoiceArchiveTotalRepository invoiceArchiveTotalRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private InvoiceMetrics invoiceMetrics;
+
+    /** Lazy because the buffer and the folder report to the receivables view, which reads the archive. */
+    @Lazy
+    @Autowired
+    private PaymentBuffer paymentBuffer;
+
+    @Lazy
+    @Autowired
+    private PaymentLedgerFolder paymentLedgerFolder;
+
+    @Value("${invoice.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${invoice.archive.after-days:365}")
+    private int afterDays = 365;
+
+    @Value("${invoice.archive.batch-size:500}")
+    private int batchSize = 500;
+
+    /**
+     * Periodically archives all settled invoices that are old enough.
+     */
+    @Scheduled(fixedDelayString = "${invoice.archive.interval:10m}", initialDelayString = "${invoice.archive.interval:10m}")
+    public void scheduledArchive() {
+        if (enabled) {
+            archiveAll();
+        }
+    }
+
+    /**
+     * Archives paid and void invoices that fell due more than invoice.archive.after-days ago, batch by
+     * batch until none is left. Buffered and ledger payments are applied first; invoices with ledger
+     * payments taken after that stay until the next run.
+     *
+     * @return the number of invoices archived.
+     */
+    public long archiveAll() {
+        paymentBuffer.flush();
+        paymentLedgerFolder.foldAll();
+        LocalDate cutoff = LocalDate.now().minusDays(afterDays);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long total = 0;
+        Integer archived;
+        do {
+            try {
+                archived = transactionTemplate.execute(status -> archiveBatch(cutoff));
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Archive batch raced with another archiver and is retried on the next run", e);
+                break;
+            }
+            total += archived == null ? 0 : archived;
+        } while (archived != null && archived == batchSize);
+        return total;
+    }
+
+    /**
+     * Finds an archived invoice.
+     *
+     * @param id the ID of the invoice.
+     * @return the archived invoice, or empty if the invoice is not archived.
+     */
+    public Optional<InvoiceArchive> findArchived(Long id) {
+        return invoiceArchiveRepository.findById(id);
+    }
+
+    /**
+     * Returns the totals of the archived invoices in the row shape of
+     * {@link InvoiceRepository#sumByStatusAndDueDate()}, with a null due date, so that summaries can
+     * add them to the invoice table's rows.
+     */
+    public List<Object[]> sumByStatus() {
+        List<Object[]> rows = new ArrayList<>();
+        for (InvoiceArchiveTotal total : invoiceArchiveTotalRepository.findAll()) {
+            rows.add(new Object[]{InvoiceStatusConverter.fromCode(total.getStatus()), null,
+                    total.getInvoiceCount(), total.getAmount(), total.getPaidAmount()});
+        }
+        return rows;
+    }
+
+    /**
+     * Archives one batch inside the caller's transaction.
+     *
+     * @return the number of invoices archived.
+     */
+    private int archiveBatch(LocalDate cutoff) {
+        List<Invoice> invoices = invoiceRepository.findArchivable(SETTLED, cutoff, Limit.of(batchSize));
+        if (invoices.isEmpty()) {
+            return 0;
+        }
+        Instant now = Instant.now();
+        List<InvoiceArchive> archives = new ArrayList<>(invoices.size());
+        List<Long> ids = new ArrayList<>(invoices.size());
+        for (Invoice invoice : invoices) {
+            archives.add(new InvoiceArchive(invoice, now));
+            ids.add(invoice.getId());
+        }
+        invoiceArchiveRepository.saveAll(archives);
+        for (String status : SETTLED) {
+            addToTotals(status, invoices);
+        }
+        int deleted = invoiceRepository.deleteWithStatus(ids, SETTLED);
+        if (deleted != invoices.size()) {
+            throw new IllegalStateException("Archived " + invoices.size() + " invoices but deleted " + deleted);
+        }
+        invoiceMetrics.invoicesArchived(deleted);
+        return deleted;
+    }
+
+    /**
+     * Adds the batch's invoices of one status to its running totals, summing in cents so the totals match
+     * what the summary sums from the invoice table.
+     */
+    private void addToTotals(String status, List<Invoice> invoices) {
+        long count = 0;
+        long amountCents = 0;
+        long paidCents = 0;
+        for (Invoice invoice : invoices) {
+            if (status.equals(invoice.getStatus())) {
+                count++;
+                amountCents += InvoiceRules.toCents(invoice.getAmount());
+                paidCents += InvoiceRules.toCents(invoice.getPaidAmount());
+            }
+        }
+        if (count > 0) {
+            invoiceArchiveTotalRepository.add(InvoiceStatusConverter.toCode(status), count, amountCents / 100.0, paidCents / 100.0);
+        }
+    }
+}
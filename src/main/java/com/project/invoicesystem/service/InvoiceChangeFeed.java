@@ -0,0 +1,411 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.dto.InvoiceEventDTO;
+import com.project.invoicesystem.exception.TooManyStreamsException;
+import com.project.invoicesystem.mapper.InvoiceEventMapper;
+import com.project.invoicesystem.repository.InvoiceEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Serves published invoice events by feed position, either as long polls that complete as soon as
+ * there is something newer than the caller's cursor, or as server-sent event streams. Waiting
+ * consumers do not hold a request thread or a database connection; they are served from a single
+ * dispatcher thread that the relay wakes up after every published batch. The dispatcher reads new events
+ * once from the smallest waiting cursor and hands them to every consumer in memory, so the database load
+ * does not grow with the number of consumers. Events published by the relay of another instance are not
+ * announced here, so while consumers are waiting the dispatcher also checks for new events every
+ * {@code invoice.outbox.relay.interval}.
+ * <p>
+ * Each stream is written by a sender task of its own, run on a pool of {@code invoice.outbox.feed.sender-threads},
+ * so a slow client delays only its own stream while the others have a thread to spare. A stream that falls more
+ * than {@link #MAX_BATCH_SIZE} events behind stops being fed by the dispatcher and reads its backlog from the
+ * database itself until it has caught up. At most {@code invoice.outbox.feed.max-streams} streams are open at once.
+ */
+@Component
+public class InvoiceChangeFeed implements InitializingBean, DisposableBean {
+
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(InvoiceChangeFeed.class);
+
+    @Autowired
+    private InvoiceEventRepository invoiceEventRepository;
+
+    @Value("${invoice.outbox.feed.max-wait:30s}")
+    private Duration maxWait = Duration.ofSeconds(30);
+
+    @Value("${invoice.outbox.relay.interval:200ms}")
+    private Duration refreshInterval = Duration.ofMillis(200);
+
+    @Value("${invoice.outbox.feed.stream-timeout:30m}")
+    private Duration streamTimeout = Duration.ofMinutes(30);
+
+    @Value("${invoice.outbox.feed.max-streams:200}")
+    private int maxStreams = 200;
+
+    @Value("${invoice.outbox.feed.sender-threads:8}")
+    private int senderThreads = 8;
+
+    private final InvoiceEventMapper invoiceEventMapper = InvoiceEventMapper.INSTANCE;
+
+    private final ScheduledThreadPoolExecutor dispatcher = newScheduler("change-feed-");
+
+    /** Expires long polls, apart from the dispatcher so that a slow refresh does not delay them. */
+    private final ScheduledThreadPoolExecutor timer = newScheduler("change-feed-timer-");
+
+    /** Runs at most one sender task per stream; a stalled client ties up one of its threads. */
+    private ThreadPoolExecutor senders;
+
+    private final Queue<Poll> polls = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Stream> streams = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger openStreams = new AtomicInteger();
+
+    /** Incremented on every publish, so a poll can tell whether it raced with one while registering. */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Starts the senders and checking for events published by other instances.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        senders = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new CustomizableThreadFactory("change-feed-sender-"));
+        senders.allowCoreThreadTimeOut(true);
+        long interval = refreshInterval.toMillis();
+        dispatcher.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the published events after the given position without waiting.
+     *
+     * @param since the position of the last event the caller has seen, 0 to start from the beginning.
+     * @param limit the maximum number of events to return.
+     * @return the events in feed order.
+     */
+    public List<InvoiceEventDTO> getChanges(long since, int limit) {
+        return invoiceEventRepository.findByPositionGreaterThanOrderByPosition(since, Limit.of(limit)).stream()
+                .map(invoiceEventMapper::toDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the published events after the given position, waiting for new ones if there are none yet.
+     *
+     * @param since the position of the last event the caller has seen, 0 to start from the beginning.
+     * @param limit the maximum number of events to return, capped at {@link #MAX_BATCH_SIZE}.
+     * @param wait how long to wait for new events, at most {@code invoice.outbox.feed.max-wait}.
+     * @return a future completed with the events, or with an empty list when the wait expires.
+     * @throws IllegalArgumentException if the cursor, limit or wait is out of range.
+     */
+    public CompletableFuture<List<InvoiceEventDTO>> poll(long since, int limit, Duration wait) {
+        validateCursor(since);
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        if (wait.isNegative() || wait.compareTo(maxWait) > 0) {
+            throw new IllegalArgumentException("Wait must be between 0 and " + maxWait.getSeconds() + " seconds");
+        }
+        Poll poll = new Poll(since, Math.min(limit, MAX_BATCH_SIZE));
+        long seen = generation.get();
+        List<InvoiceEventDTO> changes = getChanges(poll.since, poll.limit);
+        if (!changes.isEmpty() || wait.isZero()) {
+            poll.result.complete(changes);
+            return poll.result;
+        }
+        polls.add(poll);
+        ScheduledFuture<?> timeout = timer.schedule(() -> poll.result.complete(List.of()), wait.toMillis(), TimeUnit.MILLISECONDS);
+        poll.result.whenComplete((events, error) -> {
+            timeout.cancel(false);
+            polls.remove(poll);
+        });
+        if (generation.get() != seen) {
+            dispatcher.execute(this::refresh);
+        }
+        return poll.result;
+    }
+
+    /**
+     * Opens a server-sent event stream that first replays the published events after the given position
+     * and then follows new ones. Each event carries its position as the SSE id, so a reconnecting client
+     * resumes from {@code Last-Event-ID}.
+     *
+     * @param since the position of the last event the caller has seen, 0 to start from the beginning.
+     * @return the emitter streaming the events.
+     * @throws IllegalArgumentException if the cursor is negative.
+     * @throws TooManyStreamsException if {@code invoice.outbox.feed.max-streams} streams are already open.
+     */
+    public SseEmitter stream(long since) {
+        validateCursor(since);
+        if (openStreams.incrementAndGet() > maxStreams) {
+            openStreams.decrementAndGet();
+            throw new TooManyStreamsException("Too many open change streams");
+        }
+        Stream stream = new Stream(new SseEmitter(streamTimeout.toMillis()), since);
+        stream.emitter.onCompletion(() -> close(stream));
+        stream.emitter.onTimeout(stream.emitter::complete);
+        stream.emitter.onError(error -> close(stream));
+        streams.add(stream);
+        schedule(stream);
+        return stream.emitter;
+    }
+
+    /**
+     * Called by the relay after a batch of events was published.
+     */
+    public void published() {
+        generation.incrementAndGet();
+        if (polls.isEmpty() && streams.isEmpty()) {
+            return;
+        }
+        dispatcher.execute(this::refresh);
+    }
+
+    /**
+     * @return the number of sender threads currently writing to streams.
+     */
+    public int getActiveSenders() {
+        return senders.getActiveCount();
+    }
+
+    /**
+     * @return the number of consumers currently waiting for events.
+     */
+    public int getConsumers() {
+        return polls.size() + streams.size();
+    }
+
+    @Override
+    public void destroy() {
+        dispatcher.shutdownNow();
+        timer.shutdownNow();
+        senders.shutdownNow();
+        polls.forEach(poll -> poll.result.complete(List.of()));
+        streams.forEach(stream -> stream.emitter.complete());
+    }
+
+    /**
+     * Serves the waiting consumers from the dispatcher thread: reads the events after the smallest cursor
+     * among them page by page and hands each page to all of them. Does not query anything when nobody waits.
+     */
+    private void refresh() {
+        long from = Long.MAX_VALUE;
+        for (Poll poll : polls) {
+            if (!poll.result.isDone()) {
+                from = Math.min(from, poll.since);
+            }
+        }
+        for (Stream stream : streams) {
+            if (stream.live) {
+                from = Math.min(from, stream.cursor);
+            }
+        }
+        if (from == Long.MAX_VALUE) {
+            return;
+        }
+        try {
+            List<InvoiceEventDTO> changes;
+            do {
+                changes = getChanges(from, MAX_BATCH_SIZE);
+                if (changes.isEmpty()) {
+                    return;
+                }
+                for (Poll poll : polls) {
+                    deliver(poll, changes);
+                }
+                for (Stream stream : streams) {
+                    if (stream.live) {
+                        enqueue(stream, changes);
+                    }
+                }
+                from = changes.get(changes.size() - 1).getPosition();
+            } while (changes.size() == MAX_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            log.warn("Could not read the change feed", e);
+            polls.forEach(poll -> poll.result.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Completes the poll with the events of the page after its cursor, if there are any.
+     */
+    private static void deliver(Poll poll, List<InvoiceEventDTO> changes) {
+        if (poll.result.isDone()) {
+            return;
+        }
+        int first = firstAfter(changes, poll.since);
+        if (first < changes.size()) {
+            poll.result.complete(List.copyOf(changes.subList(first, Math.min(changes.size(), first + poll.limit))));
+        }
+    }
+
+    /**
+     * Queues the events of the page after the stream's cursor for its sender. Runs on the dispatcher thread.
+     */
+    private void enqueue(Stream stream, List<InvoiceEventDTO> changes) {
+        for (int i = firstAfter(changes, stream.cursor); i < changes.size(); i++) {
+            if (stream.backlog.get() >= MAX_BATCH_SIZE) {
+                // The sender reads the rest from the database once it has sent what is queued.
+                stream.live = false;
+                break;
+            }
+            stream.pending.add(changes.get(i));
+            stream.backlog.incrementAndGet();
+            stream.cursor = changes.get(i).getPosition();
+        }
+        schedule(stream);
+    }
+
+    /**
+     * Starts the stream's sender unless it is already running.
+     */
+    private void schedule(Stream stream) {
+        if (stream.sending.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> send(stream));
+            } catch (RuntimeException e) {
+                stream.sending.set(false);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Sends the queued events of a stream. A stream that is not live first catches up from the database on
+     * this thread and is then handed back to the dispatcher.
+     */
+    private void send(Stream stream) {
+        try {
+            InvoiceEventDTO change;
+            while (!stream.closed && (change = stream.pending.poll()) != null) {
+                stream.backlog.decrementAndGet();
+                send(stream, change);
+            }
+            if (!stream.closed && !stream.live) {
+                List<InvoiceEventDTO> changes;
+                do {
+                    changes = getChanges(stream.cursor, MAX_BATCH_SIZE);
+                    for (InvoiceEventDTO backlog : changes) {
+                        send(stream, backlog);
+                        stream.cursor = backlog.getPosition();
+                    }
+                } while (!stream.closed && changes.size() == MAX_BATCH_SIZE);
+                stream.live = true;
+                // Pick up whatever was published while this stream was catching up.
+                dispatcher.execute(this::refresh);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Closing change stream", e);
+            close(stream);
+            stream.emitter.completeWithError(e);
+        } finally {
+            stream.sending.set(false);
+        }
+        if (!stream.closed && (!stream.pending.isEmpty() || !stream.live)) {
+            schedule(stream);
+        }
+    }
+
+    private static void send(Stream stream, InvoiceEventDTO change) throws IOException {
+        stream.emitter.send(SseEmitter.event()
+                .id(String.valueOf(change.getPosition()))
+                .name(change.getType())
+                .data(change));
+    }
+
+    private void close(Stream stream) {
+        stream.closed = true;
+        if (streams.remove(stream)) {
+            openStreams.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the index of the first event after the given position in a page in feed order.
+     */
+    private static int firstAfter(List<InvoiceEventDTO> changes, long position) {
+        int low = 0;
+        int high = changes.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (changes.get(middle).getPosition() <= position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static void validateCursor(long since) {
+        if (since < 0) {
+            throw new IllegalArgumentException("Cursor must not be negative");
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor newScheduler(String threadNamePrefix) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory(threadNamePrefix));
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    private static final class Poll {
+
+        private final long since;
+        private final int limit;
+        private final CompletableFuture<List<InvoiceEventDTO>> result = new CompletableFuture<>();
+
+        Poll(long since, int limit) {
+            this.since = since;
+            this.limit = limit;
+        }
+    }
+
+    private static final class Stream {
+
+        private final SseEmitter emitter;
+        /** Events handed over by the dispatcher and not yet sent. */
+        private final Queue<InvoiceEventDTO> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger backlog = new AtomicInteger();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        /**
+         * Whether the dispatcher feeds this stream. While it does, only the dispatcher thread writes the cursor;
+         * otherwise only the stream's sender does.
+         */
+        private volatile boolean live;
+        /** The position of the last event queued or sent. */
+        private volatile long cursor;
+        private volatile boolean closed;
+
+        Stream(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+    }
+}
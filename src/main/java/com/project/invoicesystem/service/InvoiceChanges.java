@@ -0,0 +1,74 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.constants.InvoiceEventTypeConstants;
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.InvoiceEventDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.entity.InvoiceStatusConverter;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * How a payment changes an invoice row and which outbox events creating and paying an invoice produce,
+ * shared by {@link InvoiceService} and the reactive variant of the API so both apply payments with the same
+ * statement and publish the same events. Callers run the statement and store the events with their own data
+ * access, in the transaction of the change.
+ */
+public final class InvoiceChanges {
+
+    /**
+     * Adds {@code :amount} to the pending invoice {@code :id} in a single statement and marks it as paid once
+     * fully paid. Updates no row if the invoice does not exist or is not pending. The status is assigned before
+     * the paid amount because MySQL evaluates SET clauses left to right.
+     */
+    public static final String APPLY_PAYMENT_SQL = "update invoice set status = case when paid_amount + :amount >= amount"
+            + " then " + InvoiceStatusConverter.PAID + " else status end,"
+            + " paid_amount = paid_amount + :amount, version = version + 1"
+            + " where id = :id and status = " + InvoiceStatusConverter.PENDING;
+
+    /** The most events {@link #paymentMade} returns. */
+    public static final int MAX_PAYMENT_EVENTS = 2;
+
+    private InvoiceChanges() {
+    }
+
+    /**
+     * Checks the outcome of {@link #APPLY_PAYMENT_SQL}.
+     *
+     * @param updated the number of rows the statement updated.
+     * @param status the status of the invoice read after the statement.
+     * @throws IllegalArgumentException if the payment was not applied because the invoice is not pending.
+     */
+    public static void requireApplied(long updated, String status) {
+        if (updated == 0) {
+            InvoiceRules.requirePending(status);
+        }
+    }
+
+    /**
+     * @param invoice the newly created invoice.
+     * @return the events to write to the outbox.
+     */
+    public static List<InvoiceEventDTO> created(InvoiceResponseDTO invoice) {
+        return List.of(event(InvoiceEventTypeConstants.CREATED, invoice, null));
+    }
+
+    /**
+     * @param invoice the invoice after the payment.
+     * @param amount the amount paid.
+     * @return the events to write to the outbox: the payment and, if it settled the invoice, the transition to paid.
+     */
+    public static List<InvoiceEventDTO> paymentMade(InvoiceResponseDTO invoice, double amount) {
+        InvoiceEventDTO payment = event(InvoiceEventTypeConstants.PAYMENT, invoice, amount);
+        if (InvoiceStatusConstants.PAID.equals(invoice.getStatus())) {
+            return List.of(payment, event(InvoiceEventTypeConstants.PAID, invoice, null));
+        }
+        return List.of(payment);
+    }
+
+    private static InvoiceEventDTO event(String type, InvoiceResponseDTO invoice, Double paymentAmount) {
+        return new InvoiceEventDTO(null, type, invoice.getId(), null, paymentAmount,
+                invoice.getAmount(), invoice.getPaidAmount(), invoice.getStatus(), Instant.now());
+    }
+}
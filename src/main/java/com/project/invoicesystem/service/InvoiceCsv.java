@@ -0,0 +1,43 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * The CSV layout of invoice exports, shared by {@link InvoiceTransferService} and the reactive variant of the API.
+ */
+public final class InvoiceCsv {
+
+    public static final String HEADER = "id,amount,paid_amount,due_date,status";
+
+    private InvoiceCsv() {
+    }
+
+    /**
+     * Appends an invoice as a CSV line in the {@link #HEADER} layout, terminated by a newline.
+     *
+     * @param out the writer or buffer to append to.
+     * @param invoice the invoice.
+     */
+    public static void appendRow(Appendable out, InvoiceResponseDTO invoice) throws IOException {
+        out.append(String.valueOf(invoice.getId()))
+                .append(',')
+                .append(formatAmount(invoice.getAmount()))
+                .append(',')
+                .append(formatAmount(invoice.getPaidAmount()))
+                .append(',');
+        if (invoice.getDueDate() != null) {
+            out.append(invoice.getDueDate().toString());
+        }
+        out.append(',')
+                .append(invoice.getStatus())
+                .append('\n');
+    }
+
+    private static String formatAmount(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+}
@@ -0,0 +1,95 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.entity.InvoiceEvent;
+import com.project.invoicesystem.repository.InvoiceEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Publishes outbox events to the change feed in batches. Publishing assigns each event the next feed
+ * position, so consumers see events in the order they were published even though IDs are allocated
+ * out of commit order. Relays on several instances skip each other's locked events; if two of them
+ * race for the same positions, the unique index rejects one batch and it is retried on the next run.
+ */
+@Component
+public class InvoiceEventRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoiceEventRelay.class);
+
+    @Autowired
+    private InvoiceEventRepository invoiceEventRepository;
+
+    @Autowired
+    private InvoiceChangeFeed invoiceChangeFeed;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${invoice.outbox.relay.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${invoice.outbox.relay.batch-size:500}")
+    private int batchSize = 500;
+
+    /**
+     * Periodically publishes all pending events.
+     */
+    @Scheduled(fixedDelayString = "${invoice.outbox.relay.interval:200ms}")
+    public void scheduledRelay() {
+        if (enabled) {
+            relayAll();
+        }
+    }
+
+    /**
+     * Publishes pending events batch by batch until none is left, waking up feed consumers after
+     * every committed batch.
+     *
+     * @return the number of events published.
+     */
+    public long relayAll() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long total = 0;
+        Integer published;
+        do {
+            try {
+                published = transactionTemplate.execute(status -> relayBatch());
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Outbox batch raced with another relay and is retried on the next run", e);
+                break;
+            }
+            if (published != null && published > 0) {
+                total += published;
+                invoiceChangeFeed.published();
+            }
+        } while (published != null && published == batchSize);
+        return total;
+    }
+
+    /**
+     * Assigns feed positions to one batch of the oldest unpublished events inside the caller's transaction.
+     *
+     * @return the number of events published.
+     */
+    private int relayBatch() {
+        List<InvoiceEvent> events = invoiceEventRepository.findByPositionIsNullOrderById(Limit.of(batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        long position = invoiceEventRepository.maxPosition();
+        for (InvoiceEvent event : events) {
+            event.setPosition(++position);
+        }
+        return events.size();
+    }
+}
@@ -0,0 +1,116 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Business metrics of the invoice system: status transitions, reissued invoices, failed payments and
+ * the outstanding amount of pending invoices. Operation latencies are recorded by {@code @Timed}.
+ */
+@Component
+public class InvoiceMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Counter pendingToPaid;
+    private final Counter pendingToVoid;
+    private final Counter reissued;
+    private final Counter archived;
+
+    private volatile double outstandingAmount;
+    private volatile double pendingCount;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    public InvoiceMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.pendingToPaid = transitionCounter(InvoiceStatusConstants.PAID);
+        this.pendingToVoid = transitionCounter(InvoiceStatusConstants.VOID);
+        this.reissued = Counter.builder("invoice.reissued")
+                .description("Invoices created by overdue processing")
+                .register(meterRegistry);
+        this.archived = Counter.builder("invoice.archived")
+                .description("Settled invoices moved to the archive")
+                .register(meterRegistry);
+        Gauge.builder("invoice.outstanding.amount", this, metrics -> metrics.outstandingAmount)
+                .description("Unpaid amount of pending invoices")
+                .register(meterRegistry);
+        Gauge.builder("invoice.pending.count", this, metrics -> metrics.pendingCount)
+                .description("Number of pending invoices")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts invoices that went from pending to paid, once the current transaction commits.
+     *
+     * @param count the number of invoices.
+     */
+    public void invoicesPaid(long count) {
+        AfterCommit.run(() -> pendingToPaid.increment(count));
+    }
+
+    /**
+     * Counts invoices that went from pending to void, once the current transaction commits.
+     *
+     * @param count the number of invoices.
+     */
+    public void invoicesVoided(long count) {
+        AfterCommit.run(() -> pendingToVoid.increment(count));
+    }
+
+    /**
+     * Counts invoices reissued by overdue processing, once the current transaction commits.
+     *
+     * @param count the number of invoices.
+     */
+    public void invoicesReissued(long count) {
+        AfterCommit.run(() -> reissued.increment(count));
+    }
+
+    /**
+     * Counts invoices moved to the archive, once the current transaction commits.
+     *
+     * @param count the number of invoices.
+     */
+    public void invoicesArchived(long count) {
+        AfterCommit.run(() -> archived.increment(count));
+    }
+
+    /**
+     * Counts a payment that was rejected or failed.
+     *
+     * @param reason a short, fixed reason such as {@code not_found} or {@code not_pending}.
+     */
+    public void paymentFailed(String reason) {
+        meterRegistry.counter("invoice.payment.failures", "reason", reason).increment();
+    }
+
+    /**
+     * Refreshes the outstanding amount gauges. They are updated on a schedule rather than on every
+     * scrape because the aggregate scans all pending invoices.
+     */
+    @Scheduled(fixedDelayString = "${invoice.metrics.outstanding-refresh:30s}")
+    public void refreshOutstanding() {
+        List<Object[]> rows = invoiceRepository.sumOutstanding(InvoiceStatusConstants.PENDING);
+        if (!rows.isEmpty()) {
+            outstandingAmount = ((Number) rows.get(0)[0]).doubleValue();
+            pendingCount = ((Number) rows.get(0)[1]).doubleValue();
+        }
+    }
+
+    private Counter transitionCounter(String to) {
+        return Counter.builder("invoice.status.transitions")
+                .description("Invoice status changes")
+                .tag("from", InvoiceStatusConstants.PENDING)
+                .tag("to", to)
+                .register(meterRegistry);
+    }
+}
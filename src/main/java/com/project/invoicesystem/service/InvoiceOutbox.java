@@ -0,0 +1,96 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.constants.InvoiceEventTypeConstants;
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.entity.InvoiceEvent;
+import com.project.invoicesystem.mapper.InvoiceEventMapper;
+import com.project.invoicesystem.mapper.InvoiceMapper;
+import com.project.invoicesystem.repository.InvoiceEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes invoice change events to the outbox. Every method joins the caller's transaction and fails
+ * without one, so an event is committed if and only if the change it describes is. The events of created
+ * and paid invoices are those of {@link InvoiceChanges}, which the reactive variant writes as well.
+ */
+@Component
+@Transactional(propagation = Propagation.MANDATORY)
+public class InvoiceOutbox {
+
+    @Autowired
+    private InvoiceEventRepository invoiceEventRepository;
+
+    private final InvoiceMapper invoiceMapper = InvoiceMapper.INSTANCE;
+    private final InvoiceEventMapper invoiceEventMapper = InvoiceEventMapper.INSTANCE;
+
+    /**
+     * @param invoices the newly created invoices.
+     */
+    public void created(List<Invoice> invoices) {
+        List<InvoiceEvent> events = new ArrayList<>(invoices.size());
+        invoices.forEach(invoice -> InvoiceChanges.created(invoiceMapper.toDto(invoice))
+                .forEach(event -> events.add(invoiceEventMapper.toEntity(event))));
+        invoiceEventRepository.saveAll(events);
+    }
+
+    /**
+     * Records a payment and, if it settled the invoice, the transition to paid.
+     *
+     * @param invoice the invoice after the payment.
+     * @param amount the amount paid.
+     */
+    public void paymentMade(Invoice invoice, double amount) {
+        InvoiceChanges.paymentMade(invoiceMapper.toDto(invoice), amount)
+                .forEach(event -> invoiceEventRepository.save(invoiceEventMapper.toEntity(event)));
+    }
+
+    /**
+     * Records a payment that was accepted but could not be applied because the invoice was no longer pending.
+     *
+     * @param invoice the invoice, unchanged by the payment.
+     * @param amount the amount of the rejected payment.
+     */
+    public void paymentRejected(Invoice invoice, double amount) {
+        InvoiceEvent rejected = new InvoiceEvent(InvoiceEventTypeConstants.PAYMENT_REJECTED, invoice);
+        rejected.setPaymentAmount(amount);
+        invoiceEventRepository.save(rejected);
+    }
+
+    /**
+     * Records invoices that became paid through the payment ledger fold.
+     *
+     * @param invoices the invoices after they were settled.
+     */
+    public void settled(List<Invoice> invoices) {
+        List<InvoiceEvent> events = new ArrayList<>(invoices.size());
+        invoices.forEach(invoice -> events.add(new InvoiceEvent(InvoiceEventTypeConstants.PAID, invoice)));
+        invoiceEventRepository.saveAll(events);
+    }
+
+    /**
+     * Records overdue invoices that were closed as paid or void, followed by the invoices reissued for them.
+     *
+     * @param closed the overdue invoices after their status change.
+     * @param reissued the new invoices, saved and in the same order as the invoices they replace.
+     */
+    public void reissued(List<Invoice> closed, List<Invoice> reissued) {
+        List<InvoiceEvent> events = new ArrayList<>(closed.size() * 2);
+        for (Invoice invoice : closed) {
+            events.add(new InvoiceEvent(InvoiceStatusConstants.PAID.equals(invoice.getStatus())
+                    ? InvoiceEventTypeConstants.PAID : InvoiceEventTypeConstants.VOID, invoice));
+        }
+        for (int i = 0; i < reissued.size(); i++) {
+            InvoiceEvent event = new InvoiceEvent(InvoiceEventTypeConstants.REISSUED, reissued.get(i));
+            event.setRelatedInvoiceId(closed.get(i).getId());
+            events.add(event);
+        }
+        invoiceEventRepository.saveAll(events);
+    }
+}
@@ -0,0 +1,143 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+
+/**
+ * Invoice validation, payment and overdue rules that do not depend on how invoices are stored, shared by
+ * {@link InvoiceService} and the reactive variant of the API so both accept and reject the same requests
+ * with the same messages, and by the overdue sweep and its simulation so both close and reissue invoices
+ * the same way.
+ */
+public final class InvoiceRules {
+
+    public static final String NOT_FOUND = "Invoice not found";
+    public static final String NOT_PENDING = "Invalid or non-pending invoice";
+
+    private InvoiceRules() {
+    }
+
+    /**
+     * Validates the request to create an invoice.
+     *
+     * @param request the invoice request.
+     * @throws IllegalArgumentException if the amount is not positive or has fractions of a cent, or the due
+     * date is missing.
+     */
+    public static void validateNewInvoice(InvoiceRequestDTO request) {
+        if (request == null || !(request.getAmount() > 0)) {
+            throw new IllegalArgumentException("Invoice amount must be positive");
+        }
+        if (!isWholeCents(request.getAmount())) {
+            throw new IllegalArgumentException("Invoice amount must not have more than 2 decimal places");
+        }
+        if (request.getDueDate() == null) {
+            throw new IllegalArgumentException("Invoice due date is required");
+        }
+    }
+
+    /**
+     * Validates the amount of a payment.
+     *
+     * @param amount the amount to pay.
+     * @throws IllegalArgumentException if the amount is not positive or has fractions of a cent.
+     */
+    public static void validatePayment(double amount) {
+        if (!(amount > 0)) {
+            throw new IllegalArgumentException("Payment amount must be positive");
+        }
+        if (!isWholeCents(amount)) {
+            throw new IllegalArgumentException("Payment amount must not have more than 2 decimal places");
+        }
+    }
+
+    /**
+     * Validates that an invoice with the given status can be paid.
+     *
+     * @param status the invoice status.
+     * @throws IllegalArgumentException if the invoice is not pending.
+     */
+    public static void requirePending(String status) {
+        if (!InvoiceStatusConstants.PENDING.equals(status)) {
+            throw new IllegalArgumentException(NOT_PENDING);
+        }
+    }
+
+    /**
+     * Compares in cents, as the database does with its DECIMAL(19, 2) columns, so that payments of 0.7,
+     * 0.1, 0.1 and 0.1 pay an invoice of 1.0 here as they do in a conditional update.
+     *
+     * @param amount the invoice amount.
+     * @param paidAmount the amount paid so far.
+     * @return whether a pending invoice with these amounts becomes paid.
+     */
+    public static boolean isFullyPaid(double amount, double paidAmount) {
+        return toCents(paidAmount) >= toCents(amount);
+    }
+
+    /**
+     * Adds two amounts of money in cents, so that running totals do not drift from the sums the database
+     * computes.
+     *
+     * @param amount an amount.
+     * @param addend the amount to add; negative to subtract.
+     * @return the sum, rounded to the cent.
+     */
+    public static double addAmounts(double amount, double addend) {
+        return (toCents(amount) + toCents(addend)) / 100.0;
+    }
+
+    /**
+     * @param amount an amount of money.
+     * @return the amount in cents, rounded to the nearest cent.
+     */
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * Decides how the overdue sweep closes an invoice: partly paid invoices are closed as paid, the
+     * others as void.
+     *
+     * @param paidAmount the amount paid so far.
+     * @return whether the overdue invoice is closed as paid.
+     */
+    public static boolean closesOverdueAsPaid(double paidAmount) {
+        return paidAmount > 0;
+    }
+
+    /**
+     * Computes the amount of the invoice that replaces an overdue one: the unpaid remainder plus the late
+     * fee for invoices closed as paid, the full amount plus the late fee for voided ones.
+     *
+     * @param amount the amount of the overdue invoice.
+     * @param paidAmount the amount paid towards it.
+     * @param lateFee the late fee.
+     * @return the amount of the reissued invoice.
+     */
+    public static double reissuedAmount(double amount, double paidAmount, double lateFee) {
+        return addAmounts(closesOverdueAsPaid(paidAmount) ? addAmounts(amount, -paidAmount) : amount, lateFee);
+    }
+
+    /**
+     * Validates a requested page size and caps it at {@link InvoiceService#MAX_PAGE_SIZE}.
+     *
+     * @param limit the requested page size.
+     * @return the page size to use.
+     * @throws IllegalArgumentException if the page size is not positive.
+     */
+    public static int clampPageSize(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return Math.min(limit, InvoiceService.MAX_PAGE_SIZE);
+    }
+
+    /**
+     * @return whether the amount is stored exactly in a DECIMAL(19, 2) column, i.e. it is the double
+     * nearest to a whole number of cents.
+     */
+    private static boolean isWholeCents(double amount) {
+        return toCents(amount) / 100.0 == amount;
+    }
+}
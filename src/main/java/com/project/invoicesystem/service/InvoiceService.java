@@ -1,25 +1,87 @@
 package com.project.invoicesystem.service;
 
+import com.project.invoicesystem.config.CacheConfig;
+import com.project.invoicesystem.config.ReplicaReads;
 import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.constants.PaymentMode;
+import com.project.invoicesystem.dto.BatchItemResultDTO;
+import com.project.invoicesystem.dto.InvoiceFilter;
 import com.project.invoicesystem.dto.InvoiceRequestDTO;
 import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.dto.OverdueSummaryDTO;
+import com.project.invoicesystem.dto.PaymentResponseDTO;
 import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.entity.Payment;
 import com.project.invoicesystem.mapper.InvoiceMapper;
+import com.project.invoicesystem.mapper.PaymentMapper;
 import com.project.invoicesystem.repository.InvoiceRepository;
+import com.project.invoicesystem.repository.InvoiceSpecifications;
+import com.project.invoicesystem.repository.PaymentRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 public class InvoiceService {
 
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final Sort BY_ID = Sort.by("id");
+
     @Autowired
     private InvoiceRepository invoiceRepository;
 
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private OverdueInvoiceProcessor overdueInvoiceProcessor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private InvoiceMetrics invoiceMetrics;
+
+    @Autowired
+    private ReceivablesView receivablesView;
+
+    @Autowired
+    private InvoiceOutbox invoiceOutbox;
+
+    @Autowired
+    private InvoiceArchiver invoiceArchiver;
+
+    @Autowired
+    private PaymentBuffer paymentBuffer;
+
+    @Value("${invoice.batch.chunk-size:500}")
+    private int batchChunkSize = 500;
+
+    @Value("${invoice.payment.mode:optimistic}")
+    private PaymentMode paymentMode = PaymentMode.OPTIMISTIC;
+
     private final InvoiceMapper invoiceMapper = InvoiceMapper.INSTANCE;
+    private final PaymentMapper paymentMapper = PaymentMapper.INSTANCE;
 
     /**
      * Creates a new invoice based on the provided request data.
@@ -27,139 +89,312 @@ public class InvoiceService {
      * @param requestDTO the data for the new invoice.
      * @return the created invoice details.
      */
+    @Timed("invoice.create")
+    @CachePut(cacheNames = CacheConfig.INVOICES, key = "#result.id")
+    @Transactional
     public InvoiceResponseDTO createInvoice(InvoiceRequestDTO requestDTO) {
+        InvoiceRules.validateNewInvoice(requestDTO);
         Invoice invoice = invoiceMapper.toEntity(requestDTO);
         invoice.setStatus(InvoiceStatusConstants.PENDING);
         Invoice savedInvoice = invoiceRepository.save(invoice);
+        invoiceOutbox.created(List.of(savedInvoice));
+        receivablesView.invoiceCreated(savedInvoice);
         return invoiceMapper.toDto(savedInvoice);
     }
 
     /**
-     * Retrieves a list of all invoices in the system.
+     * Creates invoices in bulk. Requests are consumed in chunks of the JDBC batch size and each chunk is
+     * inserted in its own transaction, so the iterator may be backed by a stream of any length.
+     * Invalid requests are reported individually and do not prevent the rest of their chunk from being created.
+     *
+     * @param requests the invoices to create, in order.
+     * @return one result per request, holding either the created invoice or the reason it failed.
+     */
+    @Timed("invoice.create.batch")
+    public List<BatchItemResultDTO> createInvoices(Iterator<InvoiceRequestDTO> requests) {
+        List<BatchItemResultDTO> results = new ArrayList<>();
+        List<Invoice> chunk = new ArrayList<>(batchChunkSize);
+        List<BatchItemResultDTO> chunkResults = new ArrayList<>(batchChunkSize);
+        int index = 0;
+        while (requests.hasNext()) {
+            InvoiceRequestDTO request = requests.next();
+            BatchItemResultDTO result = new BatchItemResultDTO(index++, null, null);
+            results.add(result);
+            try {
+                InvoiceRules.validateNewInvoice(request);
+            } catch (IllegalArgumentException e) {
+                result.setError(e.getMessage());
+                continue;
+            }
+            Invoice invoice = invoiceMapper.toEntity(request);
+            invoice.setStatus(InvoiceStatusConstants.PENDING);
+            chunk.add(invoice);
+            chunkResults.add(result);
+            if (chunk.size() == batchChunkSize) {
+                saveChunk(chunk, chunkResults);
+            }
+        }
+        saveChunk(chunk, chunkResults);
+        return results;
+    }
+
+    /**
+     * Retrieves a single invoice, served from the invoice cache when possible. Invoices that are not in
+     * the invoice table are looked up in the archive. A cache miss is read from the primary even on a
+     * request that may use the replica, because the result is cached for every client.
+     *
+     * @param id the ID of the invoice.
+     * @return the invoice details.
+     * @throws IllegalArgumentException if the invoice is not found.
+     */
+    @Cacheable(cacheNames = CacheConfig.INVOICES, key = "#id")
+    @Transactional(readOnly = true)
+    public InvoiceResponseDTO getInvoice(Long id) {
+        return ReplicaReads.onPrimary(() -> invoiceRepository.findById(id)
+                .map(invoiceMapper::toDto)
+                .or(() -> invoiceArchiver.findArchived(id).map(invoiceMapper::toDto))
+                .orElseThrow(() -> new IllegalArgumentException(InvoiceRules.NOT_FOUND)));
+    }
+
+    /**
+     * Retrieves one page of invoices ordered by ID, starting after the given cursor.
      *
+     * @param after the ID of the last invoice on the previous page, or null for the first page.
+     * @param limit the maximum number of invoices to return, capped at {@link #MAX_PAGE_SIZE}.
+     * @param filter optional status and due-date criteria.
      * @return a list of invoice response DTOs.
      */
-    public List<InvoiceResponseDTO> getInvoices() {
-        return invoiceRepository.findAll().stream()
+    @Timed(value = "invoice.list", extraTags = {"mode", "page"})
+    @Transactional(readOnly = true)
+    public List<InvoiceResponseDTO> getInvoices(Long after, int limit, InvoiceFilter filter) {
+        return findPage(after == null ? 0L : after, InvoiceRules.clampPageSize(limit), filter).stream()
                 .map(invoiceMapper::toDto)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Streams every invoice matching the filter to the given sink, reading them in keyset batches
+     * so that only one batch is held in memory at a time.
+     *
+     * @param after the ID to start after, or null to start from the beginning.
+     * @param filter optional status and due-date criteria.
+     * @param sink the consumer receiving each invoice in ID order.
+     */
+    @Timed(value = "invoice.list", extraTags = {"mode", "stream"})
+    public void streamInvoices(Long after, InvoiceFilter filter, Consumer<InvoiceResponseDTO> sink) {
+        long cursor = after == null ? 0L : after;
+        List<Invoice> batch;
+        do {
+            batch = findPage(cursor, STREAM_FETCH_SIZE, filter);
+            for (Invoice invoice : batch) {
+                sink.accept(invoiceMapper.toDto(invoice));
+                cursor = invoice.getId();
+            }
+        } while (batch.size() == STREAM_FETCH_SIZE);
+    }
+
     /**
      * Pays an invoice by updating its paid amount and status if fully paid.
+     * Concurrent updates of the same invoice are detected through its version and retried.
      *
      * @param id the ID of the invoice to be paid.
      * @param amount the amount to pay towards the invoice.
      * @return the updated invoice details.
+     * @throws IllegalArgumentException if the amount is invalid, or the invoice is not found or not pending.
      */
+    @Timed("invoice.pay")
+    @Retryable(retryFor = ConcurrencyFailureException.class,
+            maxAttemptsExpression = "${invoice.payment.max-attempts:10}",
+            backoff = @Backoff(delayExpression = "${invoice.payment.retry-delay-ms:5}", maxDelay = 200, multiplier = 2, random = true))
+    @CachePut(cacheNames = CacheConfig.INVOICES, key = "#id")
+    @Transactional
     public InvoiceResponseDTO payInvoice(Long id, double amount) {
+        InvoiceRules.validatePayment(amount);
+        if (paymentMode == PaymentMode.ATOMIC) {
+            return payInvoiceAtomically(id, amount);
+        }
+        if (paymentMode == PaymentMode.LEDGER) {
+            return payInvoiceToLedger(id, amount);
+        }
+        if (paymentMode == PaymentMode.BUFFERED) {
+            return paymentBuffer.accept(id, amount, this::findInvoiceById);
+        }
         Invoice invoice = findInvoiceById(id);
-        validatePendingInvoice(invoice);
+        InvoiceRules.requirePending(invoice.getStatus());
+        double previousPaidAmount = invoice.getPaidAmount();
         updatePaidAmount(invoice, amount);
+        receivablesView.invoiceChanged(InvoiceStatusConstants.PENDING, previousPaidAmount, invoice);
+        paymentRepository.save(new Payment(id, amount, true));
+        invoiceOutbox.paymentMade(invoice, amount);
         return invoiceMapper.toDto(invoiceRepository.save(invoice));
     }
 
+    /**
+     * Retrieves the payments recorded against an invoice in the order they were made.
+     *
+     * @param id the ID of the invoice.
+     * @param after the ID of the last payment on the previous page, or null for the first page.
+     * @param limit the maximum number of payments to return, capped at {@link #MAX_PAGE_SIZE}.
+     * @return a list of payment response DTOs.
+     * @throws IllegalArgumentException if the invoice is not found.
+     */
+    @Transactional(readOnly = true)
+    public List<PaymentResponseDTO> getPayments(Long id, Long after, int limit) {
+        if (!invoiceRepository.existsById(id) && invoiceArchiver.findArchived(id).isEmpty()) {
+            throw new IllegalArgumentException(InvoiceRules.NOT_FOUND);
+        }
+        return paymentRepository.findByInvoiceIdAndIdGreaterThanOrderById(id, after == null ? 0L : after, Limit.of(InvoiceRules.clampPageSize(limit)))
+                .stream()
+                .map(paymentMapper::toDto)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Processes overdue invoices and applies a late fee if applicable.
      *
      * @param lateFee the fee to apply to overdue invoices.
      * @param overdueDays the number of days after which an invoice is considered overdue.
+     * @return the number of invoices scanned, paid, voided and reissued.
      */
-    public void processOverdueInvoices(double lateFee, int overdueDays) {
-        List<Invoice> overdueInvoices = findOverdueInvoices(overdueDays);
-        overdueInvoices.forEach(invoice -> processOverdueInvoice(invoice, lateFee));
+    public OverdueSummaryDTO processOverdueInvoices(double lateFee, int overdueDays) {
+        return overdueInvoiceProcessor.process(lateFee, overdueDays, OverdueRunListener.NONE);
     }
 
     // --- Refactored Methods ---
     /**
-     * Finds an invoice by its ID.
+     * Inserts a chunk of new invoices in one transaction and records the outcome in their results.
+     * Both lists are cleared afterwards so they can be reused for the next chunk.
      *
-     * @param id the ID of the invoice to find.
-     * @return the found invoice.
-     * @throws IllegalArgumentException if the invoice is not found.
+     * @param chunk the invoices to insert.
+     * @param chunkResults the results belonging to the invoices, in the same order.
      */
-    private Invoice findInvoiceById(Long id) {
-        return invoiceRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Invoice not found"));
+    private void saveChunk(List<Invoice> chunk, List<BatchItemResultDTO> chunkResults) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            List<Invoice> saved = insertAll(chunk);
+            for (int i = 0; i < chunkResults.size(); i++) {
+                chunkResults.get(i).setInvoice(invoiceMapper.toDto(saved.get(i)));
+            }
+        } catch (DataAccessException e) {
+            chunkResults.forEach(result -> result.setError("Invoice could not be saved"));
+        }
+        chunk.clear();
+        chunkResults.clear();
     }
 
     /**
-     * Validates that the invoice is in a pending state.
+     * Inserts new invoices with their outbox events in one batched transaction and adds them to the
+     * receivables view once it has committed.
      *
-     * @param invoice the invoice to validate.
-     * @throws IllegalArgumentException if the invoice is not pending.
+     * @param invoices the invoices to insert.
+     * @return the saved invoices, in the same order.
+     * @throws DataAccessException if the transaction fails; none of the invoices are saved then.
      */
-    private void validatePendingInvoice(Invoice invoice) {
-        if (!InvoiceStatusConstants.PENDING.equals(invoice.getStatus())) {
-            throw new IllegalArgumentException("Invalid or non-pending invoice");
-        }
+    List<Invoice> insertAll(List<Invoice> invoices) {
+        List<Invoice> saved = new TransactionTemplate(transactionManager).execute(status -> {
+            List<Invoice> inserted = invoiceRepository.saveAll(invoices);
+            invoiceOutbox.created(inserted);
+            return inserted;
+        });
+        saved.forEach(receivablesView::invoiceCreated);
+        return saved;
     }
 
     /**
-     * Updates the paid amount of an invoice and changes its status to "PAID" if fully paid.
+     * Pays an invoice with a single conditional UPDATE instead of a read and a versioned write, so
+     * concurrent payments on the same invoice wait for its row lock instead of failing and retrying. The
+     * lock is taken by the UPDATE and held until the transaction commits, i.e. also while the payment and
+     * its outbox event are inserted.
      *
-     * @param invoice the invoice to update.
+     * @param id the ID of the invoice to be paid.
      * @param amount the amount to pay towards the invoice.
+     * @return the updated invoice details.
+     * @throws IllegalArgumentException if the invoice is not found or is not pending.
      */
-    private void updatePaidAmount(Invoice invoice, double amount) {
-        invoice.setPaidAmount(invoice.getPaidAmount() + amount);
-        if (invoice.getPaidAmount() >= invoice.getAmount()) {
-            invoice.setStatus(InvoiceStatusConstants.PAID);
+    private InvoiceResponseDTO payInvoiceAtomically(Long id, double amount) {
+        int updated = invoiceRepository.applyPayment(id, amount);
+        Invoice invoice = findInvoiceById(id);
+        InvoiceChanges.requireApplied(updated, invoice.getStatus());
+        receivablesView.invoiceChanged(InvoiceStatusConstants.PENDING, InvoiceRules.addAmounts(invoice.getPaidAmount(), -amount), invoice);
+        if (InvoiceStatusConstants.PAID.equals(invoice.getStatus())) {
+            invoiceMetrics.invoicesPaid(1);
         }
+        paymentRepository.save(new Payment(id, amount, true));
+        invoiceOutbox.paymentMade(invoice, amount);
+        return invoiceMapper.toDto(invoice);
     }
 
     /**
-     * Finds invoices that are overdue based on the specified overdue days.
+     * Records a payment in the ledger without updating the invoice row. The invoice counts as paid as soon
+     * as its paid amount and the payments not folded into it yet cover its amount, although its row stays
+     * pending until the fold. The returned details include the unfolded payments.
      *
-     * @param overdueDays the number of days after which an invoice is considered overdue.
-     * @return a list of overdue invoices.
+     * @param id the ID of the invoice to be paid.
+     * @param amount the amount to pay towards the invoice.
+     * @return the invoice details as they will be once the ledger is folded.
+     * @throws IllegalArgumentException if the invoice is not found or is not pending.
      */
-    private List<Invoice> findOverdueInvoices(int overdueDays) {
-        LocalDate currentDate = LocalDate.now();
-        return invoiceRepository.findAll().stream()
-                .filter(invoice -> InvoiceStatusConstants.PENDING.equals(invoice.getStatus())
-                        && invoice.getDueDate().plusDays(overdueDays).isBefore(currentDate))
-                .collect(Collectors.toList());
+    private InvoiceResponseDTO payInvoiceToLedger(Long id, double amount) {
+        Invoice invoice = findInvoiceById(id);
+        InvoiceRules.requirePending(invoice.getStatus());
+        double projectedPaidAmount = InvoiceRules.addAmounts(invoice.getPaidAmount(), paymentRepository.sumUnfolded(id));
+        if (InvoiceRules.isFullyPaid(invoice.getAmount(), projectedPaidAmount)) {
+            throw new IllegalArgumentException(InvoiceRules.NOT_PENDING);
+        }
+        paymentRepository.save(new Payment(id, amount, false));
+        InvoiceResponseDTO response = invoiceMapper.toDto(invoice);
+        response.setPaidAmount(InvoiceRules.addAmounts(projectedPaidAmount, amount));
+        if (InvoiceRules.isFullyPaid(response.getAmount(), response.getPaidAmount())) {
+            response.setStatus(InvoiceStatusConstants.PAID);
+        }
+        // Described on a detached copy: the invoice row is only updated, and the paid event recorded, by the fold.
+        Invoice pending = new Invoice(invoice.getAmount(), invoice.getDueDate());
+        pending.setId(id);
+        pending.setPaidAmount(response.getPaidAmount());
+        invoiceOutbox.paymentMade(pending, amount);
+        return response;
     }
 
     /**
-     * Processes an individual overdue invoice by applying the appropriate late fee and updating its status.
+     * Loads the next keyset page of invoices.
      *
-     * @param invoice the overdue invoice to process.
-     * @param lateFee the late fee to apply.
+     * @param after the ID to start after.
+     * @param limit the page size.
+     * @param filter optional status and due-date criteria.
+     * @return the invoices on the page, ordered by ID.
      */
-    private void processOverdueInvoice(Invoice invoice, double lateFee) {
-        if (invoice.getPaidAmount() > 0) {
-            markAsPaidAndCreateNewInvoice(invoice, lateFee);
-        } else {
-            markAsVoidAndCreateNewInvoice(invoice, lateFee);
-        }
-        invoiceRepository.save(invoice);
+    private List<Invoice> findPage(long after, int limit, InvoiceFilter filter) {
+        return invoiceRepository.findBy(InvoiceSpecifications.page(after, filter),
+                query -> query.sortBy(BY_ID).limit(limit).all());
     }
 
     /**
-     * Marks an invoice as "PAID" and creates a new invoice with the remaining amount and late fee.
+     * Finds an invoice by its ID in the invoice table. Archived invoices are settled and can no longer
+     * change, so they are reported as not pending.
      *
-     * @param invoice the invoice to mark as paid.
-     * @param lateFee the late fee to apply to the new invoice.
+     * @param id the ID of the invoice to find.
+     * @return the found invoice.
+     * @throws IllegalArgumentException if the invoice is not found or archived.
      */
-    private void markAsPaidAndCreateNewInvoice(Invoice invoice, double lateFee) {
-        invoice.setStatus(InvoiceStatusConstants.PAID);
-        double remainingAmount = invoice.getAmount() - invoice.getPaidAmount() + lateFee;
-        Invoice newInvoice = new Invoice(remainingAmount, LocalDate.now().plusDays(30));
-        invoiceRepository.save(newInvoice);
+    private Invoice findInvoiceById(Long id) {
+        return invoiceRepository.findById(id).orElseThrow(() -> invoiceArchiver.findArchived(id).isPresent()
+                ? new IllegalArgumentException(InvoiceRules.NOT_PENDING)
+                : new IllegalArgumentException(InvoiceRules.NOT_FOUND));
     }
 
     /**
-     * Marks an invoice as "VOID" and creates a new invoice with the updated amount and late fee.
+     * Updates the paid amount of an invoice and changes its status to "PAID" if fully paid.
      *
-     * @param invoice the invoice to mark as void.
-     * @param lateFee the late fee to apply to the new invoice.
+     * @param invoice the invoice to update.
+     * @param amount the amount to pay towards the invoice.
      */
-    private void markAsVoidAndCreateNewInvoice(Invoice invoice, double lateFee) {
-        invoice.setStatus(InvoiceStatusConstants.VOID);
-        double newAmount = invoice.getAmount() + lateFee;
-        Invoice newInvoice = new Invoice(newAmount, LocalDate.now().plusDays(30));
-        invoiceRepository.save(newInvoice);
+    private void updatePaidAmount(Invoice invoice, double amount) {
+        invoice.setPaidAmount(InvoiceRules.addAmounts(invoice.getPaidAmount(), amount));
+        if (InvoiceRules.isFullyPaid(invoice.getAmount(), invoice.getPaidAmount())) {
+            invoice.setStatus(InvoiceStatusConstants.PAID);
+            invoiceMetrics.invoicesPaid(1);
+        }
     }
 }
@@ -0,0 +1,313 @@
+package com.project.invoicesystem.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.project.invoicesystem.constants.InvoiceFileFormat;
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.ImportErrorDTO;
+import com.project.invoicesystem.dto.ImportResultDTO;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.mapper.InvoiceMapper;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Exports and imports invoices as CSV or newline-delimited JSON files of any size. Both directions
+ * stream: exports read from a forward-only cursor and imports insert fixed-size chunks, so memory use
+ * does not depend on the number of rows.
+ */
+@Service
+public class InvoiceTransferService implements DisposableBean {
+
+    private static final String EXPORT_QUERY = "select new com.project.invoicesystem.dto.InvoiceResponseDTO("
+            + "i.id, i.amount, i.paidAmount, i.dueDate, i.status) from Invoice i order by i.id";
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Rows the driver fetches per round trip. MySQL profiles use Integer.MIN_VALUE, which makes
+     * Connector/J stream rows one at a time instead of buffering the whole result set.
+     */
+    @Value("${invoice.export.fetch-size:1000}")
+    private int exportFetchSize = 1000;
+
+    @Value("${invoice.import.chunk-size:500}")
+    private int importChunkSize = 500;
+
+    @Value("${invoice.import.max-reported-errors:1000}")
+    private int maxReportedErrors = 1000;
+
+    private final InvoiceMapper invoiceMapper = InvoiceMapper.INSTANCE;
+
+    private final ThreadPoolExecutor writers;
+
+    public InvoiceTransferService(@Value("${invoice.import.writers:4}") int writers,
+                                  @Value("${invoice.import.queue-capacity:8}") int queueCapacity) {
+        // When every writer is busy and the queue is full, the reading thread inserts the chunk itself,
+        // which stops it from reading further until the writers catch up.
+        this.writers = new ThreadPoolExecutor(writers, writers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("invoice-import-"),
+                (task, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("Invoice import writers are shut down");
+                    }
+                    task.run();
+                });
+    }
+
+    /**
+     * Writes all invoices in ID order to the given stream, which is closed afterwards. Rows are
+     * projected straight into DTOs, so they are never held by the persistence context.
+     *
+     * @param format the file format to write.
+     * @param out the stream to write to.
+     * @return the number of invoices written.
+     * @throws IOException if the stream cannot be written, for example because the client went away.
+     */
+    @Timed("invoice.export")
+    @Transactional(readOnly = true)
+    public long exportInvoices(InvoiceFileFormat format, OutputStream out) throws IOException {
+        long count = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), IO_BUFFER_SIZE);
+             Stream<InvoiceResponseDTO> invoices = entityManager.createQuery(EXPORT_QUERY, InvoiceResponseDTO.class)
+                     .setHint(HibernateHints.HINT_FETCH_SIZE, exportFetchSize)
+                     .setHint(HibernateHints.HINT_READ_ONLY, true)
+                     .getResultStream()) {
+            Iterator<InvoiceResponseDTO> rows = invoices.iterator();
+            if (format == InvoiceFileFormat.CSV) {
+                writer.write(InvoiceCsv.HEADER);
+                writer.write('\n');
+                while (rows.hasNext()) {
+                    InvoiceCsv.appendRow(writer, rows.next());
+                    count++;
+                }
+            } else {
+                SequenceWriter json = objectMapper.writer()
+                        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                        .withRootValueSeparator("\n")
+                        .writeValues(writer);
+                while (rows.hasNext()) {
+                    json.write(rows.next());
+                    count++;
+                }
+                json.flush();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Creates invoices from a CSV or newline-delimited JSON file. Lines are parsed and validated as they
+     * are read and inserted in chunks of {@code invoice.import.chunk-size}, each in its own transaction,
+     * by a bounded pool of writers. Lines that cannot be parsed, fail validation or belong to a chunk that
+     * could not be saved are reported by line number; the other lines are imported regardless.
+     * <p>
+     * CSV files must start with a header naming the {@code amount} and {@code due_date} columns; other
+     * columns, such as those written by {@link #exportInvoices}, are ignored.
+     *
+     * @param format the file format to read.
+     * @param in the file contents.
+     * @return the number of imported and failed lines, with the first failures.
+     * @throws IOException if the stream cannot be read. Chunks inserted before the failure stay committed.
+     * @throws IllegalArgumentException if the CSV header lacks a required column.
+     */
+    @Timed("invoice.import")
+    public ImportResultDTO importInvoices(InvoiceFileFormat format, InputStream in) throws IOException {
+        ImportProgress progress = new ImportProgress(maxReportedErrors);
+        Phaser pending = new Phaser(1);
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), IO_BUFFER_SIZE);
+            Function<String, InvoiceRequestDTO> parser = null;
+            if (format == InvoiceFileFormat.NDJSON) {
+                parser = jsonParser();
+            }
+            List<Invoice> chunk = new ArrayList<>(importChunkSize);
+            List<Long> chunkLines = new ArrayList<>(importChunkSize);
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (parser == null) {
+                    parser = csvParser(line);
+                    continue;
+                }
+                try {
+                    InvoiceRequestDTO request = parser.apply(line);
+                    InvoiceRules.validateNewInvoice(request);
+                    Invoice invoice = invoiceMapper.toEntity(request);
+                    invoice.setStatus(InvoiceStatusConstants.PENDING);
+                    chunk.add(invoice);
+                    chunkLines.add(lineNumber);
+                } catch (IllegalArgumentException e) {
+                    progress.failed(lineNumber, e.getMessage());
+                }
+                if (chunk.size() == importChunkSize) {
+                    submitChunk(chunk, chunkLines, progress, pending);
+                    chunk = new ArrayList<>(importChunkSize);
+                    chunkLines = new ArrayList<>(importChunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                submitChunk(chunk, chunkLines, progress, pending);
+            }
+        } finally {
+            pending.arriveAndAwaitAdvance();
+        }
+        return progress.toDto();
+    }
+
+    @Override
+    public void destroy() {
+        writers.shutdownNow();
+    }
+
+    /**
+     * Hands a chunk to the writers; the calling thread inserts it itself when they are all busy.
+     */
+    private void submitChunk(List<Invoice> chunk, List<Long> lines, ImportProgress progress, Phaser pending) {
+        pending.register();
+        try {
+            writers.execute(() -> {
+                try {
+                    invoiceService.insertAll(chunk);
+                    progress.imported(chunk.size());
+                } catch (DataAccessException e) {
+                    lines.forEach(line -> progress.failed(line, "Invoice could not be saved"));
+                } finally {
+                    pending.arriveAndDeregister();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.arriveAndDeregister();
+            throw e;
+        }
+    }
+
+    private Function<String, InvoiceRequestDTO> jsonParser() {
+        ObjectReader reader = objectMapper.readerFor(InvoiceRequestDTO.class);
+        return line -> {
+            try {
+                return reader.readValue(line);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Malformed invoice request: " + e.getOriginalMessage());
+            }
+        };
+    }
+
+    /**
+     * Builds a parser for the rows of a CSV file from its header line.
+     */
+    private Function<String, InvoiceRequestDTO> csvParser(String header) {
+        List<String> columns = Arrays.stream(header.replace("\uFEFF", "").split(",", -1))
+                .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                .toList();
+        int amountIndex = columns.indexOf("amount");
+        int dueDateIndex = columns.indexOf("due_date");
+        if (amountIndex < 0 || dueDateIndex < 0) {
+            throw new IllegalArgumentException("CSV header must name the amount and due_date columns");
+        }
+        return line -> {
+            String[] values = line.split(",", -1);
+            if (values.length != columns.size()) {
+                throw new IllegalArgumentException("Expected " + columns.size() + " columns but found " + values.length);
+            }
+            InvoiceRequestDTO request = new InvoiceRequestDTO();
+            String amount = values[amountIndex].trim();
+            try {
+                request.setAmount(Double.parseDouble(amount));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid amount: " + amount);
+            }
+            String dueDate = values[dueDateIndex].trim();
+            if (!dueDate.isEmpty()) {
+                try {
+                    request.setDueDate(LocalDate.parse(dueDate));
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException("Invalid due_date: " + dueDate);
+                }
+            }
+            return request;
+        };
+    }
+
+    /**
+     * Counts of an import in progress, updated by the reading thread and the writers.
+     */
+    private static final class ImportProgress {
+
+        private final int maxReportedErrors;
+        private final List<ImportErrorDTO> errors = new ArrayList<>();
+        private long imported;
+        private long failed;
+
+        ImportProgress(int maxReportedErrors) {
+            this.maxReportedErrors = maxReportedErrors;
+        }
+
+        synchronized void imported(int count) {
+            imported += count;
+        }
+
+        synchronized void failed(long line, String error) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ImportErrorDTO(line, error));
+            }
+        }
+
+        synchronized ImportResultDTO toDto() {
+            List<ImportErrorDTO> sorted = new ArrayList<>(errors);
+            sorted.sort((a, b) -> Long.compare(a.getLine(), b.getLine()));
+            return new ImportResultDTO(imported, failed, sorted);
+        }
+    }
+}
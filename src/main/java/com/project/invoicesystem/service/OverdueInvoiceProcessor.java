@@ -0,0 +1,278 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.config.CacheConfig;
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.OverdueSummaryDTO;
+import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.entity.OverduePartition;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+public class OverdueInvoiceProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueInvoiceProcessor.class);
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private OverduePartitionService partitionService;
+
+    @Autowired
+    private OverdueWorkerPool workerPool;
+
+    @Autowired
+    private PaymentLedgerFolder paymentLedgerFolder;
+
+    @Autowired
+    private PaymentBuffer paymentBuffer;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private InvoiceMetrics invoiceMetrics;
+
+    @Autowired
+    private ReceivablesView receivablesView;
+
+    @Autowired
+    private InvoiceOutbox invoiceOutbox;
+
+    @Value("${invoice.overdue.chunk-size:500}")
+    private int chunkSize = 500;
+
+    @Value("${invoice.overdue.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    /**
+     * Processes all pending invoices that are more than the given number of days overdue.
+     * The candidates' ID range is split into partitions which the worker pool claims and processes
+     * concurrently. Other instances running the same sweep claim partitions from the same table, and
+     * every chunk commits its partition checkpoint with the invoice updates, so a crashed run resumes
+     * where it stopped.
+     *
+     * @param lateFee the fee to apply to overdue invoices.
+     * @param overdueDays the number of days after which an invoice is considered overdue.
+     * @param listener receives the run's progress and can cancel it.
+     * @return the number of invoices scanned, paid, voided and reissued by this instance.
+     */
+    @Timed("invoice.overdue.run")
+    public OverdueSummaryDTO process(double lateFee, int overdueDays, OverdueRunListener listener) {
+        return process(lateFee, overdueDays, null, listener);
+    }
+
+    /**
+     * Processes the pending invoices that are more than the given number of days overdue and fell due
+     * on or after {@code dueFrom}, so that a run following a complete earlier one only considers the
+     * invoices that became overdue since.
+     *
+     * @param lateFee the fee to apply to overdue invoices.
+     * @param overdueDays the number of days after which an invoice is considered overdue.
+     * @param dueFrom invoices due before this date are left out, or null to consider all of them.
+     * @param listener receives the run's progress and can cancel it.
+     * @return the number of invoices scanned, paid, voided and reissued by this instance.
+     */
+    @Timed("invoice.overdue.run")
+    public OverdueSummaryDTO process(double lateFee, int overdueDays, LocalDate dueFrom, OverdueRunListener listener) {
+        LocalDate today = LocalDate.now();
+        LocalDate cutoff = today.minusDays(overdueDays);
+        String runKey = OverduePartitionService.runKey(today, lateFee, overdueDays, dueFrom);
+        OverdueSummaryDTO summary = new OverdueSummaryDTO();
+        // Apply buffered and ledger payments first so partially paid invoices are not voided for payments
+        // that were accepted but not applied yet.
+        paymentBuffer.flush();
+        paymentLedgerFolder.foldAll();
+        if (partitionService.plan(runKey, dueFrom, cutoff).isEmpty()) {
+            return summary;
+        }
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[workerPool.getWorkers()];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = workerPool.submit(() -> runWorker(runKey, dueFrom, cutoff, lateFee, today, summary, listener));
+        }
+        CompletableFuture.allOf(workers).join();
+        return summary;
+    }
+
+    /**
+     * Claims and processes partitions of the run until none is left or the run is cancelled.
+     * A partition whose chunk fails after all retries keeps its lease and checkpoint, so it is
+     * resumed by a later run once the lease expires.
+     */
+    private void runWorker(String runKey, LocalDate dueFrom, LocalDate cutoff, double lateFee, LocalDate today,
+                           OverdueSummaryDTO summary, OverdueRunListener listener) {
+        Optional<OverduePartition> partition;
+        while (!listener.isCancelled() && (partition = partitionService.claimNext(runKey)).isPresent()) {
+            try {
+                processPartition(partition.get(), dueFrom, cutoff, lateFee, today, summary, listener);
+            } catch (RuntimeException e) {
+                log.warn("Overdue partition {} failed and is left for the next run", partition.get().getId(), e);
+                synchronized (summary) {
+                    summary.setFailed(summary.getFailed() + 1);
+                }
+                listener.onFailure(e);
+            }
+        }
+    }
+
+    /**
+     * Processes a claimed partition chunk by chunk, starting from its last checkpoint. Each chunk is
+     * committed in its own transaction together with the new checkpoint.
+     *
+     * @param partition the claimed partition.
+     * @param dueFrom invoices due before this date are left out, or null.
+     * @param cutoff invoices due strictly before this date are overdue.
+     * @param lateFee the late fee to apply.
+     * @param today the date the run started.
+     * @param summary the summary shared by the run's workers.
+     * @param listener receives the run's progress and can cancel it.
+     */
+    private void processPartition(OverduePartition partition, LocalDate dueFrom, LocalDate cutoff, double lateFee,
+                                  LocalDate today, OverdueSummaryDTO summary, OverdueRunListener listener) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        RetryTemplate retryTemplate = RetryTemplate.builder()
+                .maxAttempts(maxAttempts)
+                .retryOn(ConcurrencyFailureException.class)
+                .exponentialBackoff(10, 2, 500, true)
+                .build();
+        long after = partition.getCheckpoint();
+        while (true) {
+            if (listener.isCancelled()) {
+                partitionService.release(partition);
+                return;
+            }
+            long from = after;
+            // A payment committed while the chunk was open makes its batched update fail on the version check;
+            // the whole chunk then rolls back and is re-read, so the invoice is evaluated with its latest state.
+            List<Invoice> chunk = retryTemplate.execute(context -> transactionTemplate.execute(status -> {
+                List<Invoice> processed = processChunk(dueFrom, cutoff, from, partition.getRangeEnd(), lateFee, today);
+                if (!processed.isEmpty()) {
+                    partitionService.checkpoint(partition, processed.get(processed.size() - 1).getId(), summarize(processed));
+                }
+                return processed;
+            }));
+            if (chunk == null || chunk.isEmpty()) {
+                break;
+            }
+            OverdueSummaryDTO chunkSummary = summarize(chunk);
+            synchronized (summary) {
+                summary.add(chunkSummary);
+            }
+            invoiceMetrics.invoicesPaid(chunkSummary.getPaid());
+            invoiceMetrics.invoicesVoided(chunkSummary.getVoided());
+            invoiceMetrics.invoicesReissued(chunkSummary.getReissued());
+            listener.onChunk(chunkSummary);
+            after = chunk.get(chunk.size() - 1).getId();
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+        }
+        partitionService.complete(partition);
+    }
+
+    /**
+     * Processes one chunk of overdue invoices inside the caller's transaction.
+     *
+     * @param dueFrom invoices due before this date are left out, or null.
+     * @param cutoff invoices due strictly before this date are overdue.
+     * @param after the ID to start after.
+     * @param upTo the highest ID belonging to the partition.
+     * @param lateFee the late fee to apply.
+     * @param today the date the run started, used for the new invoices' due dates.
+     * @return the invoices that were processed, in ID order.
+     */
+    private List<Invoice> processChunk(LocalDate dueFrom, LocalDate cutoff, long after, long upTo, double lateFee, LocalDate today) {
+        List<Invoice> chunk = invoiceRepository.findDueBetween(InvoiceStatusConstants.PENDING, dueFrom, cutoff, after, upTo,
+                Limit.of(chunkSize));
+        if (chunk.isEmpty()) {
+            return chunk;
+        }
+        List<Invoice> newInvoices = new ArrayList<>(chunk.size());
+        for (Invoice invoice : chunk) {
+            if (InvoiceRules.closesOverdueAsPaid(invoice.getPaidAmount())) {
+                newInvoices.add(markAsPaidAndCreateNewInvoice(invoice, lateFee, today));
+            } else {
+                newInvoices.add(markAsVoidAndCreateNewInvoice(invoice, lateFee, today));
+            }
+        }
+        invoiceRepository.saveAll(newInvoices);
+        invoiceOutbox.reissued(chunk, newInvoices);
+        chunk.forEach(invoice -> receivablesView.invoiceChanged(InvoiceStatusConstants.PENDING, invoice.getPaidAmount(), invoice));
+        newInvoices.forEach(receivablesView::invoiceCreated);
+        evictFromCache(chunk);
+        return chunk;
+    }
+
+    /**
+     * Evicts the chunk's invoices from the invoice cache once the chunk's transaction commits.
+     *
+     * @param chunk the invoices whose status changed.
+     */
+    private void evictFromCache(List<Invoice> chunk) {
+        Cache cache = cacheManager.getCache(CacheConfig.INVOICES);
+        if (cache != null) {
+            chunk.forEach(invoice -> cache.evict(invoice.getId()));
+        }
+    }
+
+    /**
+     * Counts the outcome of a committed chunk.
+     *
+     * @param chunk the processed invoices.
+     * @return the chunk's summary.
+     */
+    private OverdueSummaryDTO summarize(List<Invoice> chunk) {
+        long paid = chunk.stream().filter(invoice -> InvoiceStatusConstants.PAID.equals(invoice.getStatus())).count();
+        return new OverdueSummaryDTO(chunk.size(), paid, chunk.size() - paid, chunk.size());
+    }
+
+    /**
+     * Marks an invoice as "PAID" and creates a new invoice with the remaining amount and late fee.
+     *
+     * @param invoice the invoice to mark as paid.
+     * @param lateFee the late fee to apply to the new invoice.
+     * @param today the current date.
+     * @return the new, unsaved invoice.
+     */
+    private Invoice markAsPaidAndCreateNewInvoice(Invoice invoice, double lateFee, LocalDate today) {
+        invoice.setStatus(InvoiceStatusConstants.PAID);
+        double remainingAmount = InvoiceRules.reissuedAmount(invoice.getAmount(), invoice.getPaidAmount(), lateFee);
+        return new Invoice(remainingAmount, today.plusDays(30));
+    }
+
+    /**
+     * Marks an invoice as "VOID" and creates a new invoice with the updated amount and late fee.
+     *
+     * @param invoice the invoice to mark as void.
+     * @param lateFee the late fee to apply to the new invoice.
+     * @param today the current date.
+     * @return the new, unsaved invoice.
+     */
+    private Invoice markAsVoidAndCreateNewInvoice(Invoice invoice, double lateFee, LocalDate today) {
+        invoice.setStatus(InvoiceStatusConstants.VOID);
+        double newAmount = InvoiceRules.reissuedAmount(invoice.getAmount(), invoice.getPaidAmount(), lateFee);
+        return new Invoice(newAmount, today.plusDays(30));
+    }
+}
@@ -0,0 +1,137 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.dto.OverdueJobDTO;
+import com.project.invoicesystem.dto.OverdueSummaryDTO;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * State and progress of an overdue run submitted through {@link OverdueJobService}.
+ */
+public class OverdueJob implements OverdueRunListener {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED;
+
+        public boolean isActive() {
+            return this == QUEUED || this == RUNNING;
+        }
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final double lateFee;
+    private final int overdueDays;
+    private final LocalDate dueFrom;
+    private final Instant submittedAt = Instant.now();
+    private final AtomicLong paid = new AtomicLong();
+    private final AtomicLong voided = new AtomicLong();
+    private final AtomicLong failedPartitions = new AtomicLong();
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+    private volatile boolean cancelRequested;
+    private final BooleanSupplier lease;
+
+    /**
+     * @param lateFee the fee to apply to overdue invoices.
+     * @param overdueDays the number of days after which an invoice is considered overdue.
+     * @param dueFrom invoices due before this date are left out, or null to consider all of them.
+     */
+    public OverdueJob(double lateFee, int overdueDays, LocalDate dueFrom) {
+        this(lateFee, overdueDays, dueFrom, () -> true);
+    }
+
+    /**
+     * @param lateFee the fee to apply to overdue invoices.
+     * @param overdueDays the number of days after which an invoice is considered overdue.
+     * @param dueFrom invoices due before this date are left out, or null to consider all of them.
+     * @param lease renews whatever keeps other instances from running the same sweep; checked before every
+     *              partition and chunk. The job stops as if cancelled once it returns false.
+     */
+    public OverdueJob(double lateFee, int overdueDays, LocalDate dueFrom, BooleanSupplier lease) {
+        this.lateFee = lateFee;
+        this.overdueDays = overdueDays;
+        this.dueFrom = dueFrom;
+        this.lease = lease;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public double getLateFee() {
+        return lateFee;
+    }
+
+    public int getOverdueDays() {
+        return overdueDays;
+    }
+
+    public LocalDate getDueFrom() {
+        return dueFrom;
+    }
+
+    public long getFailedPartitions() {
+        return failedPartitions.get();
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    void start() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    void finish(Status finalStatus, String failure) {
+        error = failure;
+        finishedAt = Instant.now();
+        status = finalStatus;
+    }
+
+    /**
+     * Asks the job to stop after the chunks currently being processed.
+     */
+    void cancel() {
+        cancelRequested = true;
+    }
+
+    @Override
+    public void onChunk(OverdueSummaryDTO chunk) {
+        paid.addAndGet(chunk.getPaid());
+        voided.addAndGet(chunk.getVoided());
+    }
+
+    @Override
+    public void onFailure(RuntimeException failure) {
+        failedPartitions.incrementAndGet();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        if (!cancelRequested && status == Status.RUNNING && !lease.getAsBoolean()) {
+            cancelRequested = true;
+        }
+        return cancelRequested;
+    }
+
+    /**
+     * @return a snapshot of the job's progress, with throughput in processed invoices per second.
+     */
+    public OverdueJobDTO toDto() {
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        double seconds = startedAt == null ? 0 : Duration.between(startedAt, end).toMillis() / 1000.0;
+        long paidCount = paid.get();
+        long voidedCount = voided.get();
+        double throughput = seconds > 0 ? (paidCount + voidedCount) / seconds : 0;
+        return new OverdueJobDTO(id, status.name().toLowerCase(), lateFee, overdueDays, dueFrom, paidCount + voidedCount,
+                paidCount, voidedCount, failedPartitions.get(), throughput, submittedAt, startedAt, finishedAt, error);
+    }
+}
@@ -0,0 +1,142 @@
+package com.project.invoicesystem.service;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Runs overdue sweeps in the background. At most one sweep is active per instance: submitting while
+ * one is queued or running returns the active job instead of starting an overlapping one.
+ */
+@Service
+public class OverdueJobService implements DisposableBean {
+
+    @Autowired
+    private OverdueInvoiceProcessor overdueInvoiceProcessor;
+
+    @Value("${invoice.overdue.jobs.history-size:100}")
+    private int historySize = 100;
+
+    private final ExecutorService executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), new CustomizableThreadFactory("overdue-job-"));
+
+    private final Map<String, OverdueJob> jobs = new LinkedHashMap<>();
+
+    private OverdueJob activeJob;
+
+    /**
+     * Submits an overdue sweep, or returns the sweep that is already queued or running.
+     *
+     * @param lateFee the fee to apply to overdue invoices.
+     * @param overdueDays the number of days after which an invoice is considered overdue.
+     * @return the submitted or already active job.
+     */
+    public synchronized OverdueJob submit(double lateFee, int overdueDays) {
+        if (activeJob != null && activeJob.getStatus().isActive()) {
+            return activeJob;
+        }
+        return trySubmit(lateFee, overdueDays, null, () -> true, job -> { }).get();
+    }
+
+    /**
+     * Submits an overdue sweep unless one is already queued or running.
+     *
+     * @param lateFee the fee to apply to overdue invoices.
+     * @param overdueDays the number of days after which an invoice is considered overdue.
+     * @param dueFrom invoices due before this date are left out, or null to consider all of them.
+     * @param lease renewed while the job runs; the job stops once it returns false.
+     * @param onFinish called on the job's thread once the job has finished, whatever its outcome.
+     * @return the submitted job, or empty if another sweep is active.
+     */
+    public synchronized Optional<OverdueJob> trySubmit(double lateFee, int overdueDays, LocalDate dueFrom,
+                                                       BooleanSupplier lease, Consumer<OverdueJob> onFinish) {
+        if (activeJob != null && activeJob.getStatus().isActive()) {
+            return Optional.empty();
+        }
+        OverdueJob job = new OverdueJob(lateFee, overdueDays, dueFrom, lease);
+        remember(job);
+        activeJob = job;
+        executor.execute(() -> {
+            try {
+                run(job);
+            } finally {
+                onFinish.accept(job);
+            }
+        });
+        return Optional.of(job);
+    }
+
+    /**
+     * Finds a job by its ID.
+     *
+     * @param id the ID of the job.
+     * @return the job.
+     * @throws IllegalArgumentException if the job is not found.
+     */
+    public synchronized OverdueJob getJob(String id) {
+        OverdueJob job = jobs.get(id);
+        if (job == null) {
+            throw new IllegalArgumentException("Job not found");
+        }
+        return job;
+    }
+
+    /**
+     * Requests cancellation of a job. A running job stops after its in-flight chunks commit and its
+     * unfinished partitions are released for the next run.
+     *
+     * @param id the ID of the job.
+     * @return the job.
+     * @throws IllegalArgumentException if the job is not found.
+     */
+    public OverdueJob cancel(String id) {
+        OverdueJob job = getJob(id);
+        job.cancel();
+        return job;
+    }
+
+    @Override
+    public void destroy() {
+        synchronized (this) {
+            if (activeJob != null) {
+                activeJob.cancel();
+            }
+        }
+        executor.shutdown();
+    }
+
+    private void run(OverdueJob job) {
+        if (job.isCancelled()) {
+            job.finish(OverdueJob.Status.CANCELLED, null);
+            return;
+        }
+        job.start();
+        try {
+            overdueInvoiceProcessor.process(job.getLateFee(), job.getOverdueDays(), job.getDueFrom(), job);
+            job.finish(job.isCancelled() ? OverdueJob.Status.CANCELLED : OverdueJob.Status.COMPLETED, null);
+        } catch (RuntimeException e) {
+            job.finish(OverdueJob.Status.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * Keeps the job for status queries, dropping the oldest finished jobs beyond the history size.
+     */
+    private void remember(OverdueJob job) {
+        jobs.put(job.getId(), job);
+        jobs.values().removeIf(old -> jobs.size() > historySize && !old.getStatus().isActive());
+    }
+}
@@ -0,0 +1,174 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.OverdueSummaryDTO;
+import com.project.invoicesystem.entity.OverduePartition;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import com.project.invoicesystem.repository.OverduePartitionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Service
+public class OverduePartitionService {
+
+    private static final Logger log = LoggerFactory.getLogger(OverduePartitionService.class);
+    private static final String RUN_KEY_SEPARATOR = "|";
+
+    @Autowired
+    private OverduePartitionRepository partitionRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Value("${invoice.overdue.partitions:16}")
+    private int partitionCount = 16;
+
+    @Value("${invoice.overdue.lease-duration:5m}")
+    private Duration leaseDuration = Duration.ofMinutes(5);
+
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID();
+
+    /**
+     * Builds the key identifying a run. Runs started on the same day with the same parameters share a key
+     * and therefore their partitions.
+     *
+     * @param runDate the day the run started.
+     * @param lateFee the fee applied to overdue invoices.
+     * @param overdueDays the number of days after which an invoice is considered overdue.
+     * @param dueFrom invoices due before this date are left out, or null.
+     * @return the run key, starting with the run date.
+     */
+    public static String runKey(LocalDate runDate, double lateFee, int overdueDays, LocalDate dueFrom) {
+        return runDate + RUN_KEY_SEPARATOR + lateFee + RUN_KEY_SEPARATOR + overdueDays
+                + (dueFrom == null ? "" : RUN_KEY_SEPARATOR + dueFrom);
+    }
+
+    /**
+     * Returns the partitions of the given run. If the run already has unfinished partitions, for example
+     * because another instance started it or a previous attempt crashed, they are reused so this instance
+     * joins or resumes the run. Otherwise the ID range of the current candidates is split into new partitions.
+     * Partitions of runs started on earlier days that nobody holds a lease on any more are deleted first; the
+     * new partitions cover the invoices they left pending. Other runs of the same day are left alone, as
+     * another instance may still be executing them.
+     *
+     * @param runKey the key identifying the run's parameters.
+     * @param dueFrom invoices due before this date are left out, or null to consider all of them.
+     * @param cutoff invoices due strictly before this date are overdue.
+     * @return the run's partitions, empty if there is nothing to process.
+     */
+    public List<OverduePartition> plan(String runKey, LocalDate dueFrom, LocalDate cutoff) {
+        deleteAbandoned(runKey.substring(0, runKey.indexOf(RUN_KEY_SEPARATOR)));
+        List<OverduePartition> existing = partitionRepository.findByRunKeyOrderByPartitionIndex(runKey);
+        if (existing.stream().anyMatch(partition -> !partition.isDone())) {
+            return existing;
+        }
+        partitionRepository.deleteByRunKeyAndDoneTrue(runKey);
+        List<Object[]> range = invoiceRepository.findIdRangeDueBetween(InvoiceStatusConstants.PENDING, dueFrom, cutoff);
+        if (range.isEmpty() || range.get(0)[0] == null) {
+            return List.of();
+        }
+        long min = ((Number) range.get(0)[0]).longValue();
+        long max = ((Number) range.get(0)[1]).longValue();
+        List<OverduePartition> partitions = split(runKey, min - 1, max);
+        try {
+            return partitionRepository.saveAll(partitions);
+        } catch (DataIntegrityViolationException e) {
+            // Another instance planned the same run at the same time; join its partitions instead.
+            return partitionRepository.findByRunKeyOrderByPartitionIndex(runKey);
+        }
+    }
+
+    /**
+     * Claims the next unfinished partition of the run whose lease is free or expired.
+     *
+     * @param runKey the key identifying the run.
+     * @return the claimed partition with its latest checkpoint, or empty if none is available.
+     */
+    public Optional<OverduePartition> claimNext(String runKey) {
+        for (OverduePartition partition : partitionRepository.findByRunKeyAndDoneFalseOrderByPartitionIndex(runKey)) {
+            Instant now = Instant.now();
+            if (partitionRepository.claim(partition.getId(), owner, now.plus(leaseDuration), now) == 1) {
+                return partitionRepository.findById(partition.getId());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Records a processed chunk and renews the lease. Must be called inside the chunk's transaction so the
+     * checkpoint commits atomically with the invoice updates.
+     *
+     * @param partition the partition being processed.
+     * @param lastId the ID of the last invoice in the chunk.
+     * @param chunk the chunk's counts.
+     * @throws IllegalStateException if the lease was lost to another instance.
+     */
+    public void checkpoint(OverduePartition partition, long lastId, OverdueSummaryDTO chunk) {
+        int updated = partitionRepository.checkpoint(partition.getId(), owner, lastId, Instant.now().plus(leaseDuration),
+                chunk.getScanned(), chunk.getPaid(), chunk.getVoided());
+        if (updated == 0) {
+            throw new IllegalStateException("Lease on overdue partition " + partition.getId() + " was lost");
+        }
+    }
+
+    /**
+     * Marks a partition as finished and releases its lease.
+     *
+     * @param partition the finished partition.
+     */
+    public void complete(OverduePartition partition) {
+        partitionRepository.complete(partition.getId(), owner);
+    }
+
+    /**
+     * Releases the lease on an unfinished partition so that the next run can claim it straight away.
+     *
+     * @param partition the partition to release.
+     */
+    public void release(OverduePartition partition) {
+        partitionRepository.release(partition.getId(), owner);
+    }
+
+    /**
+     * Deletes the partitions of runs started before the given date that no partition holds a live lease on:
+     * finished runs, and runs whose instances crashed or gave up. Such runs cannot be resumed under their own
+     * key once the date has changed. Runs still held by a worker are left to finish.
+     */
+    private void deleteAbandoned(String runDate) {
+        for (String staleKey : partitionRepository.findRunKeysBefore(runDate)) {
+            if (!partitionRepository.existsByRunKeyAndDoneFalseAndLeaseExpiresAtAfter(staleKey, Instant.now())) {
+                int deleted = partitionRepository.deleteByRunKey(staleKey);
+                log.info("Deleted {} partitions of abandoned overdue run {}", deleted, staleKey);
+            }
+        }
+    }
+
+    /**
+     * Splits the ID range (lowExclusive, highInclusive] into at most {@code partitionCount} contiguous partitions.
+     */
+    private List<OverduePartition> split(String runKey, long lowExclusive, long highInclusive) {
+        long span = highInclusive - lowExclusive;
+        int count = (int) Math.min(partitionCount, span);
+        long size = (span + count - 1) / count;
+        List<OverduePartition> partitions = new ArrayList<>(count);
+        for (int i = 0; i < count && lowExclusive + i * size < highInclusive; i++) {
+            long start = lowExclusive + i * size;
+            long end = Math.min(start + size, highInclusive);
+            partitions.add(new OverduePartition(runKey, i, start, end));
+        }
+        return partitions;
+    }
+}
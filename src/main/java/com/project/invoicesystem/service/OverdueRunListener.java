@@ -0,0 +1,37 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.dto.OverdueSummaryDTO;
+
+/**
+ * Receives progress of an overdue run and lets the caller cancel it between chunks.
+ * Callbacks are invoked concurrently from the run's worker threads.
+ */
+public interface OverdueRunListener {
+
+    OverdueRunListener NONE = new OverdueRunListener() {
+    };
+
+    /**
+     * Called after a chunk has been committed.
+     *
+     * @param chunk the counts of the committed chunk.
+     */
+    default void onChunk(OverdueSummaryDTO chunk) {
+    }
+
+    /**
+     * Called when a partition is abandoned because a chunk failed after all retries.
+     * The partition is picked up again by a later run once its lease expires.
+     *
+     * @param failure the error that stopped the partition.
+     */
+    default void onFailure(RuntimeException failure) {
+    }
+
+    /**
+     * @return whether the run should stop before processing the next chunk.
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
@@ -0,0 +1,224 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.OverdueSimulationDTO;
+import com.project.invoicesystem.entity.InvoiceStatusConverter;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Projects the outcome of an overdue sweep without changing any invoice. The pending invoices are read
+ * into primitive column arrays (amount, paid amount and due date as an epoch day) and kept as a snapshot
+ * for {@code invoice.overdue.simulation.snapshot-ttl}, so that what-if questions with different late fees
+ * and overdue periods are answered from memory. A simulation evaluates the sweep's rules from
+ * {@link InvoiceRules} over the columns in parallel slices, without creating an object per invoice.
+ *
+ * <p>The sweep first folds the payment ledger and flushes the payment buffer, so the paid amounts in the
+ * snapshot include unfolded ledger payments and buffered payments, and invoices those payments settle are
+ * left out.
+ */
+@Component
+public class OverdueSimulator {
+
+    /** Invoices evaluated per parallel task. */
+    private static final int SLICE_SIZE = 1 << 16;
+    /**
+     * Invoices are served by the covering (status, due_date, amount, paid_amount) index without reading the
+     * table, and unfolded ledger payments by the (folded, id) index of the payment table; one statement reads
+     * both consistently. Invoices without a due date never become overdue, as in the sweep, and are left out.
+     */
+    private static final String PENDING_QUERY = "select i.amount, i.paid_amount + coalesce(p.unfolded, 0), i.due_date, i.id"
+            + " from invoice i"
+            + " left join (select invoice_id, sum(amount) unfolded from payment where folded = false group by invoice_id) p"
+            + " on p.invoice_id = i.id"
+            + " where i.status = ? and i.due_date is not null";
+    private static final String PENDING_COUNT_QUERY = "select count(*) from invoice where status = ? and due_date is not null";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private PaymentBuffer paymentBuffer;
+
+    /** Rows the driver fetches per round trip, as for exports. */
+    @Value("${invoice.export.fetch-size:1000}")
+    private int fetchSize = 1000;
+
+    @Value("${invoice.overdue.simulation.snapshot-ttl:1m}")
+    private Duration snapshotTtl = Duration.ofMinutes(1);
+
+    private volatile Columns snapshot;
+
+    /**
+     * Projects what {@link OverdueInvoiceProcessor#process} would do today with the given parameters.
+     *
+     * @param lateFee the late fee to simulate.
+     * @param overdueDays the number of days after which an invoice is considered overdue.
+     * @param refresh whether to read the pending invoices again instead of using a recent snapshot.
+     * @return the projected counts and amounts.
+     */
+    @Timed("invoice.overdue.simulation")
+    public OverdueSimulationDTO simulate(double lateFee, int overdueDays, boolean refresh) {
+        Columns columns = snapshot(refresh);
+        LocalDate cutoff = LocalDate.now().minusDays(overdueDays);
+        int cutoffDay = (int) cutoff.toEpochDay();
+        Totals totals = IntStream.range(0, (columns.size + SLICE_SIZE - 1) / SLICE_SIZE)
+                .parallel()
+                .mapToObj(slice -> columns.simulate(slice * SLICE_SIZE, Math.min(columns.size, (slice + 1) * SLICE_SIZE),
+                        cutoffDay, lateFee))
+                .reduce(Totals::add)
+                .orElse(Totals.NONE);
+        return new OverdueSimulationDTO(cutoff, columns.loadedAt, totals.overdue(), totals.paid(),
+                totals.overdue() - totals.paid(), totals.outstandingCents() / 100.0,
+                totals.overdue() * InvoiceRules.toCents(lateFee) / 100.0, totals.reissuedCents() / 100.0);
+    }
+
+    /**
+     * Returns the snapshot, reading the pending invoices if it is missing, older than the TTL, or older than
+     * this call when a refresh is requested. Concurrent callers share one read.
+     */
+    private Columns snapshot(boolean refresh) {
+        Instant requested = Instant.now();
+        Instant oldestUsable = refresh ? requested : requested.minus(snapshotTtl);
+        Columns current = snapshot;
+        if (current != null && !current.loadedAt.isBefore(oldestUsable)) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || current.loadedAt.isBefore(oldestUsable)) {
+                TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+                transactionTemplate.setReadOnly(true);
+                current = paymentBuffer.readUnflushed(buffered -> transactionTemplate.execute(status ->
+                        entityManager.unwrap(Session.class).doReturningWork(connection -> read(connection, buffered))));
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Reads the pending invoices into columns sized by a preceding count, so the arrays are not regrown.
+     * Buffered payments are added to the paid amounts, and invoices that the fold or flush would settle are
+     * skipped.
+     */
+    private Columns read(Connection connection, Map<Long, Double> buffered) throws SQLException {
+        Instant loadedAt = Instant.now();
+        byte pending = InvoiceStatusConverter.toCode(InvoiceStatusConstants.PENDING);
+        int expected;
+        try (PreparedStatement count = connection.prepareStatement(PENDING_COUNT_QUERY)) {
+            count.setByte(1, pending);
+            try (ResultSet rows = count.executeQuery()) {
+                rows.next();
+                expected = (int) rows.getLong(1);
+            }
+        }
+        Columns columns = new Columns(expected, loadedAt);
+        try (PreparedStatement query = connection.prepareStatement(PENDING_QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            query.setFetchSize(fetchSize);
+            query.setByte(1, pending);
+            try (ResultSet rows = query.executeQuery()) {
+                while (rows.next()) {
+                    double amount = rows.getDouble(1);
+                    double paidAmount = rows.getDouble(2);
+                    if (!buffered.isEmpty()) {
+                        paidAmount = InvoiceRules.addAmounts(paidAmount, buffered.getOrDefault(rows.getLong(4), 0.0));
+                    }
+                    if (!InvoiceRules.isFullyPaid(amount, paidAmount)) {
+                        columns.add(amount, paidAmount, rows.getObject(3, LocalDate.class).toEpochDay());
+                    }
+                }
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Sums of one slice of the simulation, amounts in cents.
+     */
+    private record Totals(long overdue, long paid, long outstandingCents, long reissuedCents) {
+
+        static final Totals NONE = new Totals(0, 0, 0, 0);
+
+        Totals add(Totals other) {
+            return new Totals(overdue + other.overdue, paid + other.paid, outstandingCents + other.outstandingCents,
+                    reissuedCents + other.reissuedCents);
+        }
+    }
+
+    /**
+     * The pending invoices, one array element per invoice in each column. Filled once by the reading
+     * thread and only read after it has been published.
+     */
+    private static final class Columns {
+
+        private final Instant loadedAt;
+        private double[] amount;
+        private double[] paidAmount;
+        private int[] dueDay;
+        private int size;
+
+        Columns(int capacity, Instant loadedAt) {
+            this.loadedAt = loadedAt;
+            this.amount = new double[capacity];
+            this.paidAmount = new double[capacity];
+            this.dueDay = new int[capacity];
+        }
+
+        void add(double amount, double paidAmount, long dueDay) {
+            if (size == this.amount.length) {
+                // Invoices created between the count and the query.
+                int capacity = Math.max(16, size + (size >> 3));
+                this.amount = Arrays.copyOf(this.amount, capacity);
+                this.paidAmount = Arrays.copyOf(this.paidAmount, capacity);
+                this.dueDay = Arrays.copyOf(this.dueDay, capacity);
+            }
+            this.amount[size] = amount;
+            this.paidAmount[size] = paidAmount;
+            this.dueDay[size] = (int) dueDay;
+            size++;
+        }
+
+        /**
+         * Applies the overdue rules to the invoices in [from, to).
+         */
+        Totals simulate(int from, int to, int cutoffDay, double lateFee) {
+            long overdue = 0;
+            long paid = 0;
+            long outstanding = 0;
+            long reissued = 0;
+            for (int i = from; i < to; i++) {
+                if (dueDay[i] < cutoffDay) {
+                    overdue++;
+                    outstanding += InvoiceRules.toCents(amount[i]) - InvoiceRules.toCents(paidAmount[i]);
+                    if (InvoiceRules.closesOverdueAsPaid(paidAmount[i])) {
+                        paid++;
+                    }
+                    reissued += InvoiceRules.toCents(InvoiceRules.reissuedAmount(amount[i], paidAmount[i], lateFee));
+                }
+            }
+            return new Totals(overdue, paid, outstanding, reissued);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.entity.OverdueSchedule;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import com.project.invoicesystem.repository.OverdueScheduleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the overdue sweep on a cron schedule with the configured late fee and overdue days. A lock row
+ * keeps instances from starting the sweep concurrently, and a due-date watermark limits each run to
+ * the invoices that became overdue since the last complete one, so steady-state runs only read one
+ * day's worth of invoices. The watermark only advances after a run without failed partitions. Pending
+ * invoices created later with a due date before the watermark move the start of the next run back to
+ * their due date, so they are swept as well. The lock is extended while the sweep makes progress, at most
+ * every quarter of {@code lock-duration}; a sweep that cannot extend it has been taken over and stops.
+ */
+@Component
+public class OverdueSweepScheduler {
+
+    public static final String SCHEDULE_ID = "overdue-sweep";
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueSweepScheduler.class);
+
+    @Autowired
+    private OverdueScheduleRepository overdueScheduleRepository;
+
+    @Autowired
+    private OverdueJobService overdueJobService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Value("${invoice.overdue.schedule.enabled:false}")
+    private boolean enabled;
+
+    @Value("${invoice.overdue.schedule.late-fee:0}")
+    private double lateFee;
+
+    @Value("${invoice.overdue.schedule.overdue-days:30}")
+    private int overdueDays = 30;
+
+    @Value("${invoice.overdue.schedule.lock-duration:1h}")
+    private Duration lockDuration = Duration.ofHours(1);
+
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID();
+
+    /**
+     * Starts a sweep at the configured times.
+     */
+    @Scheduled(cron = "${invoice.overdue.schedule.cron:0 15 1 * * *}")
+    public void scheduledRun() {
+        if (enabled) {
+            runOnce();
+        }
+    }
+
+    /**
+     * Starts a sweep of the invoices that fell due between the watermark and the current cutoff, unless
+     * another instance holds the lock, a sweep is already active on this instance or there is nothing new.
+     * If a pending invoice fell due before the watermark, the sweep starts from its due date instead.
+     * The lock is held until the sweep finishes and renewed before its partitions and chunks.
+     *
+     * @return the submitted job, if a sweep was started.
+     */
+    public Optional<OverdueJob> runOnce() {
+        Instant now = Instant.now();
+        if (overdueScheduleRepository.lock(SCHEDULE_ID, owner, now.plus(lockDuration), now) == 0) {
+            log.debug("Scheduled overdue sweep is locked by another instance");
+            return Optional.empty();
+        }
+        LocalDate cutoff = LocalDate.now().minusDays(overdueDays);
+        LocalDate dueFrom = overdueScheduleRepository.findById(SCHEDULE_ID).map(OverdueSchedule::getWatermark).orElse(null);
+        if (dueFrom != null) {
+            // Every invoice due before the watermark was settled by a complete sweep, unless it was created later.
+            LocalDate earliest = invoiceRepository.findEarliestDueDate(InvoiceStatusConstants.PENDING);
+            if (earliest != null && earliest.isBefore(dueFrom)) {
+                log.info("Pending invoices fell due on {}, before the overdue watermark {}; sweeping from there", earliest, dueFrom);
+                dueFrom = earliest;
+            }
+        }
+        Optional<OverdueJob> job = Optional.empty();
+        if (dueFrom == null || dueFrom.isBefore(cutoff)) {
+            job = overdueJobService.trySubmit(lateFee, overdueDays, dueFrom, new LockRenewal(now)::renew,
+                    finished -> finish(finished, cutoff));
+        }
+        if (job.isEmpty()) {
+            overdueScheduleRepository.unlock(SCHEDULE_ID, owner);
+        }
+        return job;
+    }
+
+    /**
+     * Extends the lock of a running sweep. Called concurrently by the sweep's workers.
+     */
+    private final class LockRenewal {
+
+        private final AtomicReference<Instant> renewedAt;
+
+        LockRenewal(Instant lockedAt) {
+            this.renewedAt = new AtomicReference<>(lockedAt);
+        }
+
+        /**
+         * @return whether this instance still holds the lock.
+         */
+        boolean renew() {
+            Instant last = renewedAt.get();
+            Instant now = Instant.now();
+            if (now.isBefore(last.plus(lockDuration.dividedBy(4))) || !renewedAt.compareAndSet(last, now)) {
+                return true;
+            }
+            if (overdueScheduleRepository.renew(SCHEDULE_ID, owner, now.plus(lockDuration)) == 0) {
+                log.warn("Scheduled overdue sweep lost its lock to another instance and stops");
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private void finish(OverdueJob job, LocalDate cutoff) {
+        try {
+            if (job.getStatus() == OverdueJob.Status.COMPLETED && job.getFailedPartitions() == 0) {
+                overdueScheduleRepository.advanceWatermark(SCHEDULE_ID, cutoff);
+            } else {
+                log.warn("Scheduled overdue sweep {} ended {} with {} failed partitions; watermark kept",
+                        job.getId(), job.getStatus(), job.getFailedPartitions());
+            }
+        } finally {
+            overdueScheduleRepository.unlock(SCHEDULE_ID, owner);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.project.invoicesystem.service;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool running the partition workers of overdue sweeps. It is deliberately not exposed
+ * as an {@link java.util.concurrent.Executor} bean so that it does not replace the application task executor.
+ */
+@Component
+public class OverdueWorkerPool implements DisposableBean {
+
+    private final int workers;
+    private final ThreadPoolExecutor executor;
+
+    public OverdueWorkerPool(@Value("${invoice.overdue.workers:4}") int workers) {
+        this.workers = workers;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * 4), new CustomizableThreadFactory("overdue-worker-"));
+    }
+
+    /**
+     * @return the number of worker threads, which is also the number of workers a sweep starts.
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Runs a task on the pool.
+     *
+     * @param task the task to run.
+     * @return a future completing when the task finishes.
+     * @throws java.util.concurrent.RejectedExecutionException if the pool's queue is full.
+     */
+    public CompletableFuture<Void> submit(Runnable task) {
+        return CompletableFuture.runAsync(task, executor);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,751 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.config.CacheConfig;
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.constants.PaymentMode;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.entity.Payment;
+import com.project.invoicesystem.entity.PaymentBufferSegment;
+import com.project.invoicesystem.mapper.InvoiceMapper;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import com.project.invoicesystem.repository.PaymentBufferSegmentRepository;
+import com.project.invoicesystem.repository.PaymentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-behind buffer for payments taken in {@link PaymentMode#BUFFERED} mode. An accepted payment is
+ * appended to the open segment of a local log and added to an in-memory projection of its invoice. The
+ * projection decides whether the invoice is still pending and which payment makes it paid, so the status
+ * transition is exact even though the invoice row lags behind. The log is forced to disk before the
+ * payment is acknowledged, but outside the buffer's lock: one force covers every record written before
+ * it started, so payments that arrive while a force is running share the next one.
+ *
+ * <p>A payment accepted inside a transaction, such as one that also stores its idempotency key, is only
+ * reserved in the projection until that transaction commits, and written to the log afterwards. A request
+ * that rolls back or is retried therefore leaves nothing in the log, and its reservation is dropped.
+ *
+ * <p>Every flush window the open segment is closed and its payments are applied in one transaction: one
+ * conditional update per invoice for the sum of its payments, the payment rows, the outbox events and a
+ * checkpoint of the segment. The segment file is deleted once that has committed. At startup, segments
+ * left behind by a crash are read back; those without a checkpoint are applied by the next flush and the
+ * others are deleted.
+ *
+ * <p>Projections are only authoritative while all payments of an invoice go through one instance.
+ * Buffered payments for an invoice that was meanwhile paid, voided or reissued elsewhere cannot be
+ * applied; they are recorded as rejected payments, with a rejection event, and counted as failed payments.
+ */
+@Component
+public class PaymentBuffer implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentBuffer.class);
+    private static final String SEGMENT_SUFFIX = ".log";
+    /** Invoice ID, amount and payment time in epoch milliseconds, followed by a CRC32 of the three. */
+    private static final int RECORD_SIZE = Long.BYTES + Double.BYTES + Long.BYTES + Integer.BYTES;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentBufferSegmentRepository segmentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private InvoiceMetrics invoiceMetrics;
+
+    @Autowired
+    private ReceivablesView receivablesView;
+
+    @Autowired
+    private InvoiceOutbox invoiceOutbox;
+
+    @Value("${invoice.payment.mode:optimistic}")
+    private PaymentMode paymentMode = PaymentMode.OPTIMISTIC;
+
+    @Value("${invoice.payment.buffer.directory:payment-buffer}")
+    private String directory = "payment-buffer";
+
+    @Value("${invoice.payment.buffer.fsync:true}")
+    private boolean fsync = true;
+
+    private final InvoiceMapper invoiceMapper = InvoiceMapper.INSTANCE;
+
+    /** Guards the projections, the reservations, the open segment and the closed segments. */
+    private final Object lock = new Object();
+    private final Map<Long, InvoiceResponseDTO> projections = new HashMap<>();
+    /** Sums of the payments reserved by transactions that have not committed yet, by invoice. */
+    private final Map<Long, Double> reserved = new HashMap<>();
+    private final Deque<Segment> closed = new ArrayDeque<>();
+    private Segment open;
+    /** Incremented whenever projections are dropped, so that a load racing with a flush is repeated. */
+    private long evictions;
+
+    /**
+     * Reads back the segments left in the log directory by a previous run.
+     */
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        Path dir = Path.of(directory);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        for (Path file : files) {
+            Segment segment = Segment.read(file);
+            if (segment.payments.isEmpty() || segmentRepository.existsById(segment.id)) {
+                delete(segment);
+            } else {
+                log.info("Recovered {} buffered payments from {}", segment.payments.size(), file);
+                closed.add(segment);
+            }
+        }
+    }
+
+    /**
+     * Accepts a payment towards a pending invoice into the buffer. Inside a transaction the payment is
+     * reserved and written to the log once the transaction commits; if that write fails, the commit
+     * reports the failure to the caller.
+     *
+     * @param id the ID of the invoice to be paid.
+     * @param amount the amount to pay towards the invoice.
+     * @param loader loads the invoice from the database when it has no projection yet.
+     * @return the invoice details as they will be once the payment is flushed.
+     * @throws IllegalArgumentException if the invoice is not found or is not pending.
+     * @throws UncheckedIOException if the payment could not be written to the log. It is then not applied.
+     */
+    public InvoiceResponseDTO accept(Long id, double amount, Function<Long, Invoice> loader) {
+        Reservation reservation = reserve(id, amount, loader);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(reservation);
+            return reservation.invoice();
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                write(reservation);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    cancel(reservation);
+                }
+            }
+        });
+        return reservation.invoice();
+    }
+
+    /**
+     * Writes a reserved payment to the log and forces it to disk.
+     */
+    private void write(Reservation reservation) {
+        Appended appended;
+        synchronized (lock) {
+            // From here on the payment counts through the segment it is written to.
+            unreserve(reservation.payment());
+            try {
+                appended = append(reservation.payment());
+            } catch (UncheckedIOException e) {
+                evict(reservation.payment().invoiceId());
+                throw e;
+            }
+        }
+        if (fsync) {
+            try {
+                appended.segment().sync(appended.position());
+            } catch (IOException e) {
+                if (discard(appended)) {
+                    throw new UncheckedIOException("Payment could not be forced to the payment log", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops a reservation whose transaction did not commit, together with its invoice's projection, which
+     * is rebuilt without it.
+     */
+    private void cancel(Reservation reservation) {
+        synchronized (lock) {
+            unreserve(reservation.payment());
+            evict(reservation.payment().invoiceId());
+        }
+    }
+
+    private void evict(Long id) {
+        evictions++;
+        projections.remove(id);
+    }
+
+    private void unreserve(BufferedPayment payment) {
+        reserved.computeIfPresent(payment.invoiceId(), (id, total) -> {
+            double left = InvoiceRules.addAmounts(total, -payment.amount());
+            return left == 0 ? null : left;
+        });
+    }
+
+    /**
+     * Takes the payments that were not forced to disk out of the open segment after a force failed, so
+     * that a payment reported as failed is never applied, and closes the segment. Their invoices'
+     * projections are dropped and rebuilt from what is left.
+     *
+     * @return whether the payment was taken out; false if it is kept and applied by the flush, because
+     *         a later force covered it, its segment was already handed to the flush, or the log could not
+     *         be cut back.
+     */
+    private boolean discard(Appended appended) {
+        Segment segment = appended.segment();
+        synchronized (lock) {
+            List<BufferedPayment> dropped;
+            try {
+                dropped = segment.discardUnsynced(appended.position());
+            } catch (IOException e) {
+                log.error("Payment log segment {} could not be cut back after a failed force; its payments are kept",
+                        segment.path, e);
+                dropped = null;
+            }
+            if (open == segment) {
+                closeOpenSegment();
+            }
+            if (dropped == null) {
+                return false;
+            }
+            if (!dropped.isEmpty()) {
+                log.warn("Dropped {} payments from payment log segment {} that could not be forced to disk",
+                        dropped.size(), segment.path);
+                evictions++;
+                dropped.forEach(payment -> projections.remove(payment.invoiceId()));
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Reserves a payment under the lock, loading the invoice outside of it when it has no projection yet.
+     */
+    private Reservation reserve(Long id, double amount, Function<Long, Invoice> loader) {
+        while (true) {
+            long seenEvictions;
+            synchronized (lock) {
+                InvoiceResponseDTO projection = projections.get(id);
+                if (projection != null) {
+                    return reserve(projection, amount);
+                }
+                seenEvictions = evictions;
+            }
+            Invoice invoice = loader.apply(id);
+            synchronized (lock) {
+                InvoiceResponseDTO projection = projections.get(id);
+                if (projection == null) {
+                    if (evictions != seenEvictions) {
+                        // A flush applied payments of this invoice after it was loaded.
+                        continue;
+                    }
+                    projection = project(invoice);
+                    projections.put(id, projection);
+                }
+                return reserve(projection, amount);
+            }
+        }
+    }
+
+    /**
+     * Periodically flushes the buffer. Segments recovered at startup are flushed even when payments are
+     * no longer taken in buffered mode.
+     */
+    @Scheduled(fixedDelayString = "${invoice.payment.buffer.window:200ms}")
+    public void scheduledFlush() {
+        boolean recovered;
+        synchronized (lock) {
+            recovered = !closed.isEmpty();
+        }
+        if (paymentMode == PaymentMode.BUFFERED || recovered) {
+            flush();
+        }
+    }
+
+    /**
+     * Closes the open segment and applies the closed segments in order, each in its own transaction.
+     * Stops at the first segment that fails; it is retried by the next flush. A segment whose commit
+     * failed but went through after all is recognized by its checkpoint and not applied again.
+     *
+     * @return the number of payments applied.
+     */
+    public synchronized long flush() {
+        synchronized (lock) {
+            closeOpenSegment();
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long total = 0;
+        while (true) {
+            Segment segment;
+            synchronized (lock) {
+                segment = closed.peekFirst();
+            }
+            if (segment == null) {
+                break;
+            }
+            Set<Long> rejected;
+            try {
+                rejected = transactionTemplate.execute(status -> apply(segment));
+            } catch (DataAccessException | TransactionException e) {
+                log.warn("Flushing payment log segment {} failed and is retried on the next flush", segment.id, e);
+                break;
+            }
+            total += segment.payments.size();
+            delete(segment);
+            synchronized (lock) {
+                closed.removeFirst();
+                evictions++;
+                if (rejected != null) {
+                    rejected.forEach(projections::remove);
+                }
+                projections.keySet().removeIf(id -> !isBuffered(id));
+            }
+            Cache cache = cacheManager.getCache(CacheConfig.INVOICES);
+            if (cache != null) {
+                segment.totals.keySet().forEach(cache::evict);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Runs a read while no flush is applying payments, so that the payments passed to it are exactly those
+     * the database does not contain yet. Flushes wait until the read has finished.
+     *
+     * @param reader the read, given the sums of the logged but unapplied payments by invoice.
+     * @return the result of the read.
+     */
+    public synchronized <T> T readUnflushed(Function<Map<Long, Double>, T> reader) {
+        Map<Long, Double> totals = new HashMap<>();
+        synchronized (lock) {
+            closed.forEach(segment -> segment.totals.forEach((id, total) -> totals.merge(id, total, InvoiceRules::addAmounts)));
+            if (open != null) {
+                open.totals.forEach((id, total) -> totals.merge(id, total, InvoiceRules::addAmounts));
+            }
+        }
+        return reader.apply(totals);
+    }
+
+    /**
+     * Flushes what can be flushed and closes the log on shutdown. Anything left is recovered at the next start.
+     */
+    @Override
+    public void destroy() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Payment buffer could not be flushed on shutdown and is recovered at the next start", e);
+        }
+        synchronized (lock) {
+            closeOpenSegment();
+            closed.forEach(segment -> segment.close(false));
+        }
+    }
+
+    /**
+     * Applies the payments of one segment inside the caller's transaction. Invoices are updated in ID
+     * order so that concurrent flushes lock them in the same order.
+     *
+     * Payments of invoices that are no longer pending are saved as rejected. A segment that already has
+     * a checkpoint is left alone.
+     *
+     * @return the IDs of the invoices whose payments could not be applied because they are no longer pending.
+     */
+    private Set<Long> apply(Segment segment) {
+        if (segmentRepository.existsById(segment.id)) {
+            log.info("Payment log segment {} was already applied", segment.id);
+            return Set.of();
+        }
+        Map<Long, List<BufferedPayment>> byInvoice = new TreeMap<>();
+        segment.payments.forEach(payment -> byInvoice.computeIfAbsent(payment.invoiceId(), id -> new ArrayList<>()).add(payment));
+        Set<Long> rejected = new HashSet<>();
+        for (Map.Entry<Long, List<BufferedPayment>> entry : byInvoice.entrySet()) {
+            double total = segment.totals.get(entry.getKey());
+            if (invoiceRepository.applyPayment(entry.getKey(), total) == 0) {
+                rejected.add(entry.getKey());
+            }
+        }
+        List<Payment> rows = new ArrayList<>(segment.payments.size());
+        if (!rejected.isEmpty()) {
+            Map<Long, Invoice> invoices = new HashMap<>();
+            invoiceRepository.findAllById(rejected).forEach(invoice -> invoices.put(invoice.getId(), invoice));
+            for (Long id : rejected) {
+                List<BufferedPayment> payments = byInvoice.remove(id);
+                log.warn("{} buffered payments of {} for invoice {} are rejected because it is no longer pending",
+                        payments.size(), segment.totals.get(id), id);
+                for (BufferedPayment payment : payments) {
+                    invoiceMetrics.paymentFailed("not_pending");
+                    if (invoices.containsKey(id)) {
+                        invoiceOutbox.paymentRejected(invoices.get(id), payment.amount());
+                    }
+                    rows.add(row(payment, true));
+                }
+            }
+        }
+        int paid = 0;
+        for (Invoice invoice : invoiceRepository.findAllById(byInvoice.keySet())) {
+            double paidAmount = InvoiceRules.addAmounts(invoice.getPaidAmount(), -segment.totals.get(invoice.getId()));
+            receivablesView.invoiceChanged(InvoiceStatusConstants.PENDING, paidAmount, invoice);
+            if (InvoiceStatusConstants.PAID.equals(invoice.getStatus())) {
+                paid++;
+            }
+            // Each payment's event describes the invoice as it was right after that payment.
+            for (BufferedPayment payment : byInvoice.get(invoice.getId())) {
+                paidAmount = InvoiceRules.addAmounts(paidAmount, payment.amount());
+                Invoice after = new Invoice(invoice.getAmount(), invoice.getDueDate());
+                after.setId(invoice.getId());
+                after.setPaidAmount(paidAmount);
+                if (InvoiceRules.isFullyPaid(invoice.getAmount(), paidAmount)) {
+                    after.setStatus(InvoiceStatusConstants.PAID);
+                }
+                invoiceOutbox.paymentMade(after, payment.amount());
+                rows.add(row(payment, false));
+            }
+        }
+        paymentRepository.saveAll(rows);
+        invoiceMetrics.invoicesPaid(paid);
+        segmentRepository.save(new PaymentBufferSegment(segment.id, Instant.now()));
+        return rejected;
+    }
+
+    /**
+     * Builds the processed payment row of a buffered payment.
+     */
+    private static Payment row(BufferedPayment payment, boolean rejected) {
+        Payment row = new Payment(payment.invoiceId(), payment.amount(), true);
+        row.setCreatedAt(payment.createdAt());
+        row.setRejected(rejected);
+        return row;
+    }
+
+    /**
+     * Builds the projection of a freshly loaded invoice, including payments that are buffered or reserved
+     * for it but not applied yet, such as those recovered at startup.
+     */
+    private InvoiceResponseDTO project(Invoice invoice) {
+        InvoiceResponseDTO projection = invoiceMapper.toDto(invoice);
+        double buffered = closed.stream().mapToDouble(segment -> segment.totalFor(invoice.getId()))
+                .reduce(open == null ? 0 : open.totalFor(invoice.getId()), InvoiceRules::addAmounts);
+        buffered = InvoiceRules.addAmounts(buffered, reserved.getOrDefault(invoice.getId(), 0.0));
+        if (buffered != 0) {
+            projection.setPaidAmount(InvoiceRules.addAmounts(projection.getPaidAmount(), buffered));
+            if (InvoiceStatusConstants.PENDING.equals(projection.getStatus())
+                    && InvoiceRules.isFullyPaid(projection.getAmount(), projection.getPaidAmount())) {
+                projection.setStatus(InvoiceStatusConstants.PAID);
+            }
+        }
+        return projection;
+    }
+
+    /**
+     * Adds a payment to the invoice's projection and reservations. Must be called while holding the lock.
+     */
+    private Reservation reserve(InvoiceResponseDTO projection, double amount) {
+        InvoiceRules.requirePending(projection.getStatus());
+        BufferedPayment payment = new BufferedPayment(projection.getId(), amount, Instant.now());
+        reserved.merge(payment.invoiceId(), amount, InvoiceRules::addAmounts);
+        projection.setPaidAmount(InvoiceRules.addAmounts(projection.getPaidAmount(), amount));
+        if (InvoiceRules.isFullyPaid(projection.getAmount(), projection.getPaidAmount())) {
+            projection.setStatus(InvoiceStatusConstants.PAID);
+        }
+        return new Reservation(new InvoiceResponseDTO(projection.getId(), projection.getAmount(), projection.getPaidAmount(),
+                projection.getDueDate(), projection.getStatus()), payment);
+    }
+
+    /**
+     * Writes a reserved payment to the log without forcing it. Must be called while holding the lock.
+     */
+    private Appended append(BufferedPayment payment) {
+        try {
+            if (open == null) {
+                open = Segment.create(Path.of(directory));
+            }
+            return new Appended(open, open.append(payment));
+        } catch (IOException e) {
+            // Later records would follow a possibly torn one, so the next payment starts a new segment.
+            closeOpenSegment();
+            throw new UncheckedIOException("Payment could not be written to the payment log", e);
+        }
+    }
+
+    /**
+     * Closes the open segment. With fsync, payments it could not force are dropped, as their callers are
+     * still waiting and fail; their invoices' projections are rebuilt without them.
+     */
+    private void closeOpenSegment() {
+        if (open != null) {
+            List<BufferedPayment> dropped = open.close(fsync);
+            if (!dropped.isEmpty()) {
+                evictions++;
+                dropped.forEach(payment -> projections.remove(payment.invoiceId()));
+            }
+            if (!open.payments.isEmpty()) {
+                closed.add(open);
+            }
+            open = null;
+        }
+    }
+
+    private boolean isBuffered(Long id) {
+        return (open != null && open.totals.containsKey(id)) || closed.stream().anyMatch(segment -> segment.totals.containsKey(id));
+    }
+
+    /**
+     * Deletes an applied segment file, then its checkpoint. The directory is synced in between so that a
+     * deleted file cannot reappear after a power loss once its checkpoint is gone.
+     */
+    private void delete(Segment segment) {
+        try {
+            Files.deleteIfExists(segment.path);
+            try (FileChannel dir = FileChannel.open(segment.path.getParent(), StandardOpenOption.READ)) {
+                dir.force(true);
+            }
+            segmentRepository.deleteById(segment.id);
+        } catch (IOException | DataAccessException e) {
+            log.warn("Applied payment log segment {} could not be removed", segment.path, e);
+        }
+    }
+
+    private record BufferedPayment(long invoiceId, double amount, Instant createdAt) {
+    }
+
+    /**
+     * A payment taken into an invoice's projection, with the invoice as it is after the payment.
+     */
+    private record Reservation(InvoiceResponseDTO invoice, BufferedPayment payment) {
+    }
+
+    /**
+     * A payment written to a segment, with the segment's size after its record.
+     */
+    private record Appended(Segment segment, long position) {
+    }
+
+    /**
+     * One file of the payment log with the payments written to it.
+     */
+    private static final class Segment {
+
+        private final String id;
+        private final Path path;
+        private final List<BufferedPayment> payments = new ArrayList<>();
+        private final Map<Long, Double> totals = new HashMap<>();
+        private FileChannel channel;
+        /** Bytes written by the appending thread, which holds the buffer's lock. */
+        private volatile long written;
+        /** Bytes known to be on disk. Guarded by the segment itself. */
+        private long synced;
+        /** Whether closing could not force the segment and removed the payments after {@link #synced}. */
+        private boolean closeFailed;
+
+        private Segment(String id, Path path) {
+            this.id = id;
+            this.path = path;
+        }
+
+        /**
+         * Creates a new segment file. Names start with the creation time so that segments sort in the
+         * order they were written.
+         */
+        static Segment create(Path dir) throws IOException {
+            Files.createDirectories(dir);
+            String id = System.currentTimeMillis() + "-" + UUID.randomUUID();
+            Segment segment = new Segment(id, dir.resolve(id + SEGMENT_SUFFIX));
+            segment.channel = FileChannel.open(segment.path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            return segment;
+        }
+
+        /**
+         * Reads the payments of an existing segment file, up to the first incomplete or corrupt record.
+         * Such a record was being written when the process stopped, so its payment was never acknowledged.
+         */
+        static Segment read(Path file) throws IOException {
+            String name = file.getFileName().toString();
+            Segment segment = new Segment(name.substring(0, name.length() - SEGMENT_SUFFIX.length()), file);
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            while (buffer.remaining() >= RECORD_SIZE) {
+                int start = buffer.position();
+                BufferedPayment payment = new BufferedPayment(buffer.getLong(), buffer.getDouble(),
+                        Instant.ofEpochMilli(buffer.getLong()));
+                if (buffer.getInt() != checksum(buffer.array(), start)) {
+                    break;
+                }
+                segment.add(payment);
+            }
+            return segment;
+        }
+
+        /**
+         * Writes a payment's record without forcing it to disk.
+         *
+         * @return the size of the segment after the record.
+         */
+        long append(BufferedPayment payment) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+            buffer.putLong(payment.invoiceId()).putDouble(payment.amount()).putLong(payment.createdAt().toEpochMilli());
+            buffer.putInt(checksum(buffer.array(), 0)).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            add(payment);
+            written += RECORD_SIZE;
+            return written;
+        }
+
+        /**
+         * Forces the segment to disk up to at least the given position. A caller that finds a force running
+         * waits for it and, unless that force already covered its record, runs the next one for everybody
+         * who wrote in the meantime.
+         */
+        synchronized void sync(long position) throws IOException {
+            if (synced >= position) {
+                return;
+            }
+            if (channel == null) {
+                throw new IOException("Payment log segment " + path + " was closed before it could be forced");
+            }
+            long target = written;
+            channel.force(false);
+            synced = target;
+        }
+
+        double totalFor(Long invoiceId) {
+            return totals.getOrDefault(invoiceId, 0.0);
+        }
+
+        /**
+         * Cuts the file back to what was forced and removes the later payments after a force failed.
+         * Must be called while holding the buffer's lock.
+         *
+         * @param position the size of the segment after the record of the payment that failed.
+         * @return the payments removed, empty if that payment was already removed by an earlier call or by a
+         *         failed close, or null if it is kept: forced by a later call after all, or in a segment that
+         *         was closed.
+         * @throws IOException if the file could not be cut back; nothing is removed then.
+         */
+        synchronized List<BufferedPayment> discardUnsynced(long position) throws IOException {
+            if (synced >= position) {
+                return null;
+            }
+            if (closeFailed || position > written) {
+                return List.of();
+            }
+            if (channel == null) {
+                return null;
+            }
+            channel.truncate(synced);
+            channel.force(false);
+            return removeUnsynced();
+        }
+
+        /**
+         * Removes the payments after what was forced from the segment.
+         */
+        private List<BufferedPayment> removeUnsynced() {
+            int kept = (int) (synced / RECORD_SIZE);
+            List<BufferedPayment> dropped = new ArrayList<>(payments.subList(kept, payments.size()));
+            payments.subList(kept, payments.size()).clear();
+            totals.clear();
+            payments.forEach(payment -> totals.merge(payment.invoiceId(), payment.amount(), InvoiceRules::addAmounts));
+            written = synced;
+            return dropped;
+        }
+
+        /**
+         * Forces what was not forced yet and closes the file, so that callers still waiting to sync return.
+         * If the force fails and {@code discard} is set, the payments after what was forced are removed and
+         * the file is cut back, so that callers still waiting to sync fail and their payments are not applied.
+         *
+         * @param discard whether payments that could not be forced are removed rather than kept.
+         * @return the payments removed.
+         */
+        synchronized List<BufferedPayment> close(boolean discard) {
+            if (channel == null) {
+                return List.of();
+            }
+            List<BufferedPayment> dropped = List.of();
+            try (FileChannel closing = channel) {
+                if (synced < written) {
+                    try {
+                        closing.force(false);
+                        synced = written;
+                    } catch (IOException e) {
+                        if (!discard) {
+                            throw e;
+                        }
+                        log.warn("Payment log segment {} could not be forced on close; dropping its unforced payments", path, e);
+                        closeFailed = true;
+                        dropped = removeUnsynced();
+                        closing.truncate(synced);
+                        closing.force(false);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Payment log segment {} could not be closed", path, e);
+            }
+            channel = null;
+            return dropped;
+        }
+
+        private void add(BufferedPayment payment) {
+            payments.add(payment);
+            totals.merge(payment.invoiceId(), payment.amount(), InvoiceRules::addAmounts);
+        }
+
+        private static int checksum(byte[] record, int offset) {
+            CRC32 crc = new CRC32();
+            crc.update(record, offset, RECORD_SIZE - Integer.BYTES);
+            return (int) crc.getValue();
+        }
+    }
+}
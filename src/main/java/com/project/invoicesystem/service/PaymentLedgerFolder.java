@@ -0,0 +1,187 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.config.CacheConfig;
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.constants.PaymentMode;
+import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.entity.Payment;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import com.project.invoicesystem.repository.PaymentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Folds ledger payments that have not been applied yet into their invoices' paid amount and status.
+ * Only active when payments are taken in {@link PaymentMode#LEDGER} mode.
+ */
+@Component
+public class PaymentLedgerFolder {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentLedgerFolder.class);
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private InvoiceMetrics invoiceMetrics;
+
+    @Autowired
+    private ReceivablesView receivablesView;
+
+    @Autowired
+    private InvoiceOutbox invoiceOutbox;
+
+    @Value("${invoice.payment.mode:optimistic}")
+    private PaymentMode paymentMode = PaymentMode.OPTIMISTIC;
+
+    @Value("${invoice.payment.fold-batch-size:1000}")
+    private int foldBatchSize = 1000;
+
+    /**
+     * Periodically folds all pending ledger payments.
+     */
+    @Scheduled(fixedDelayString = "${invoice.payment.fold-interval:1s}")
+    public void scheduledFold() {
+        if (paymentMode == PaymentMode.LEDGER) {
+            foldAll();
+        }
+    }
+
+    /**
+     * Folds pending ledger payments batch by batch until none is left.
+     *
+     * @return the number of payments folded.
+     */
+    public long foldAll() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long total = 0;
+        Integer folded;
+        do {
+            folded = transactionTemplate.execute(status -> foldBatch());
+            total += folded == null ? 0 : folded;
+        } while (folded != null && folded == foldBatchSize);
+        return total;
+    }
+
+    /**
+     * Folds one batch of the oldest unfolded payments inside the caller's transaction, issuing one
+     * update per invoice for the sum of its payments in the batch and one update marking the fully paid
+     * ones as paid. Invoices are updated in ID order so that concurrent folds lock them in the same order.
+     * Payments of invoices that are no longer pending, such as invoices voided or closed by an overdue
+     * sweep after the payments were accepted, are not added; they are kept in the ledger marked as rejected.
+     *
+     * @return the number of payments folded or rejected.
+     */
+    private int foldBatch() {
+        List<Payment> payments = paymentRepository.findByFoldedFalseOrderById(Limit.of(foldBatchSize));
+        if (payments.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Double> totals = new TreeMap<>();
+        for (Payment payment : payments) {
+            totals.merge(payment.getInvoiceId(), payment.getAmount(), InvoiceRules::addAmounts);
+        }
+        Map<Long, Invoice> invoices = new HashMap<>();
+        invoiceRepository.findAllById(totals.keySet()).forEach(invoice -> invoices.put(invoice.getId(), invoice));
+        Set<Long> applied = new TreeSet<>();
+        totals.forEach((id, amount) -> {
+            if (invoiceRepository.addPaidAmount(id, amount, InvoiceStatusConstants.PENDING) == 1) {
+                applied.add(id);
+            }
+        });
+        if (!applied.isEmpty()) {
+            int settled = invoiceRepository.settlePaid(applied, InvoiceStatusConstants.PENDING, InvoiceStatusConstants.PAID);
+            invoiceMetrics.invoicesPaid(settled);
+        }
+        List<Invoice> settledInvoices = new ArrayList<>();
+        for (Long id : applied) {
+            Invoice invoice = invoices.get(id);
+            if (applyToView(invoice, totals.get(id))) {
+                settledInvoices.add(invoice);
+            }
+        }
+        invoiceOutbox.settled(settledInvoices);
+
+        List<Long> folded = new ArrayList<>(payments.size());
+        List<Long> rejected = new ArrayList<>();
+        for (Payment payment : payments) {
+            if (applied.contains(payment.getInvoiceId())) {
+                folded.add(payment.getId());
+            } else {
+                rejected.add(payment.getId());
+                reject(payment, invoices.get(payment.getInvoiceId()));
+            }
+        }
+        if (!folded.isEmpty()) {
+            paymentRepository.markFolded(folded);
+        }
+        if (!rejected.isEmpty()) {
+            paymentRepository.markRejected(rejected);
+        }
+        Cache cache = cacheManager.getCache(CacheConfig.INVOICES);
+        if (cache != null) {
+            totals.keySet().forEach(cache::evict);
+        }
+        return payments.size();
+    }
+
+    /**
+     * Reports a ledger payment that cannot be applied because its invoice is no longer pending. Its payment
+     * event was published when it was accepted, so a rejection event follows it in the change feed.
+     */
+    private void reject(Payment payment, Invoice invoice) {
+        log.warn("Ledger payment {} of {} for invoice {} is rejected because the invoice is no longer pending",
+                payment.getId(), payment.getAmount(), payment.getInvoiceId());
+        invoiceMetrics.paymentFailed("not_pending");
+        if (invoice != null) {
+            invoiceOutbox.paymentRejected(invoice, payment.getAmount());
+        }
+    }
+
+    /**
+     * Reports a folded invoice to the receivables view, deriving its new state the same way the fold's
+     * updates do.
+     *
+     * @param invoice the invoice as loaded before the fold; detached by the fold's updates.
+     * @param amount the sum of its folded payments.
+     * @return whether the fold settled the invoice.
+     */
+    private boolean applyToView(Invoice invoice, double amount) {
+        String previousStatus = invoice.getStatus();
+        double previousPaidAmount = invoice.getPaidAmount();
+        invoice.setPaidAmount(InvoiceRules.addAmounts(previousPaidAmount, amount));
+        boolean settled = InvoiceStatusConstants.PENDING.equals(previousStatus)
+                && InvoiceRules.isFullyPaid(invoice.getAmount(), invoice.getPaidAmount());
+        if (settled) {
+            invoice.setStatus(InvoiceStatusConstants.PAID);
+        }
+        receivablesView.invoiceChanged(previousStatus, previousPaidAmount, invoice);
+        return settled;
+    }
+}
@@ -0,0 +1,83 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.constants.AgingBucket;
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.ReceivablesSummaryDTO;
+import com.project.invoicesystem.dto.ReceivablesTotalsDTO;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Provides receivables totals for dashboards, so that clients do not have to sum invoices themselves.
+ */
+@Service
+public class ReceivablesService {
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private InvoiceArchiver invoiceArchiver;
+
+    @Autowired
+    private ReceivablesView receivablesView;
+
+    /**
+     * Returns the receivables summary from the in-memory view, or aggregates it in the database when
+     * asked for exact figures or while the view is not built yet.
+     *
+     * @param exact whether to bypass the in-memory view.
+     * @return the receivables summary.
+     */
+    @Timed("invoice.summary")
+    public ReceivablesSummaryDTO getSummary(boolean exact) {
+        if (!exact && receivablesView.isReady()) {
+            return receivablesView.getSummary();
+        }
+        return aggregate();
+    }
+
+    /**
+     * Summarizes all invoices by status and the pending ones by aging bucket. The database returns one
+     * row per status and due date, read from the covering (status, due_date, amount, paid_amount) index,
+     * and the rows are rolled up into buckets here. The index scan still visits every invoice, so this is
+     * the exact fallback whose cost grows with the table; the {@link ReceivablesView} is the fast path.
+     *
+     * @return the receivables summary.
+     */
+    private ReceivablesSummaryDTO aggregate() {
+        LocalDate today = LocalDate.now();
+        ReceivablesTotalsDTO total = new ReceivablesTotalsDTO();
+        Map<String, ReceivablesTotalsDTO> byStatus = new LinkedHashMap<>();
+        for (String status : new String[]{InvoiceStatusConstants.PENDING, InvoiceStatusConstants.PAID, InvoiceStatusConstants.VOID}) {
+            byStatus.put(status, new ReceivablesTotalsDTO());
+        }
+        Map<String, ReceivablesTotalsDTO> byAging = new LinkedHashMap<>();
+        for (AgingBucket bucket : AgingBucket.values()) {
+            byAging.put(bucket.getLabel(), new ReceivablesTotalsDTO());
+        }
+        List<Object[]> rows = new ArrayList<>(invoiceRepository.sumByStatusAndDueDate());
+        rows.addAll(invoiceArchiver.sumByStatus());
+        for (Object[] row : rows) {
+            String status = (String) row[0];
+            LocalDate dueDate = (LocalDate) row[1];
+            long count = ((Number) row[2]).longValue();
+            double amount = ((Number) row[3]).doubleValue();
+            double paidAmount = ((Number) row[4]).doubleValue();
+            total.add(count, amount, paidAmount);
+            byStatus.computeIfAbsent(status, key -> new ReceivablesTotalsDTO()).add(count, amount, paidAmount);
+            if (InvoiceStatusConstants.PENDING.equals(status)) {
+                byAging.get(AgingBucket.of(dueDate, today).getLabel()).add(count, amount, paidAmount);
+            }
+        }
+        return new ReceivablesSummaryDTO(today, total, byStatus, byAging);
+    }
+}
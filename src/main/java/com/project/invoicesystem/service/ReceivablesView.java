@@ -0,0 +1,253 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.constants.AgingBucket;
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.ReceivablesSummaryDTO;
+import com.project.invoicesystem.dto.ReceivablesTotalsDTO;
+import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory receivables totals per status and, for pending invoices, per aging bucket. Built from the
+ * database at startup, then updated by every committed create, payment and overdue transition of this
+ * instance, and periodically reconciled against the database to correct drift (including writes made
+ * by other instances). Counters are {@link LongAdder}s, so concurrent payments do not contend on them,
+ * and reads never touch the database.
+ */
+@Component
+public class ReceivablesView {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceivablesView.class);
+
+    private static final String[] STATUSES = {
+            InvoiceStatusConstants.PENDING, InvoiceStatusConstants.PAID, InvoiceStatusConstants.VOID};
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private InvoiceArchiver invoiceArchiver;
+
+    private volatile State state;
+
+    /**
+     * @return whether the view has been built and can serve reads.
+     */
+    public boolean isReady() {
+        return state != null;
+    }
+
+    /**
+     * Returns the current totals. Aging buckets are re-derived from the per-due-date totals once a day,
+     * so a read costs the same regardless of the number of invoices.
+     *
+     * @return the summary.
+     * @throws IllegalStateException if the view has not been built yet.
+     */
+    public ReceivablesSummaryDTO getSummary() {
+        State current = requireState();
+        Aging aging = current.agingFor(LocalDate.now());
+        ReceivablesTotalsDTO total = new ReceivablesTotalsDTO();
+        Map<String, ReceivablesTotalsDTO> byStatus = new LinkedHashMap<>();
+        for (String status : STATUSES) {
+            ReceivablesTotalsDTO dto = current.byStatus.get(status).toDto();
+            byStatus.put(status, dto);
+            total.add(dto.getCount(), dto.getAmount(), dto.getPaidAmount());
+        }
+        Map<String, ReceivablesTotalsDTO> byAging = new LinkedHashMap<>();
+        for (AgingBucket bucket : AgingBucket.values()) {
+            byAging.put(bucket.getLabel(), aging.buckets[bucket.ordinal()].toDto());
+        }
+        return new ReceivablesSummaryDTO(aging.asOf, total, byStatus, byAging);
+    }
+
+    /**
+     * Adds a newly created invoice once the current transaction commits.
+     *
+     * @param invoice the created invoice.
+     */
+    public void invoiceCreated(Invoice invoice) {
+        AfterCommit.run(() -> add(invoice.getStatus(), invoice.getDueDate(), 1, invoice.getAmount(), invoice.getPaidAmount()));
+    }
+
+    /**
+     * Moves an invoice from the totals of its previous state to those of its current state once the
+     * current transaction commits. Covers payments and overdue transitions.
+     *
+     * @param previousStatus the status before the change.
+     * @param previousPaidAmount the paid amount before the change.
+     * @param invoice the invoice after the change.
+     */
+    public void invoiceChanged(String previousStatus, double previousPaidAmount, Invoice invoice) {
+        String status = invoice.getStatus();
+        LocalDate dueDate = invoice.getDueDate();
+        double amount = invoice.getAmount();
+        double paidAmount = invoice.getPaidAmount();
+        AfterCommit.run(() -> {
+            add(previousStatus, dueDate, -1, -amount, -previousPaidAmount);
+            add(status, dueDate, 1, amount, paidAmount);
+        });
+    }
+
+    /**
+     * Rebuilds the view from the database at startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        state = load();
+    }
+
+    /**
+     * Replaces the view with freshly aggregated database totals and logs how far it had drifted.
+     * Updates committed while the aggregate runs may be lost or counted twice; the next
+     * reconciliation corrects them.
+     */
+    @Scheduled(initialDelayString = "${invoice.receivables.reconcile-interval:5m}",
+            fixedDelayString = "${invoice.receivables.reconcile-interval:5m}")
+    public void reconcile() {
+        State previous = state;
+        State reconciled = load();
+        state = reconciled;
+        if (previous != null) {
+            for (String status : reconciled.byStatus.keySet()) {
+                long drift = reconciled.byStatus.get(status).count.sum() - previous.byStatus.get(status).count.sum();
+                if (drift != 0) {
+                    log.info("Receivables view corrected {} {} invoices on reconciliation", drift, status);
+                }
+            }
+        }
+    }
+
+    private State requireState() {
+        State current = state;
+        if (current == null) {
+            throw new IllegalStateException("Receivables view is not built yet");
+        }
+        return current;
+    }
+
+    private void add(String status, LocalDate dueDate, long count, double amount, double paidAmount) {
+        State current = state;
+        if (current == null) {
+            return;
+        }
+        long amountCents = InvoiceRules.toCents(amount);
+        long paidCents = InvoiceRules.toCents(paidAmount);
+        current.byStatus.computeIfAbsent(status, key -> new Totals()).add(count, amountCents, paidCents);
+        if (InvoiceStatusConstants.PENDING.equals(status)) {
+            current.pendingByDueDate.computeIfAbsent(dueDate == null ? LocalDate.MAX : dueDate, key -> new Totals())
+                    .add(count, amountCents, paidCents);
+            Aging aging = current.agingFor(LocalDate.now());
+            aging.buckets[AgingBucket.of(dueDate, aging.asOf).ordinal()].add(count, amountCents, paidCents);
+        }
+    }
+
+    /**
+     * Aggregates the database into a new state, using the same grouped query as the database summary.
+     */
+    private State load() {
+        State loaded = new State();
+        for (String status : STATUSES) {
+            loaded.byStatus.put(status, new Totals());
+        }
+        List<Object[]> rows = new ArrayList<>(invoiceRepository.sumByStatusAndDueDate());
+        rows.addAll(invoiceArchiver.sumByStatus());
+        for (Object[] row : rows) {
+            String status = (String) row[0];
+            LocalDate dueDate = (LocalDate) row[1];
+            long count = ((Number) row[2]).longValue();
+            long amountCents = InvoiceRules.toCents(((Number) row[3]).doubleValue());
+            long paidCents = InvoiceRules.toCents(((Number) row[4]).doubleValue());
+            loaded.byStatus.computeIfAbsent(status, key -> new Totals()).add(count, amountCents, paidCents);
+            if (InvoiceStatusConstants.PENDING.equals(status)) {
+                loaded.pendingByDueDate.computeIfAbsent(dueDate == null ? LocalDate.MAX : dueDate, key -> new Totals())
+                        .add(count, amountCents, paidCents);
+            }
+        }
+        loaded.agingFor(LocalDate.now());
+        return loaded;
+    }
+
+    /**
+     * Striped counters of one group of invoices, with money in cents.
+     */
+    private static final class Totals {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder amountCents = new LongAdder();
+        private final LongAdder paidCents = new LongAdder();
+
+        void add(long count, long amountCents, long paidCents) {
+            this.count.add(count);
+            this.amountCents.add(amountCents);
+            this.paidCents.add(paidCents);
+        }
+
+        ReceivablesTotalsDTO toDto() {
+            double amount = amountCents.sum() / 100.0;
+            double paidAmount = paidCents.sum() / 100.0;
+            return new ReceivablesTotalsDTO(count.sum(), amount, paidAmount, amount - paidAmount);
+        }
+    }
+
+    /**
+     * Pending totals per aging bucket as of one day.
+     */
+    private static final class Aging {
+
+        private final LocalDate asOf;
+        private final Totals[] buckets = new Totals[AgingBucket.values().length];
+
+        Aging(LocalDate asOf) {
+            this.asOf = asOf;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new Totals();
+            }
+        }
+    }
+
+    /**
+     * One generation of the view; reconciliation swaps in a new one.
+     */
+    private static final class State {
+
+        private final Map<String, Totals> byStatus = new ConcurrentHashMap<>();
+        private final Map<LocalDate, Totals> pendingByDueDate = new ConcurrentHashMap<>();
+        private volatile Aging aging;
+
+        /**
+         * Returns the aging buckets as of the given day, re-bucketing the per-due-date totals when the
+         * day has changed. Updates racing with the re-bucketing may be missed until reconciliation.
+         */
+        Aging agingFor(LocalDate today) {
+            Aging current = aging;
+            if (current != null && current.asOf.equals(today)) {
+                return current;
+            }
+            synchronized (this) {
+                if (aging == null || !aging.asOf.equals(today)) {
+                    Aging rebuilt = new Aging(today);
+                    pendingByDueDate.forEach((dueDate, totals) -> rebuilt.buckets[AgingBucket.of(dueDate, today).ordinal()]
+                            .add(totals.count.sum(), totals.amountCents.sum(), totals.paidCents.sum()));
+                    aging = rebuilt;
+                }
+                return aging;
+            }
+        }
+    }
+}
@@ -0,0 +1,3 @@
+-- Ledger and buffered payments that could not be applied because their invoice was no longer pending.
+-- They are kept, marked as folded so that they are not retried, for refunds and reconciliation.
+ALTER TABLE payment ADD COLUMN rejected BIT NOT NULL DEFAULT 0;
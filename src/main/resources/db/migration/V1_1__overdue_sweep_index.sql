@@ -0,0 +1,2 @@
+-- Overdue sweeps select pending invoices by due date.
+CREATE INDEX idx_invoice_status_due_date ON invoice (status, due_date);
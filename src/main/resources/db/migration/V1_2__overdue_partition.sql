@@ -0,0 +1,17 @@
+-- Leased, checkpointed ID ranges of overdue sweeps, claimed by the workers of all instances.
+CREATE TABLE overdue_partition (
+    id               VARCHAR(255) NOT NULL,
+    run_key          VARCHAR(255),
+    partition_index  INTEGER      NOT NULL,
+    range_start      BIGINT       NOT NULL,
+    range_end        BIGINT       NOT NULL,
+    checkpoint       BIGINT       NOT NULL,
+    done             BIT          NOT NULL,
+    owner            VARCHAR(255),
+    lease_expires_at DATETIME(6),
+    scanned          BIGINT       NOT NULL,
+    paid             BIGINT       NOT NULL,
+    voided           BIGINT       NOT NULL,
+    PRIMARY KEY (id)
+);
+CREATE INDEX idx_overdue_partition_run_key ON overdue_partition (run_key, done);
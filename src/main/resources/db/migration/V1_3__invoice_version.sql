@@ -0,0 +1,2 @@
+-- Optimistic locking version of each invoice; existing invoices start at 0.
+ALTER TABLE invoice ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
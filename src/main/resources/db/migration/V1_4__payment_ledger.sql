@@ -0,0 +1,16 @@
+-- Append-only ledger of payments, folded into the invoices' paid amounts in ledger mode.
+CREATE TABLE payment (
+    id         BIGINT      NOT NULL,
+    invoice_id BIGINT,
+    amount     FLOAT(53)   NOT NULL,
+    created_at DATETIME(6),
+    folded     BIT         NOT NULL,
+    PRIMARY KEY (id)
+);
+CREATE INDEX idx_payment_invoice_id ON payment (invoice_id, id);
+CREATE INDEX idx_payment_folded ON payment (folded, id);
+
+CREATE TABLE payment_seq (
+    next_val BIGINT
+);
+INSERT INTO payment_seq VALUES (1);
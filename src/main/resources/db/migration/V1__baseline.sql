@@ -0,0 +1,16 @@
+-- Schema as previously generated by Hibernate (ddl-auto: update).
+-- Existing databases are baselined at this version and skip it.
+
+CREATE TABLE invoice (
+    id          BIGINT       NOT NULL,
+    amount      FLOAT(53)    NOT NULL,
+    paid_amount FLOAT(53)    NOT NULL,
+    due_date    DATE,
+    status      VARCHAR(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE invoice_seq (
+    next_val BIGINT
+);
+INSERT INTO invoice_seq VALUES (1);
@@ -0,0 +1,20 @@
+-- Store the invoice status as a one-byte code (0 = pending, 1 = paid, 2 = void) instead of a varchar.
+ALTER TABLE invoice ADD COLUMN status_code TINYINT NOT NULL DEFAULT 0;
+UPDATE invoice SET status_code = CASE status WHEN 'paid' THEN 1 WHEN 'void' THEN 2 ELSE 0 END;
+DROP INDEX idx_invoice_status_due_date ON invoice;
+ALTER TABLE invoice DROP COLUMN status;
+ALTER TABLE invoice RENAME COLUMN status_code TO status;
+
+-- Store money as fixed-precision decimals.
+ALTER TABLE invoice MODIFY COLUMN amount DECIMAL(19, 2) NOT NULL;
+ALTER TABLE invoice MODIFY COLUMN paid_amount DECIMAL(19, 2) NOT NULL;
+ALTER TABLE payment MODIFY COLUMN amount DECIMAL(19, 2) NOT NULL;
+
+-- Overdue and dashboard queries filter on status and range over the due date;
+-- keyset pages filtered by status range over the id.
+CREATE INDEX idx_invoice_status_due_date ON invoice (status, due_date);
+CREATE INDEX idx_invoice_status_id ON invoice (status, id);
+
+-- Invoice IDs are allocated with the pooled-lo optimizer, which hands out next_val onwards.
+-- Move it past any ID handed out under the previous pooled allocation.
+UPDATE invoice_seq SET next_val = GREATEST(next_val + 1, (SELECT COALESCE(MAX(id), 0) + 1 FROM invoice));
@@ -0,0 +1,4 @@
+-- Receivables summaries aggregate amounts per status and due date. Extending the (status, due_date)
+-- index with the amounts lets them be computed from the index alone; overdue queries use its prefix.
+CREATE INDEX idx_invoice_status_due_amounts ON invoice (status, due_date, amount, paid_amount);
+DROP INDEX idx_invoice_status_due_date ON invoice;
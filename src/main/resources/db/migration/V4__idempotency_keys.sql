@@ -0,0 +1,9 @@
+-- Responses of requests made with an Idempotency-Key, replayed to client retries.
+CREATE TABLE idempotency_key (
+    id          VARCHAR(255) NOT NULL,
+    fingerprint VARCHAR(255) NOT NULL,
+    response    VARCHAR(1000),
+    expires_at  DATETIME(6)  NOT NULL,
+    PRIMARY KEY (id)
+);
+CREATE INDEX idx_idempotency_key_expires_at ON idempotency_key (expires_at);
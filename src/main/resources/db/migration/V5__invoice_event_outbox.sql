@@ -0,0 +1,21 @@
+-- Outbox of invoice changes, written in the same transaction as the change and published by the relay,
+-- which assigns each event its position in the change feed.
+CREATE TABLE invoice_event (
+    id                 BIGINT         NOT NULL,
+    position           BIGINT,
+    type               VARCHAR(16)    NOT NULL,
+    invoice_id         BIGINT         NOT NULL,
+    related_invoice_id BIGINT,
+    payment_amount     DECIMAL(19, 2),
+    amount             DECIMAL(19, 2) NOT NULL,
+    paid_amount        DECIMAL(19, 2) NOT NULL,
+    status             TINYINT        NOT NULL,
+    created_at         DATETIME(6),
+    PRIMARY KEY (id)
+);
+CREATE UNIQUE INDEX idx_invoice_event_position ON invoice_event (position);
+
+CREATE TABLE invoice_event_seq (
+    next_val BIGINT
+);
+INSERT INTO invoice_event_seq VALUES (1);
@@ -0,0 +1,9 @@
+-- Lock and due-date watermark of the scheduled overdue sweep, one row per schedule.
+CREATE TABLE overdue_schedule (
+    id              VARCHAR(255) NOT NULL,
+    watermark       DATE,
+    owner           VARCHAR(255),
+    lock_expires_at DATETIME(6),
+    PRIMARY KEY (id)
+);
+INSERT INTO overdue_schedule (id) VALUES ('overdue-sweep');
@@ -0,0 +1,21 @@
+-- Paid and void invoices moved out of the invoice table once they are old enough. The due date is part
+-- of the primary key so that MySQL can partition the table by it; lookups by ID use the key's prefix.
+CREATE TABLE invoice_archive (
+    id          BIGINT         NOT NULL,
+    amount      DECIMAL(19, 2) NOT NULL,
+    paid_amount DECIMAL(19, 2) NOT NULL,
+    due_date    DATE           NOT NULL,
+    status      TINYINT        NOT NULL,
+    archived_at DATETIME(6)    NOT NULL,
+    PRIMARY KEY (id, due_date)
+);
+
+-- Running totals of the archive per status code, kept in step with it so summaries need not scan it.
+CREATE TABLE invoice_archive_total (
+    status        TINYINT        NOT NULL,
+    invoice_count BIGINT         NOT NULL,
+    amount        DECIMAL(19, 2) NOT NULL,
+    paid_amount   DECIMAL(19, 2) NOT NULL,
+    PRIMARY KEY (status)
+);
+INSERT INTO invoice_archive_total (status, invoice_count, amount, paid_amount) VALUES (1, 0, 0, 0), (2, 0, 0, 0);
@@ -0,0 +1,7 @@
+-- Segments of the local payment log whose payments have been applied, written in the same transaction
+-- as the payments so that a segment left behind by a crash is replayed exactly once.
+CREATE TABLE payment_buffer_segment (
+    id         VARCHAR(64) NOT NULL,
+    flushed_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
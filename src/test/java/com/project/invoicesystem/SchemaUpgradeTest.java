@@ -0,0 +1,62 @@
+package com.project.invoicesystem;
+
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.service.InvoiceService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the application on a database in the schema Hibernate generated before Flyway was introduced,
+ * so that it is baselined and upgraded by the migrations and then validated.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SchemaUpgradeTest {
+
+    private static final String URL = "jdbc:h2:mem:legacydb;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @DynamicPropertySource
+    static void legacyDatabase(DynamicPropertyRegistry registry) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table invoice (id bigint not null, amount float(53) not null, "
+                    + "paid_amount float(53) not null, due_date date, status varchar(255), primary key (id))");
+            statement.execute("create table invoice_seq (next_val bigint)");
+            statement.execute("insert into invoice_seq values (101)");
+            statement.execute("insert into invoice values (1, 100, 100, '2024-01-31', 'paid')");
+            statement.execute("insert into invoice values (52, 80, 20, '2024-02-29', 'pending')");
+        }
+        registry.add("spring.datasource.url", () -> URL);
+    }
+
+    @Test
+    void testLegacyInvoicesSurviveUpgrade() {
+        InvoiceResponseDTO paid = invoiceService.getInvoice(1L);
+        assertEquals(InvoiceStatusConstants.PAID, paid.getStatus());
+        assertEquals(100.0, paid.getPaidAmount());
+
+        InvoiceResponseDTO pending = invoiceService.getInvoice(52L);
+        assertEquals(InvoiceStatusConstants.PENDING, pending.getStatus());
+        assertEquals(20.0, invoiceService.payInvoice(52L, 60.0).getPaidAmount() - 60.0);
+
+        InvoiceResponseDTO created = invoiceService.createInvoice(new InvoiceRequestDTO(10.0, LocalDate.now()));
+        assertTrue(created.getId() > 52, "new IDs must not collide with legacy ones");
+    }
+}
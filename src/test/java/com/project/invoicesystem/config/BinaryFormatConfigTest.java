@@ -0,0 +1,73 @@
+package com.project.invoicesystem.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.service.InvoiceService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BinaryFormatConfigTest {
+
+    private static final String SMILE = "application/x-jackson-smile";
+    private static final String CBOR = "application/cbor";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Test
+    void testInvoiceListIsNegotiatedAsSmileOrCbor() throws Exception {
+        invoiceService.createInvoice(new InvoiceRequestDTO(125.5, LocalDate.of(2030, 1, 31)));
+        invoiceService.createInvoice(new InvoiceRequestDTO(99.99, LocalDate.of(2030, 2, 28)));
+
+        List<InvoiceResponseDTO> json = read(fetch(MediaType.APPLICATION_JSON_VALUE), new JsonFactory());
+        byte[] smile = fetch(SMILE);
+        byte[] cbor = fetch(CBOR);
+
+        assertFalse(json.isEmpty());
+        assertEquals(json, read(smile, BinaryFormatConfig.smileFactory()));
+        assertEquals(json, read(cbor, BinaryFormatConfig.cborFactory()));
+        assertTrue(smile.length < fetch(MediaType.APPLICATION_JSON_VALUE).length);
+    }
+
+    @Test
+    void testJsonStaysTheDefault() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/invoices").param("limit", "1")).andReturn().getResponse();
+
+        assertEquals(200, response.getStatus());
+        assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(response.getContentType())));
+    }
+
+    private byte[] fetch(String accept) throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/invoices").param("limit", "50")
+                .header(HttpHeaders.ACCEPT, accept)).andReturn().getResponse();
+        assertEquals(200, response.getStatus());
+        assertEquals(accept, MediaType.parseMediaType(response.getContentType()).toString());
+        return response.getContentAsByteArray();
+    }
+
+    private static List<InvoiceResponseDTO> read(byte[] body, JsonFactory factory) throws Exception {
+        ObjectMapper mapper = new ObjectMapper(factory).findAndRegisterModules();
+        return mapper.readValue(body, mapper.getTypeFactory().constructCollectionType(List.class, InvoiceResponseDTO.class));
+    }
+}
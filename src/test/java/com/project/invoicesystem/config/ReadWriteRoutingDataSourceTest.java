@@ -0,0 +1,77 @@
+package com.project.invoicesystem.config;
+
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.filter.ReplicaReadFilter;
+import com.project.invoicesystem.service.InvoiceService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Uses the test database as its own "replica" and tells the pools apart by their connection counts.
+ */
+@SpringBootTest(properties = {
+        "invoice.datasource.replica.jdbc-url=jdbc:h2:mem:invoicesystemdb;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "invoice.datasource.replica.username=sa",
+        "invoice.datasource.replica.maximum-pool-size=2"})
+@ActiveProfiles("test")
+class ReadWriteRoutingDataSourceTest {
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private ReplicaReadFilter replicaReadFilter;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replicaDataSource;
+
+    @AfterEach
+    void tearDown() {
+        ReplicaReads.clear();
+    }
+
+    @Test
+    void testReadOnlyTransactionsUseReplicaOnlyWhenAllowed() {
+        InvoiceResponseDTO invoice = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, LocalDate.now()));
+        invoiceService.getPayments(invoice.getId(), null, 10);
+        assertFalse(replicaDataSource.isRunning(), "replica used without permission");
+
+        ReplicaReads.allow();
+        assertTrue(invoiceService.getPayments(invoice.getId(), null, 10).isEmpty());
+
+        assertTrue(replicaDataSource.isRunning(), "replica not used");
+        assertTrue(replicaDataSource.getHikariPoolMXBean().getTotalConnections() > 0);
+    }
+
+    @Test
+    void testFilterAllowsReplicaForGetRequestsUnlessReadYourWritesIsRequested() throws Exception {
+        List<Boolean> allowed = new ArrayList<>();
+        MockHttpServletRequest get = new MockHttpServletRequest("GET", "/invoices");
+        MockHttpServletRequest readYourWrites = new MockHttpServletRequest("GET", "/invoices");
+        readYourWrites.addHeader(ReplicaReadFilter.READ_YOUR_WRITES_HEADER, "true");
+        MockHttpServletRequest post = new MockHttpServletRequest("POST", "/invoices");
+
+        for (MockHttpServletRequest request : List.of(get, readYourWrites, post)) {
+            replicaReadFilter.doFilter(request, new MockHttpServletResponse(),
+                    (req, res) -> allowed.add(ReplicaReads.isAllowed()));
+        }
+
+        assertEquals(List.of(true, false, false), allowed);
+        assertFalse(ReplicaReads.isAllowed());
+    }
+}
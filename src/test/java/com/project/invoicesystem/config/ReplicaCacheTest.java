@@ -0,0 +1,73 @@
+package com.project.invoicesystem.config;
+
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import com.project.invoicesystem.service.InvoiceService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Uses a separate database that never receives the primary's writes as the replica, i.e. one that lags forever.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ReplicaCacheTest {
+
+    private static final String REPLICA_URL = "jdbc:h2:mem:laggingreplica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void laggingReplica(DynamicPropertyRegistry registry) {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate();
+        registry.add("invoice.datasource.replica.jdbc-url", () -> REPLICA_URL);
+        registry.add("invoice.datasource.replica.username", () -> "sa");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicaReads.clear();
+    }
+
+    @Test
+    void testCacheMissOnReplicaRequestIsLoadedFromPrimary() {
+        InvoiceResponseDTO created = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, LocalDate.now()));
+        Cache cache = cacheManager.getCache(CacheConfig.INVOICES);
+        cache.evict(created.getId());
+
+        ReplicaReads.allow();
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        assertTrue(readOnly.execute(status -> invoiceRepository.findById(created.getId())).isEmpty(),
+                "replica not used");
+
+        assertEquals(created, invoiceService.getInvoice(created.getId()));
+        assertTrue(ReplicaReads.isAllowed());
+        assertEquals(created, cache.get(created.getId(), InvoiceResponseDTO.class));
+    }
+}
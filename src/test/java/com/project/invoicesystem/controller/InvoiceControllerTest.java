@@ -1,22 +1,55 @@
 package com.project.invoicesystem.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.invoicesystem.constants.InvoiceFileFormat;
 import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.BatchItemResultDTO;
+import com.project.invoicesystem.dto.InvoiceFilter;
 import com.project.invoicesystem.dto.InvoiceRequestDTO;
 import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.dto.OverdueSummaryDTO;
+import com.project.invoicesystem.dto.ReceivablesSummaryDTO;
+import com.project.invoicesystem.dto.ReceivablesTotalsDTO;
+import com.project.invoicesystem.dto.OverdueJobDTO;
+import com.project.invoicesystem.service.IdempotencyService;
+import com.project.invoicesystem.service.InMemoryIdempotencyStore;
 import com.project.invoicesystem.service.InvoiceService;
+import com.project.invoicesystem.service.InvoiceTransferService;
+import com.project.invoicesystem.service.OverdueJob;
+import com.project.invoicesystem.service.OverdueJobService;
+import com.project.invoicesystem.service.ReceivablesService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class InvoiceControllerTest {
@@ -24,12 +57,31 @@ class InvoiceControllerTest {
     @Mock
     private InvoiceService invoiceService;
 
+    @Mock
+    private OverdueJobService overdueJobService;
+
+    @Mock
+    private ReceivablesService receivablesService;
+
+    @Mock
+    private InvoiceTransferService invoiceTransferService;
+
+    @Spy
+    private IdempotencyService idempotencyService = new IdempotencyService();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
     @InjectMocks
     private InvoiceController invoiceController;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(idempotencyService, "idempotencyStore", new InMemoryIdempotencyStore(100));
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        ReflectionTestUtils.setField(idempotencyService, "transactionManager", transactionManager);
     }
 
     @Test
@@ -42,7 +94,7 @@ class InvoiceControllerTest {
 
         when(invoiceService.createInvoice(requestDTO)).thenReturn(responseDTO);
 
-        ResponseEntity<InvoiceResponseDTO> response = invoiceController.createInvoice(requestDTO);
+        ResponseEntity<InvoiceResponseDTO> response = invoiceController.createInvoice(requestDTO, null);
 
         assertNotNull(response);
         assertNotNull(response.getBody(), "Response body is null");
@@ -51,18 +103,106 @@ class InvoiceControllerTest {
         assertEquals(InvoiceStatusConstants.PENDING, response.getBody().getStatus());
     }
 
+    @Test
+    void testCreateInvoicesFromStream() throws Exception {
+        String body = "{\"amount\": 100.0, \"due_date\": \"2023-12-31\"}\n{\"amount\": 200.0, \"due_date\": \"2024-01-31\"}\n";
+        List<BatchItemResultDTO> results = List.of(new BatchItemResultDTO(0, null, null), new BatchItemResultDTO(1, null, null));
+        List<InvoiceRequestDTO> parsed = new ArrayList<>();
+        when(invoiceService.createInvoices(any())).thenAnswer(invocation -> {
+            Iterator<InvoiceRequestDTO> requests = invocation.getArgument(0);
+            requests.forEachRemaining(parsed::add);
+            return results;
+        });
+
+        ResponseEntity<List<BatchItemResultDTO>> response = invoiceController.createInvoicesFromStream(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(results, response.getBody());
+        assertEquals(2, parsed.size());
+        assertEquals(LocalDate.of(2024, 1, 31), parsed.get(1).getDueDate());
+    }
+
+    @Test
+    void testCreateInvoicesFromMalformedStream() {
+        when(invoiceService.createInvoices(any())).thenAnswer(invocation -> {
+            Iterator<InvoiceRequestDTO> requests = invocation.getArgument(0);
+            requests.forEachRemaining(request -> { });
+            return List.of();
+        });
+
+        assertThrows(IllegalArgumentException.class, () -> invoiceController.createInvoicesFromStream(
+                new ByteArrayInputStream("{\"amount\": ".getBytes(StandardCharsets.UTF_8))));
+    }
+
     @Test
     void testGetInvoices() {
         InvoiceResponseDTO responseDTO = new InvoiceResponseDTO(1L, 100.0, 0.0, LocalDate.of(2023, 12, 31), InvoiceStatusConstants.PENDING);
 
-        when(invoiceService.getInvoices()).thenReturn(List.of(responseDTO));
+        when(invoiceService.getInvoices(eq(null), eq(1), any(InvoiceFilter.class))).thenReturn(List.of(responseDTO));
 
-        ResponseEntity<List<InvoiceResponseDTO>> response = invoiceController.getInvoices();
+        ResponseEntity<List<InvoiceResponseDTO>> response = invoiceController.getInvoices(null, 1, null, null, null);
 
         assertNotNull(response);
         assertNotNull(response.getBody(), "Response body is null");
         assertEquals(200, response.getStatusCode().value());
         assertFalse(response.getBody().isEmpty(), "Response body is empty");
+        assertEquals("1", response.getHeaders().getFirst(InvoiceController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void testGetInvoicesLastPageHasNoCursor() {
+        when(invoiceService.getInvoices(eq(5L), eq(10), any(InvoiceFilter.class))).thenReturn(List.of());
+
+        ResponseEntity<List<InvoiceResponseDTO>> response = invoiceController.getInvoices(5L, 10, InvoiceStatusConstants.PENDING, null, null);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertNull(response.getHeaders().getFirst(InvoiceController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void testStreamInvoices() throws Exception {
+        InvoiceResponseDTO first = new InvoiceResponseDTO(1L, 100.0, 0.0, LocalDate.of(2023, 12, 31), InvoiceStatusConstants.PENDING);
+        InvoiceResponseDTO second = new InvoiceResponseDTO(2L, 200.0, 0.0, LocalDate.of(2024, 1, 31), InvoiceStatusConstants.PENDING);
+        doAnswer(invocation -> {
+            Consumer<InvoiceResponseDTO> sink = invocation.getArgument(2);
+            sink.accept(first);
+            sink.accept(second);
+            return null;
+        }).when(invoiceService).streamInvoices(eq(null), any(InvoiceFilter.class), any());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        invoiceController.streamInvoices(null, null, null, null, response);
+
+        assertTrue(response.getContentType().startsWith(InvoiceController.NDJSON));
+        String[] lines = response.getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(2L, objectMapper.readValue(lines[1], InvoiceResponseDTO.class).getId());
+    }
+
+    @Test
+    void testExportInvoicesCompressesWhenAccepted() throws Exception {
+        when(invoiceTransferService.exportInvoices(eq(InvoiceFileFormat.CSV), any())).thenAnswer(invocation -> {
+            try (OutputStream out = invocation.getArgument(1)) {
+                out.write("id,amount\n1,100.00\n".getBytes(StandardCharsets.UTF_8));
+            }
+            return 1L;
+        });
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        invoiceController.exportInvoices("csv", "gzip, deflate", response);
+
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(response.getContentType().startsWith("text/csv"));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertEquals("id,amount\n1,100.00\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testImportInvoicesRejectsUnknownFormat() {
+        assertThrows(IllegalArgumentException.class, () -> invoiceController.importInvoices("xml", null,
+                new ByteArrayInputStream(new byte[0])));
     }
 
     @Test
@@ -71,7 +211,7 @@ class InvoiceControllerTest {
 
         when(invoiceService.payInvoice(1L, 100.0)).thenReturn(responseDTO);
 
-        ResponseEntity<InvoiceResponseDTO> response = invoiceController.payInvoice(1L, Map.of("amount", 100.0));
+        ResponseEntity<InvoiceResponseDTO> response = invoiceController.payInvoice(1L, Map.of("amount", 100.0), null);
 
         assertNotNull(response);
         assertNotNull(response.getBody(), "Response body is null");
@@ -81,9 +221,55 @@ class InvoiceControllerTest {
     }
 
     @Test
-    void testProcessOverdue() {
+    void testPayInvoiceReplaysRetryWithSameIdempotencyKey() {
+        InvoiceResponseDTO responseDTO = new InvoiceResponseDTO(1L, 100.0, 100.0, LocalDate.of(2023, 12, 31), InvoiceStatusConstants.PAID);
+        when(invoiceService.payInvoice(1L, 100.0)).thenReturn(responseDTO);
+
+        ResponseEntity<InvoiceResponseDTO> first = invoiceController.payInvoice(1L, Map.of("amount", 100.0), "key-1");
+        ResponseEntity<InvoiceResponseDTO> retry = invoiceController.payInvoice(1L, Map.of("amount", 100.0), "key-1");
+
+        assertEquals(first.getBody(), retry.getBody());
+        verify(invoiceService, times(1)).payInvoice(1L, 100.0);
+    }
+
+    @Test
+    void testProcessOverdueSubmitsJob() {
         Map<String, Object> request = Map.of("late_fee", 50.0, "overdue_days", 30);
-        ResponseEntity<Void> response = invoiceController.processOverdue(request);
-        assert response.getStatusCode() == HttpStatus.NO_CONTENT;
+        OverdueJob job = new OverdueJob(50.0, 30, null);
+        when(overdueJobService.submit(50.0, 30)).thenReturn(job);
+
+        ResponseEntity<OverdueJobDTO> response = invoiceController.processOverdue(request);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals("/invoices/jobs/" + job.getId(), response.getHeaders().getLocation().toString());
+        assertNotNull(response.getBody(), "Response body is null");
+        assertEquals(job.getId(), response.getBody().getId());
+        assertEquals("queued", response.getBody().getStatus());
+    }
+
+    @Test
+    void testGetJobReportsProgress() {
+        OverdueJob job = new OverdueJob(50.0, 30, null);
+        job.onChunk(new OverdueSummaryDTO(3, 1, 2, 3));
+        when(overdueJobService.getJob(job.getId())).thenReturn(job);
+
+        ResponseEntity<OverdueJobDTO> response = invoiceController.getJob(job.getId());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(3, response.getBody().getProcessed());
+        assertEquals(1, response.getBody().getPaid());
+        assertEquals(2, response.getBody().getVoided());
+        assertEquals(0, response.getBody().getFailedPartitions());
+    }
+
+    @Test
+    void testGetSummary() {
+        ReceivablesSummaryDTO summary = new ReceivablesSummaryDTO(LocalDate.now(), new ReceivablesTotalsDTO(2, 300.0, 100.0, 200.0), Map.of(), Map.of());
+        when(receivablesService.getSummary(false)).thenReturn(summary);
+
+        ResponseEntity<ReceivablesSummaryDTO> response = invoiceController.getSummary(false);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(summary, response.getBody());
     }
 }
@@ -0,0 +1,130 @@
+package com.project.invoicesystem.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionLimitFilterTest {
+
+    private final ConnectionLimitFilter filter = new ConnectionLimitFilter(1, Duration.ofMillis(50),
+            Duration.ofMillis(10), Duration.ofMillis(30), 1, new SimpleMeterRegistry());
+
+    @Test
+    void testRequestPassesAndReleasesPermit() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/invoices/1"), response, new MockFilterChain());
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(1, filter.getAvailablePermits());
+    }
+
+    @Test
+    void testRequestIsRejectedWhenPermitsAreExhausted() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("POST", "/invoices"), new MockHttpServletResponse(),
+                        (request, response) -> {
+                            entered.countDown();
+                            try {
+                                release.await(5, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        holder.start();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/invoices"), rejected, new MockFilterChain());
+        MockHttpServletResponse actuator = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), actuator, new MockFilterChain());
+
+        release.countDown();
+        holder.join();
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertEquals(HttpStatus.OK.value(), actuator.getStatus());
+        assertEquals(1, filter.getAvailablePermits());
+    }
+
+    @Test
+    void testOverdueRequestsHaveTheirOwnBulkhead() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = holdPermit("/invoices/process-overdue", release);
+
+        MockHttpServletResponse invoice = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/invoices/1"), invoice, new MockFilterChain());
+        MockHttpServletResponse job = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/invoices/jobs/1"), job, new MockFilterChain());
+
+        release.countDown();
+        holder.join();
+        assertEquals(HttpStatus.OK.value(), invoice.getStatus());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), job.getStatus());
+    }
+
+    @Test
+    void testStandingQueueShortensWaitsUntilItDrains() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = holdPermit("/invoices", release);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/invoices/1"), new MockHttpServletResponse(), new MockFilterChain());
+        Thread.sleep(30);
+        filter.doFilter(new MockHttpServletRequest("GET", "/invoices/1"), new MockHttpServletResponse(), new MockFilterChain());
+        assertTrue(filter.isOverloaded());
+        long start = System.nanoTime();
+        MockHttpServletResponse shed = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/invoices/1"), shed, new MockFilterChain());
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        release.countDown();
+        holder.join();
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), shed.getStatus());
+        assertTrue(waitedMillis < 45, "waited " + waitedMillis + " ms");
+        MockHttpServletResponse recovered = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/invoices/1"), recovered, new MockFilterChain());
+        assertEquals(HttpStatus.OK.value(), recovered.getStatus());
+        assertFalse(filter.isOverloaded());
+    }
+
+    /**
+     * Starts a request on another thread that holds its permit until {@code release} is counted down.
+     */
+    private Thread holdPermit(String path, CountDownLatch release) throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("POST", path), new MockHttpServletResponse(),
+                        (request, response) -> {
+                            entered.countDown();
+                            try {
+                                release.await(5, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        holder.start();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        return holder;
+    }
+}
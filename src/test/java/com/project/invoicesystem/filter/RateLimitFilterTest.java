@@ -0,0 +1,60 @@
+package com.project.invoicesystem.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RateLimitFilter filter = new RateLimitFilter(
+            request -> new HandlerExecutionChain(new HandlerMethod(new Endpoints(),
+                    request.getRequestURI().endsWith("/payments") ? "payInvoice" : "getInvoice")),
+            new MockEnvironment()
+                    .withProperty("invoice.rate-limit.endpoints.pay-invoice.rate", "1")
+                    .withProperty("invoice.rate-limit.endpoints.pay-invoice.burst", "2"),
+            meterRegistry, "X-Client-Id", 1000, 1000, 100, Duration.ofMinutes(1));
+
+    @Test
+    void testClientIsLimitedPerEndpoint() throws Exception {
+        assertEquals(HttpStatus.OK.value(), send("POST", "/invoices/1/payments", "a").getStatus());
+        assertEquals(HttpStatus.OK.value(), send("POST", "/invoices/1/payments", "a").getStatus());
+        MockHttpServletResponse limited = send("POST", "/invoices/1/payments", "a");
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), limited.getStatus());
+        assertEquals("1", limited.getHeader("Retry-After"));
+        assertEquals(HttpStatus.OK.value(), send("POST", "/invoices/1/payments", "b").getStatus());
+        assertEquals(HttpStatus.OK.value(), send("GET", "/invoices/1", "a").getStatus());
+        assertEquals(1.0, meterRegistry.get("invoice.rate-limit.rejected").tag("endpoint", "pay-invoice").counter().count());
+        assertEquals(1.0, meterRegistry.get("invoice.rate-limit.rate").tag("endpoint", "pay-invoice").gauge().value());
+    }
+
+    private MockHttpServletResponse send(String method, String uri, String client) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.addHeader("X-Client-Id", client);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    @SuppressWarnings("unused")
+    static class Endpoints {
+
+        public void payInvoice() {
+        }
+
+        public void getInvoice() {
+        }
+    }
+}
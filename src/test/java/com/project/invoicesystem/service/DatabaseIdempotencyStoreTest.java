@@ -0,0 +1,59 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.repository.IdempotencyKeyRepository;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "invoice.idempotency.store=database")
+@ActiveProfiles("test")
+class DatabaseIdempotencyStoreTest {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Test
+    void testRetryIsReplayedFromTheStoredResponse() {
+        InvoiceResponseDTO invoice = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, LocalDate.now().plusDays(10)));
+        String scope = "payment:" + invoice.getId();
+
+        InvoiceResponseDTO first = idempotencyService.execute(scope, "key", "10.0", () -> invoiceService.payInvoice(invoice.getId(), 10.0));
+        InvoiceResponseDTO retry = idempotencyService.execute(scope, "key", "10.0", () -> invoiceService.payInvoice(invoice.getId(), 10.0));
+
+        assertEquals(first, retry);
+        assertEquals(10.0, invoiceRepository.findById(invoice.getId()).orElseThrow().getPaidAmount());
+        assertEquals(1, invoiceService.getPayments(invoice.getId(), null, 10).size());
+    }
+
+    @Test
+    void testKeyAndPaymentCommitTogether() {
+        InvoiceResponseDTO invoice = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, LocalDate.now().plusDays(10)));
+        String scope = "payment:" + invoice.getId();
+
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute(scope, "key", "10.0", () -> {
+            invoiceService.payInvoice(invoice.getId(), 10.0);
+            throw new IllegalStateException("Request cut short after the payment");
+        }));
+
+        assertEquals(0.0, invoiceRepository.findById(invoice.getId()).orElseThrow().getPaidAmount());
+        assertFalse(idempotencyKeyRepository.existsById(scope + ":key"));
+        assertEquals(10.0, idempotencyService.execute(scope, "key", "10.0", () -> invoiceService.payInvoice(invoice.getId(), 10.0)).getPaidAmount());
+    }
+}
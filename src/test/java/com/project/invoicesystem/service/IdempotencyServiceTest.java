@@ -0,0 +1,162 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.exception.IdempotencyConflictException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyServiceTest {
+
+    private final IdempotencyService idempotencyService = new IdempotencyService();
+
+    private final FakeTransactionManager transactionManager = new FakeTransactionManager();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final InvoiceResponseDTO response = new InvoiceResponseDTO(1L, 100.0, 40.0, LocalDate.of(2024, 1, 31), InvoiceStatusConstants.PENDING);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(idempotencyService, "idempotencyStore", new InMemoryIdempotencyStore(100));
+        ReflectionTestUtils.setField(idempotencyService, "transactionManager", transactionManager);
+    }
+
+    @Test
+    void testReplaysCompletedRequest() {
+        InvoiceResponseDTO first = idempotencyService.execute("payment:1", "key", "40.0", this::pay);
+        InvoiceResponseDTO retry = idempotencyService.execute("payment:1", "key", "40.0", this::pay);
+
+        assertSame(first, retry);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testKeysAreScoped() {
+        idempotencyService.execute("payment:1", "key", "40.0", this::pay);
+        idempotencyService.execute("payment:2", "key", "40.0", this::pay);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testRejectsKeyReusedForDifferentRequest() {
+        idempotencyService.execute("payment:1", "key", "40.0", this::pay);
+
+        assertThrows(IdempotencyConflictException.class, () -> idempotencyService.execute("payment:1", "key", "50.0", this::pay));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testRejectsRetryWhileInProgress() {
+        IdempotencyConflictException ex = assertThrows(IdempotencyConflictException.class, () ->
+                idempotencyService.execute("payment:1", "key", "40.0",
+                        () -> idempotencyService.execute("payment:1", "key", "40.0", this::pay)));
+
+        assertEquals("A request with this idempotency key is in progress", ex.getMessage());
+    }
+
+    @Test
+    void testFailedRequestCanBeRetried() {
+        assertThrows(IllegalArgumentException.class, () -> idempotencyService.execute("payment:1", "key", "40.0", () -> {
+            throw new IllegalArgumentException("Invoice not found");
+        }));
+
+        assertSame(response, idempotencyService.execute("payment:1", "key", "40.0", this::pay));
+    }
+
+    @Test
+    void testResponseIsOnlyStoredWhenTheRequestCommits() {
+        transactionManager.failCommit = true;
+        assertThrows(TransactionSystemException.class, () -> idempotencyService.execute("payment:1", "key", "40.0", this::pay));
+
+        transactionManager.failCommit = false;
+        idempotencyService.execute("payment:1", "key", "40.0", this::pay);
+        idempotencyService.execute("payment:1", "key", "40.0", this::pay);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testFailureAfterTheCommitIsNotReplayed() {
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("payment:1", "key", "40.0", () -> {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    throw new IllegalStateException("Payment log write failed");
+                }
+            });
+            return pay();
+        }));
+
+        idempotencyService.execute("payment:1", "key", "40.0", this::pay);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testRequestIsRetriedAfterAConcurrencyFailure() {
+        InvoiceResponseDTO result = idempotencyService.execute("payment:1", "key", "40.0", () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new OptimisticLockingFailureException("Invoice was updated concurrently");
+            }
+            return response;
+        });
+
+        assertSame(response, result);
+        assertSame(response, idempotencyService.execute("payment:1", "key", "40.0", this::pay));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testRejectsOverlongKey() {
+        assertThrows(IllegalArgumentException.class,
+                () -> idempotencyService.execute("payment:1", "k".repeat(IdempotencyKeys.MAX_KEY_LENGTH + 1), "40.0", this::pay));
+    }
+
+    private InvoiceResponseDTO pay() {
+        calls.incrementAndGet();
+        return response;
+    }
+
+    /**
+     * Runs transaction synchronizations like a real transaction manager, without a resource.
+     */
+    private static final class FakeTransactionManager extends AbstractPlatformTransactionManager {
+
+        private boolean failCommit;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            if (failCommit) {
+                throw new TransactionSystemException("Commit failed");
+            }
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
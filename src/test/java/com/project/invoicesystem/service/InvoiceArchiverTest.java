@@ -0,0 +1,88 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.config.CacheConfig;
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.dto.ReceivablesSummaryDTO;
+import com.project.invoicesystem.dto.ReceivablesTotalsDTO;
+import com.project.invoicesystem.repository.InvoiceArchiveRepository;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class InvoiceArchiverTest {
+
+    @Autowired
+    private InvoiceArchiver invoiceArchiver;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private ReceivablesService receivablesService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private InvoiceArchiveRepository invoiceArchiveRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    void testArchivesOldSettledInvoicesAndKeepsThemVisible() {
+        LocalDate longAgo = LocalDate.now().minusYears(2);
+        InvoiceResponseDTO paid = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, longAgo));
+        invoiceService.payInvoice(paid.getId(), 100.0);
+        InvoiceResponseDTO voided = invoiceService.createInvoice(new InvoiceRequestDTO(50.0, longAgo));
+        invoiceService.processOverdueInvoices(5.0, 30);
+        InvoiceResponseDTO pending = invoiceService.createInvoice(new InvoiceRequestDTO(70.0, longAgo));
+        InvoiceResponseDTO recentlyPaid = invoiceService.createInvoice(new InvoiceRequestDTO(30.0, LocalDate.now().minusDays(10)));
+        invoiceService.payInvoice(recentlyPaid.getId(), 30.0);
+        ReceivablesSummaryDTO databaseBefore = receivablesService.getSummary(true);
+        ReceivablesSummaryDTO viewBefore = receivablesService.getSummary(false);
+
+        assertTrue(invoiceArchiver.archiveAll() >= 2);
+
+        assertFalse(invoiceRepository.existsById(paid.getId()));
+        assertFalse(invoiceRepository.existsById(voided.getId()));
+        assertTrue(invoiceArchiveRepository.existsById(paid.getId()));
+        assertTrue(invoiceRepository.existsById(pending.getId()));
+        assertTrue(invoiceRepository.existsById(recentlyPaid.getId()));
+
+        cacheManager.getCache(CacheConfig.INVOICES).clear();
+        InvoiceResponseDTO archived = invoiceService.getInvoice(paid.getId());
+        assertEquals(InvoiceStatusConstants.PAID, archived.getStatus());
+        assertEquals(100.0, archived.getPaidAmount());
+        assertEquals(InvoiceStatusConstants.VOID, invoiceService.getInvoice(voided.getId()).getStatus());
+        assertEquals(1, invoiceService.getPayments(paid.getId(), null, 10).size());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> invoiceService.payInvoice(paid.getId(), 1.0));
+        assertEquals("Invalid or non-pending invoice", e.getMessage());
+
+        assertUnchanged(databaseBefore, receivablesService.getSummary(true));
+        assertUnchanged(viewBefore, receivablesService.getSummary(false));
+        assertEquals(0, invoiceArchiver.archiveAll());
+    }
+
+    private void assertUnchanged(ReceivablesSummaryDTO before, ReceivablesSummaryDTO after) {
+        assertTotalsEqual(before.getTotal(), after.getTotal());
+        before.getByStatus().forEach((status, totals) -> assertTotalsEqual(totals, after.getByStatus().get(status)));
+    }
+
+    private void assertTotalsEqual(ReceivablesTotalsDTO expected, ReceivablesTotalsDTO actual) {
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getAmount(), actual.getAmount(), 0.001);
+        assertEquals(expected.getPaidAmount(), actual.getPaidAmount(), 0.001);
+    }
+}
@@ -0,0 +1,56 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.config.CacheConfig;
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class InvoiceCacheTest {
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testLookupsAreServedFromCacheAndUpdatedOnWrites() {
+        double hitsBefore = cacheGets("hit");
+        InvoiceResponseDTO created = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, LocalDate.now().minusDays(20)));
+
+        assertEquals(created, invoiceService.getInvoice(created.getId()));
+        assertEquals(hitsBefore + 1, cacheGets("hit"));
+
+        invoiceService.payInvoice(created.getId(), 40.0);
+        assertEquals(40.0, invoiceService.getInvoice(created.getId()).getPaidAmount());
+
+        invoiceService.processOverdueInvoices(5.0, 10);
+        assertNull(cacheManager.getCache(CacheConfig.INVOICES).get(created.getId()));
+        assertEquals(InvoiceStatusConstants.PAID, invoiceService.getInvoice(created.getId()).getStatus());
+    }
+
+    private double cacheGets(String result) {
+        FunctionCounter counter = meterRegistry.find("cache.gets")
+                .tag("cache", CacheConfig.INVOICES)
+                .tag("result", result)
+                .functionCounter();
+        assertNotNull(counter, "Cache metrics are not registered");
+        return counter.count();
+    }
+}
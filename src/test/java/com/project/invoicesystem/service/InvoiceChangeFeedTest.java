@@ -0,0 +1,247 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.constants.InvoiceEventTypeConstants;
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.InvoiceEventDTO;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.entity.InvoiceEvent;
+import com.project.invoicesystem.exception.TooManyStreamsException;
+import com.project.invoicesystem.repository.InvoiceEventRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class InvoiceChangeFeedTest {
+
+    @Autowired
+    private InvoiceChangeFeed invoiceChangeFeed;
+
+    @Autowired
+    private InvoiceEventRelay invoiceEventRelay;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testStateChangesArePublishedInOrder() {
+        long since = latestPosition();
+
+        InvoiceResponseDTO invoice = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, LocalDate.now().plusDays(30)));
+        invoiceService.payInvoice(invoice.getId(), 40.0);
+        invoiceService.payInvoice(invoice.getId(), 60.0);
+        invoiceEventRelay.relayAll();
+
+        List<InvoiceEventDTO> events = invoiceChangeFeed.getChanges(since, InvoiceChangeFeed.MAX_BATCH_SIZE).stream()
+                .filter(event -> event.getInvoiceId().equals(invoice.getId()))
+                .collect(Collectors.toList());
+        assertEquals(List.of(InvoiceEventTypeConstants.CREATED, InvoiceEventTypeConstants.PAYMENT,
+                        InvoiceEventTypeConstants.PAYMENT, InvoiceEventTypeConstants.PAID),
+                events.stream().map(InvoiceEventDTO::getType).collect(Collectors.toList()));
+        assertEquals(40.0, events.get(1).getPaymentAmount());
+        assertEquals(100.0, events.get(3).getPaidAmount());
+        assertEquals(InvoiceStatusConstants.PAID, events.get(3).getStatus());
+        for (int i = 1; i < events.size(); i++) {
+            assertTrue(events.get(i).getPosition() > events.get(i - 1).getPosition());
+        }
+    }
+
+    @Test
+    void testFailedPaymentRecordsNoEvent() {
+        InvoiceResponseDTO invoice = invoiceService.createInvoice(new InvoiceRequestDTO(10.0, LocalDate.now()));
+        invoiceService.payInvoice(invoice.getId(), 10.0);
+        invoiceEventRelay.relayAll();
+        long since = latestPosition();
+
+        assertThrows(IllegalArgumentException.class, () -> invoiceService.payInvoice(invoice.getId(), 5.0));
+        invoiceEventRelay.relayAll();
+
+        assertTrue(invoiceChangeFeed.getChanges(since, InvoiceChangeFeed.MAX_BATCH_SIZE).stream()
+                .noneMatch(event -> event.getInvoiceId().equals(invoice.getId())));
+    }
+
+    @Test
+    void testLongPollCompletesWhenEventsArePublished() throws Exception {
+        long since = latestPosition();
+        CompletableFuture<List<InvoiceEventDTO>> poll = invoiceChangeFeed.poll(since, 100, Duration.ofSeconds(10));
+
+        InvoiceResponseDTO invoice = invoiceService.createInvoice(new InvoiceRequestDTO(25.0, LocalDate.now()));
+        invoiceEventRelay.relayAll();
+
+        List<InvoiceEventDTO> events = poll.get(5, TimeUnit.SECONDS);
+        assertTrue(events.stream().anyMatch(event -> event.getInvoiceId().equals(invoice.getId())));
+    }
+
+    @Test
+    void testLongPollSeesEventsPublishedByAnotherInstance() throws Exception {
+        Invoice invoice = new Invoice(25.0, LocalDate.now());
+        invoice.setId(1L);
+        InvoiceEvent event = new InvoiceEvent(InvoiceEventTypeConstants.CREATED, invoice);
+        event.setPosition(8L);
+        InvoiceEventRepository repository = mock(InvoiceEventRepository.class);
+        when(repository.findByPositionGreaterThanOrderByPosition(eq(7L), any(Limit.class))).thenReturn(List.of()).thenReturn(List.of(event));
+        InvoiceChangeFeed feed = new InvoiceChangeFeed();
+        ReflectionTestUtils.setField(feed, "invoiceEventRepository", repository);
+        ReflectionTestUtils.setField(feed, "refreshInterval", Duration.ofMillis(50));
+        feed.afterPropertiesSet();
+        try {
+            // Nothing calls published(): the event was relayed by another instance.
+            List<InvoiceEventDTO> events = feed.poll(7L, 100, Duration.ofSeconds(10)).get(5, TimeUnit.SECONDS);
+
+            assertEquals(List.of(8L), events.stream().map(InvoiceEventDTO::getPosition).collect(Collectors.toList()));
+        } finally {
+            feed.destroy();
+        }
+    }
+
+    @Test
+    void testWaitingPollsShareOneQuery() throws Exception {
+        InvoiceEventRepository repository = mock(InvoiceEventRepository.class);
+        when(repository.findByPositionGreaterThanOrderByPosition(anyLong(), any(Limit.class))).thenReturn(List.of());
+        when(repository.findByPositionGreaterThanOrderByPosition(eq(5L), any(Limit.class)))
+                .thenReturn(List.of()).thenReturn(List.of(event(6L), event(7L), event(8L)));
+        InvoiceChangeFeed feed = new InvoiceChangeFeed();
+        ReflectionTestUtils.setField(feed, "invoiceEventRepository", repository);
+        ReflectionTestUtils.setField(feed, "refreshInterval", Duration.ofHours(1));
+        feed.afterPropertiesSet();
+        try {
+            CompletableFuture<List<InvoiceEventDTO>> first = feed.poll(5L, 100, Duration.ofSeconds(10));
+            CompletableFuture<List<InvoiceEventDTO>> second = feed.poll(6L, 1, Duration.ofSeconds(10));
+            CompletableFuture<List<InvoiceEventDTO>> third = feed.poll(7L, 100, Duration.ofSeconds(10));
+            feed.published();
+
+            assertEquals(List.of(6L, 7L, 8L), positions(first.get(5, TimeUnit.SECONDS)));
+            assertEquals(List.of(7L), positions(second.get(5, TimeUnit.SECONDS)));
+            assertEquals(List.of(8L), positions(third.get(5, TimeUnit.SECONDS)));
+            // Each poll queried once when it registered; the refresh read the feed once for all of them.
+            verify(repository, times(2)).findByPositionGreaterThanOrderByPosition(eq(5L), any(Limit.class));
+            verify(repository, times(1)).findByPositionGreaterThanOrderByPosition(eq(6L), any(Limit.class));
+            verify(repository, times(1)).findByPositionGreaterThanOrderByPosition(eq(7L), any(Limit.class));
+        } finally {
+            feed.destroy();
+        }
+    }
+
+    @Test
+    void testStalledStreamsHoldAtMostTheSenderThreads() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger reads = new AtomicInteger();
+        InvoiceEventRepository repository = mock(InvoiceEventRepository.class);
+        when(repository.findByPositionGreaterThanOrderByPosition(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            // Stands in for a sender stuck on a slow client.
+            reads.incrementAndGet();
+            release.await(10, TimeUnit.SECONDS);
+            return List.of();
+        });
+        InvoiceChangeFeed feed = new InvoiceChangeFeed();
+        ReflectionTestUtils.setField(feed, "invoiceEventRepository", repository);
+        ReflectionTestUtils.setField(feed, "refreshInterval", Duration.ofHours(1));
+        ReflectionTestUtils.setField(feed, "senderThreads", 2);
+        feed.afterPropertiesSet();
+        try {
+            for (int i = 0; i < 5; i++) {
+                feed.stream(0);
+            }
+            awaitValue(2, reads::get);
+            Thread.sleep(100);
+
+            assertEquals(2, reads.get());
+            assertEquals(2, feed.getActiveSenders());
+            release.countDown();
+            awaitValue(5, reads::get);
+            assertTrue(reads.get() >= 5);
+        } finally {
+            release.countDown();
+            feed.destroy();
+        }
+    }
+
+    @Test
+    void testStreamsBeyondMaxStreamsAreRejected() throws Exception {
+        ReflectionTestUtils.setField(invoiceChangeFeed, "maxStreams", 0);
+        try {
+            assertThrows(TooManyStreamsException.class, () -> invoiceChangeFeed.stream(0));
+
+            MockHttpServletResponse response = mockMvc.perform(get("/invoices/changes")
+                    .accept(MediaType.TEXT_EVENT_STREAM)).andReturn().getResponse();
+            assertEquals(503, response.getStatus());
+        } finally {
+            ReflectionTestUtils.setField(invoiceChangeFeed, "maxStreams", 200);
+        }
+    }
+
+    @Test
+    void testLongPollReturnsEmptyPageWhenWaitExpires() throws Exception {
+        invoiceEventRelay.relayAll();
+
+        List<InvoiceEventDTO> events = invoiceChangeFeed.poll(Long.MAX_VALUE - 1, 100, Duration.ofMillis(100)).get(5, TimeUnit.SECONDS);
+
+        assertTrue(events.isEmpty());
+    }
+
+    private static InvoiceEvent event(long position) {
+        Invoice invoice = new Invoice(25.0, LocalDate.now());
+        invoice.setId(position);
+        InvoiceEvent event = new InvoiceEvent(InvoiceEventTypeConstants.CREATED, invoice);
+        event.setPosition(position);
+        return event;
+    }
+
+    private static void awaitValue(int expected, IntSupplier value) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (value.getAsInt() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static List<Long> positions(List<InvoiceEventDTO> events) {
+        return events.stream().map(InvoiceEventDTO::getPosition).collect(Collectors.toList());
+    }
+
+    private long latestPosition() {
+        invoiceEventRelay.relayAll();
+        long position = 0;
+        List<InvoiceEventDTO> page;
+        do {
+            page = invoiceChangeFeed.getChanges(position, InvoiceChangeFeed.MAX_BATCH_SIZE);
+            if (!page.isEmpty()) {
+                position = page.get(page.size() - 1).getPosition();
+            }
+        } while (page.size() == InvoiceChangeFeed.MAX_BATCH_SIZE);
+        return position;
+    }
+}
@@ -0,0 +1,80 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.constants.PaymentMode;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class InvoicePaymentConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int PAYMENTS_PER_THREAD = 25;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PaymentLedgerFolder paymentLedgerFolder;
+
+    @Autowired
+    private PaymentBuffer paymentBuffer;
+
+    @ParameterizedTest
+    @EnumSource(PaymentMode.class)
+    void testConcurrentPaymentsAreNotLost(PaymentMode mode) throws Exception {
+        InvoiceService target = AopTestUtils.getTargetObject(invoiceService);
+        ReflectionTestUtils.setField(target, "paymentMode", mode);
+        InvoiceResponseDTO created = invoiceService.createInvoice(new InvoiceRequestDTO(THREADS * PAYMENTS_PER_THREAD, LocalDate.now().plusDays(10)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                tasks.add(() -> {
+                    for (int j = 0; j < PAYMENTS_PER_THREAD; j++) {
+                        invoiceService.payInvoice(created.getId(), 1.0);
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            ReflectionTestUtils.setField(target, "paymentMode", PaymentMode.OPTIMISTIC);
+        }
+
+        paymentLedgerFolder.foldAll();
+        paymentBuffer.flush();
+        Invoice invoice = invoiceRepository.findById(created.getId()).orElseThrow();
+        assertEquals(THREADS * PAYMENTS_PER_THREAD, invoiceService.getPayments(created.getId(), null, InvoiceService.MAX_PAGE_SIZE).size());
+        assertEquals(THREADS * PAYMENTS_PER_THREAD, invoice.getPaidAmount());
+        assertEquals(InvoiceStatusConstants.PAID, invoice.getStatus());
+        assertThrows(IllegalArgumentException.class, () -> invoiceService.payInvoice(created.getId(), 1.0));
+    }
+}
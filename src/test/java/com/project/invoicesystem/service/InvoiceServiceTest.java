@@ -1,18 +1,31 @@
 package com.project.invoicesystem.service;
 
 import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.constants.PaymentMode;
+import com.project.invoicesystem.dto.BatchItemResultDTO;
+import com.project.invoicesystem.dto.InvoiceFilter;
 import com.project.invoicesystem.dto.InvoiceRequestDTO;
 import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.dto.OverdueSummaryDTO;
 import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.entity.Payment;
 import com.project.invoicesystem.mapper.InvoiceMapper;
 import com.project.invoicesystem.repository.InvoiceRepository;
+import com.project.invoicesystem.repository.PaymentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -28,6 +41,32 @@ class InvoiceServiceTest {
     @Mock
     private InvoiceRepository invoiceRepository;
 
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private OverdueInvoiceProcessor overdueInvoiceProcessor;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ReceivablesView receivablesView;
+
+    @Mock
+    private InvoiceOutbox invoiceOutbox;
+
+    @Mock
+    private InvoiceArchiver invoiceArchiver;
+
+    @Mock
+    private PaymentBuffer paymentBuffer;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private InvoiceMetrics invoiceMetrics = new InvoiceMetrics(meterRegistry);
+
     private final InvoiceMapper invoiceMapper = InvoiceMapper.INSTANCE;
 
     @BeforeEach
@@ -61,6 +100,58 @@ class InvoiceServiceTest {
         verify(invoiceRepository, times(1)).save(any(Invoice.class));
     }
 
+    @Test
+    void testCreateInvoiceRejectsNonPositiveAmount() {
+        InvoiceRequestDTO requestDTO = new InvoiceRequestDTO(0.0, LocalDate.now());
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> invoiceService.createInvoice(requestDTO));
+
+        assertEquals("Invoice amount must be positive", exception.getMessage());
+        verify(invoiceRepository, never()).save(any(Invoice.class));
+    }
+
+    @Test
+    void testCreateInvoiceRejectsFractionsOfACent() {
+        InvoiceRequestDTO requestDTO = new InvoiceRequestDTO(10.005, LocalDate.now());
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> invoiceService.createInvoice(requestDTO));
+
+        assertEquals("Invoice amount must not have more than 2 decimal places", exception.getMessage());
+        verify(invoiceRepository, never()).save(any(Invoice.class));
+    }
+
+    @Test
+    void testCreateInvoicesInChunks() {
+        ReflectionTestUtils.setField(invoiceService, "batchChunkSize", 2);
+        List<InvoiceRequestDTO> requests = List.of(
+                new InvoiceRequestDTO(100.0, LocalDate.now()),
+                new InvoiceRequestDTO(-1.0, LocalDate.now()),
+                new InvoiceRequestDTO(200.0, LocalDate.now()),
+                new InvoiceRequestDTO(300.0, null),
+                new InvoiceRequestDTO(400.0, LocalDate.now()));
+        long[] ids = {0};
+        when(invoiceRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Invoice> invoices = invocation.getArgument(0);
+            invoices.forEach(invoice -> invoice.setId(++ids[0]));
+            return new ArrayList<>(invoices);
+        });
+
+        List<BatchItemResultDTO> results = invoiceService.createInvoices(requests.iterator());
+
+        assertEquals(5, results.size());
+        assertEquals(1L, results.get(0).getInvoice().getId());
+        assertEquals("Invoice amount must be positive", results.get(1).getError());
+        assertEquals(2L, results.get(2).getInvoice().getId());
+        assertEquals("Invoice due date is required", results.get(3).getError());
+        assertEquals(3L, results.get(4).getInvoice().getId());
+        assertEquals(InvoiceStatusConstants.PENDING, results.get(4).getInvoice().getStatus());
+        verify(invoiceRepository, times(2)).saveAll(anyList());
+        verify(invoiceRepository, never()).save(any(Invoice.class));
+        verify(invoiceOutbox, times(2)).created(anyList());
+    }
+
     @Test
     void testGetInvoices() {
         Invoice invoice1 = new Invoice();
@@ -77,13 +168,37 @@ class InvoiceServiceTest {
         invoice2.setStatus(InvoiceStatusConstants.PAID);
         invoice2.setDueDate(LocalDate.now().plusDays(5));
 
-        when(invoiceRepository.findAll()).thenReturn(Arrays.asList(invoice1, invoice2));
+        when(invoiceRepository.findBy(ArgumentMatchers.<Specification<Invoice>>any(), any())).thenReturn(Arrays.asList(invoice1, invoice2));
 
-        List<InvoiceResponseDTO> invoices = invoiceService.getInvoices();
+        List<InvoiceResponseDTO> invoices = invoiceService.getInvoices(null, 10, new InvoiceFilter());
 
         assertNotNull(invoices);
         assertEquals(2, invoices.size());
-        verify(invoiceRepository, times(1)).findAll();
+        verify(invoiceRepository, times(1)).findBy(ArgumentMatchers.<Specification<Invoice>>any(), any());
+        verify(invoiceRepository, never()).findAll();
+    }
+
+    @Test
+    void testGetInvoicesRejectsNonPositivePageSize() {
+        assertThrows(IllegalArgumentException.class, () -> invoiceService.getInvoices(null, 0, new InvoiceFilter()));
+    }
+
+    @Test
+    void testStreamInvoicesStopsAfterPartialBatch() {
+        Invoice invoice = new Invoice();
+        invoice.setId(7L);
+        invoice.setAmount(100.0);
+        invoice.setStatus(InvoiceStatusConstants.PENDING);
+        invoice.setDueDate(LocalDate.now());
+
+        when(invoiceRepository.findBy(ArgumentMatchers.<Specification<Invoice>>any(), any())).thenReturn(List.of(invoice));
+
+        List<InvoiceResponseDTO> streamed = new ArrayList<>();
+        invoiceService.streamInvoices(null, new InvoiceFilter(), streamed::add);
+
+        assertEquals(1, streamed.size());
+        assertEquals(7L, streamed.get(0).getId());
+        verify(invoiceRepository, times(1)).findBy(ArgumentMatchers.<Specification<Invoice>>any(), any());
     }
 
     @Test
@@ -107,6 +222,7 @@ class InvoiceServiceTest {
         assertEquals(50.0, invoice.getPaidAmount());
         assertEquals(InvoiceStatusConstants.PENDING, invoice.getStatus());
         verify(invoiceRepository, times(1)).save(invoice);
+        verify(paymentRepository, times(1)).save(any(Payment.class));
     }
 
     @Test
@@ -129,24 +245,49 @@ class InvoiceServiceTest {
         assertNotNull(responseDTO);
         assertEquals(100.0, invoice.getPaidAmount());
         assertEquals(InvoiceStatusConstants.PAID, invoice.getStatus());
+        assertEquals(1.0, meterRegistry.get("invoice.status.transitions").tag("to", InvoiceStatusConstants.PAID).counter().count());
         verify(invoiceRepository, times(1)).save(invoice);
+        verify(invoiceOutbox).paymentMade(invoice, 100.0);
+    }
+
+    @Test
+    void testPaymentsAddingUpToTheAmountPayTheInvoice() {
+        Invoice invoice = new Invoice();
+        invoice.setId(1L);
+        invoice.setAmount(1.0);
+        invoice.setPaidAmount(0.0);
+        invoice.setStatus(InvoiceStatusConstants.PENDING);
+        invoice.setDueDate(LocalDate.now().plusDays(10));
+
+        when(invoiceRepository.findById(1L)).thenReturn(Optional.of(invoice));
+        when(invoiceRepository.save(any(Invoice.class))).thenReturn(invoice);
+
+        for (double amount : new double[] {0.7, 0.1, 0.1, 0.1}) {
+            invoiceService.payInvoice(1L, amount);
+        }
+
+        assertEquals(1.0, invoice.getPaidAmount());
+        assertEquals(InvoiceStatusConstants.PAID, invoice.getStatus());
     }
 
     @Test
-    void testProcessOverdueInvoices() {
-        Invoice overdueInvoice = new Invoice();
-        overdueInvoice.setId(1L);
-        overdueInvoice.setAmount(100.0);
-        overdueInvoice.setPaidAmount(0.0);
-        overdueInvoice.setStatus(InvoiceStatusConstants.PENDING);
-        overdueInvoice.setDueDate(LocalDate.now().minusDays(15));
+    void testPayInvoiceRejectsInvalidAmounts() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> invoiceService.payInvoice(1L, -5.0));
+        assertEquals("Payment amount must be positive", exception.getMessage());
 
-        when(invoiceRepository.findAll()).thenReturn(List.of(overdueInvoice));
-        when(invoiceRepository.save(any(Invoice.class))).thenReturn(overdueInvoice);
+        exception = assertThrows(IllegalArgumentException.class, () -> invoiceService.payInvoice(1L, 0.001));
+        assertEquals("Payment amount must not have more than 2 decimal places", exception.getMessage());
+        verify(paymentRepository, never()).save(any());
+    }
 
-        invoiceService.processOverdueInvoices(10.0, 10);
+    @Test
+    void testProcessOverdueInvoicesDelegatesToProcessor() {
+        OverdueSummaryDTO summary = new OverdueSummaryDTO(1, 0, 1, 1);
+        when(overdueInvoiceProcessor.process(10.0, 10, OverdueRunListener.NONE)).thenReturn(summary);
 
-        verify(invoiceRepository, times(2)).save(any(Invoice.class)); // Once for the original invoice, once for the new invoice
+        assertSame(summary, invoiceService.processOverdueInvoices(10.0, 10));
+        verify(invoiceRepository, never()).findAll();
     }
 
     @Test
@@ -168,4 +309,86 @@ class InvoiceServiceTest {
 
         assertEquals("Invalid or non-pending invoice", exception.getMessage());
     }
+
+    @Test
+    void testPayInvoiceAtomically() {
+        ReflectionTestUtils.setField(invoiceService, "paymentMode", PaymentMode.ATOMIC);
+        Invoice invoice = new Invoice();
+        invoice.setId(1L);
+        invoice.setAmount(100.0);
+        invoice.setPaidAmount(100.0);
+        invoice.setStatus(InvoiceStatusConstants.PAID);
+
+        when(invoiceRepository.applyPayment(1L, 100.0)).thenReturn(1);
+        when(invoiceRepository.findById(1L)).thenReturn(Optional.of(invoice));
+
+        InvoiceResponseDTO responseDTO = invoiceService.payInvoice(1L, 100.0);
+
+        assertEquals(InvoiceStatusConstants.PAID, responseDTO.getStatus());
+        verify(invoiceRepository, never()).save(any(Invoice.class));
+    }
+
+    @Test
+    void testPayInvoiceAtomicallyThrowsExceptionForNonPendingInvoice() {
+        ReflectionTestUtils.setField(invoiceService, "paymentMode", PaymentMode.ATOMIC);
+        Invoice invoice = new Invoice();
+        invoice.setId(1L);
+        invoice.setStatus(InvoiceStatusConstants.VOID);
+
+        when(invoiceRepository.applyPayment(anyLong(), anyDouble())).thenReturn(0);
+        when(invoiceRepository.findById(1L)).thenReturn(Optional.of(invoice));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> invoiceService.payInvoice(1L, 50.0));
+
+        assertEquals("Invalid or non-pending invoice", exception.getMessage());
+    }
+
+    @Test
+    void testPayInvoiceToLedgerDoesNotUpdateInvoice() {
+        ReflectionTestUtils.setField(invoiceService, "paymentMode", PaymentMode.LEDGER);
+        Invoice invoice = new Invoice();
+        invoice.setId(1L);
+        invoice.setAmount(100.0);
+        invoice.setPaidAmount(20.0);
+        invoice.setStatus(InvoiceStatusConstants.PENDING);
+
+        when(invoiceRepository.findById(1L)).thenReturn(Optional.of(invoice));
+        when(paymentRepository.sumUnfolded(1L)).thenReturn(50.0);
+
+        InvoiceResponseDTO responseDTO = invoiceService.payInvoice(1L, 30.0);
+
+        assertEquals(100.0, responseDTO.getPaidAmount());
+        assertEquals(InvoiceStatusConstants.PAID, responseDTO.getStatus());
+        assertEquals(20.0, invoice.getPaidAmount());
+        verify(paymentRepository, times(1)).save(argThat(payment -> !payment.isFolded() && payment.getAmount() == 30.0));
+        verify(invoiceRepository, never()).save(any(Invoice.class));
+        verify(invoiceOutbox).paymentMade(argThat(pending -> pending.getPaidAmount() == 100.0
+                && InvoiceStatusConstants.PENDING.equals(pending.getStatus())), eq(30.0));
+    }
+
+    @Test
+    void testPayInvoiceToLedgerRejectsPaymentOnceUnfoldedPaymentsCoverTheInvoice() {
+        ReflectionTestUtils.setField(invoiceService, "paymentMode", PaymentMode.LEDGER);
+        Invoice invoice = new Invoice();
+        invoice.setId(1L);
+        invoice.setAmount(100.0);
+        invoice.setPaidAmount(20.0);
+        invoice.setStatus(InvoiceStatusConstants.PENDING);
+
+        when(invoiceRepository.findById(1L)).thenReturn(Optional.of(invoice));
+        when(paymentRepository.sumUnfolded(1L)).thenReturn(80.0);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> invoiceService.payInvoice(1L, 10.0));
+        assertEquals(InvoiceRules.NOT_PENDING, exception.getMessage());
+        verify(paymentRepository, never()).save(any(Payment.class));
+        verify(invoiceOutbox, never()).paymentMade(any(Invoice.class), anyDouble());
+    }
+
+    @Test
+    void testGetPaymentsForUnknownInvoice() {
+        when(invoiceRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class, () -> invoiceService.getPayments(1L, null, 10));
+    }
 }
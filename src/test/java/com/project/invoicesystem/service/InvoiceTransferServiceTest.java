@@ -0,0 +1,103 @@
+package com.project.invoicesystem.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.invoicesystem.constants.InvoiceFileFormat;
+import com.project.invoicesystem.dto.ImportErrorDTO;
+import com.project.invoicesystem.dto.ImportResultDTO;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"invoice.import.chunk-size=2", "invoice.import.writers=2", "invoice.import.queue-capacity=1"})
+@ActiveProfiles("test")
+class InvoiceTransferServiceTest {
+
+    @Autowired
+    private InvoiceTransferService invoiceTransferService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void testImportCsvReportsInvalidLinesAndImportsTheRest() throws Exception {
+        String csv = "due_date,amount,note\n"
+                + "2024-01-31,100.00,first\n"
+                + "2024-02-29,-5,negative\n"
+                + "2024-03-31,200.00,third\n"
+                + "\n"
+                + "not-a-date,300.00,bad date\n"
+                + "2024-05-31,400.00\n"
+                + "2024-06-30,500.00,sixth\n"
+                + "2024-07-31,600.00,seventh\n";
+        long before = invoiceRepository.count();
+
+        ImportResultDTO result = invoiceTransferService.importInvoices(InvoiceFileFormat.CSV, stream(csv));
+
+        assertEquals(4, result.getImported());
+        assertEquals(3, result.getFailed());
+        assertEquals(List.of(3L, 6L, 7L), result.getErrors().stream().map(ImportErrorDTO::getLine).toList());
+        assertEquals("Invoice amount must be positive", result.getErrors().get(0).getError());
+        assertEquals(before + 4, invoiceRepository.count());
+    }
+
+    @Test
+    void testImportNdjson() throws Exception {
+        String ndjson = "{\"amount\": 10.0, \"due_date\": \"2024-01-31\"}\n"
+                + "{\"amount\": \n"
+                + "{\"amount\": 20.0}\n"
+                + "{\"amount\": 30.0, \"due_date\": \"2024-03-31\"}";
+
+        ImportResultDTO result = invoiceTransferService.importInvoices(InvoiceFileFormat.NDJSON, stream(ndjson));
+
+        assertEquals(2, result.getImported());
+        assertEquals(List.of(2L, 3L), result.getErrors().stream().map(ImportErrorDTO::getLine).toList());
+        assertEquals("Invoice due date is required", result.getErrors().get(1).getError());
+    }
+
+    @Test
+    void testImportCsvWithoutRequiredColumnIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> invoiceTransferService.importInvoices(InvoiceFileFormat.CSV, stream("id,amount\n1,100.00\n")));
+    }
+
+    @Test
+    void testExportWritesEveryInvoiceInIdOrder() throws Exception {
+        InvoiceResponseDTO last = invoiceService.createInvoice(new InvoiceRequestDTO(12.5, LocalDate.of(2024, 4, 30)));
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        long exported = invoiceTransferService.exportInvoices(InvoiceFileFormat.CSV, csv);
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        invoiceTransferService.exportInvoices(InvoiceFileFormat.NDJSON, ndjson);
+
+        String[] csvLines = csv.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(InvoiceCsv.HEADER, csvLines[0]);
+        assertEquals(exported + 1, csvLines.length);
+        assertEquals(last.getId() + ",12.50,0.00,2024-04-30,pending", csvLines[csvLines.length - 1]);
+        String[] jsonLines = ndjson.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(exported, jsonLines.length);
+        assertEquals(last, objectMapper.readValue(jsonLines[jsonLines.length - 1], InvoiceResponseDTO.class));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
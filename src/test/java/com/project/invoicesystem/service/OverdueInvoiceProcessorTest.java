@@ -0,0 +1,184 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.config.CacheConfig;
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.OverdueSummaryDTO;
+import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.entity.OverduePartition;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OverdueInvoiceProcessorTest {
+
+    @InjectMocks
+    private OverdueInvoiceProcessor overdueInvoiceProcessor;
+
+    @Mock
+    private InvoiceRepository invoiceRepository;
+
+    @Mock
+    private OverduePartitionService partitionService;
+
+    @Mock
+    private PaymentLedgerFolder paymentLedgerFolder;
+
+    @Mock
+    private PaymentBuffer paymentBuffer;
+
+    @Spy
+    private OverdueWorkerPool workerPool = new OverdueWorkerPool(2);
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private Cache cache;
+
+    @Mock
+    private ReceivablesView receivablesView;
+
+    @Mock
+    private InvoiceOutbox invoiceOutbox;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private InvoiceMetrics invoiceMetrics = new InvoiceMetrics(meterRegistry);
+
+    private final OverduePartition partition = new OverduePartition("run", 0, 0L, 10L);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(partitionService.plan(anyString(), isNull(), any(LocalDate.class))).thenReturn(List.of(partition));
+        when(partitionService.claimNext(anyString())).thenReturn(Optional.of(partition)).thenReturn(Optional.empty());
+        when(cacheManager.getCache(CacheConfig.INVOICES)).thenReturn(cache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workerPool.destroy();
+    }
+
+    @Test
+    void testProcessMarksInvoicesAndReissuesInOneBatch() {
+        Invoice unpaid = invoice(1L, 100.0, 0.0);
+        Invoice partiallyPaid = invoice(2L, 100.0, 40.0);
+
+        when(invoiceRepository.findDueBetween(eq(InvoiceStatusConstants.PENDING), isNull(), eq(LocalDate.now().minusDays(10)), eq(0L), eq(10L), any(Limit.class)))
+                .thenReturn(List.of(unpaid, partiallyPaid));
+
+        OverdueSummaryDTO summary = overdueInvoiceProcessor.process(10.0, 10, OverdueRunListener.NONE);
+
+        assertEquals(new OverdueSummaryDTO(2, 1, 1, 2), summary);
+        assertEquals(InvoiceStatusConstants.VOID, unpaid.getStatus());
+        assertEquals(InvoiceStatusConstants.PAID, partiallyPaid.getStatus());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Invoice>> captor = ArgumentCaptor.forClass(List.class);
+        verify(invoiceRepository, times(1)).saveAll(captor.capture());
+        List<Invoice> reissued = captor.getValue();
+        assertEquals(110.0, reissued.get(0).getAmount());
+        assertEquals(70.0, reissued.get(1).getAmount());
+        assertEquals(LocalDate.now().plusDays(30), reissued.get(0).getDueDate());
+        verify(invoiceRepository, never()).findAll();
+        InOrder order = inOrder(paymentBuffer, paymentLedgerFolder, partitionService);
+        order.verify(paymentBuffer).flush();
+        order.verify(paymentLedgerFolder).foldAll();
+        order.verify(partitionService).plan(anyString(), isNull(), any(LocalDate.class));
+        verify(partitionService).checkpoint(eq(partition), eq(2L), eq(new OverdueSummaryDTO(2, 1, 1, 2)));
+        verify(partitionService).complete(partition);
+        verify(invoiceOutbox).reissued(List.of(unpaid, partiallyPaid), reissued);
+        verify(cache).evict(1L);
+        verify(cache).evict(2L);
+        assertEquals(1.0, meterRegistry.get("invoice.status.transitions").tag("to", InvoiceStatusConstants.VOID).counter().count());
+        assertEquals(2.0, meterRegistry.get("invoice.reissued").counter().count());
+    }
+
+    @Test
+    void testProcessResumesFromPartitionCheckpoint() {
+        partition.setCheckpoint(5L);
+        when(invoiceRepository.findDueBetween(anyString(), any(), any(LocalDate.class), anyLong(), anyLong(), any(Limit.class))).thenReturn(List.of());
+
+        OverdueSummaryDTO summary = overdueInvoiceProcessor.process(10.0, 10, OverdueRunListener.NONE);
+
+        assertEquals(0, summary.getScanned());
+        verify(invoiceRepository).findDueBetween(anyString(), any(), any(LocalDate.class), eq(5L), eq(10L), any(Limit.class));
+        verify(invoiceRepository, never()).saveAll(any());
+        verify(partitionService).complete(partition);
+    }
+
+    @Test
+    void testProcessWithNoCandidates() {
+        when(partitionService.plan(anyString(), isNull(), any(LocalDate.class))).thenReturn(List.of());
+
+        OverdueSummaryDTO summary = overdueInvoiceProcessor.process(10.0, 10, OverdueRunListener.NONE);
+
+        assertEquals(0, summary.getScanned());
+        verify(partitionService, never()).claimNext(anyString());
+    }
+
+    @Test
+    void testProcessLeavesFailedPartitionForNextRun() {
+        when(invoiceRepository.findDueBetween(anyString(), any(), any(LocalDate.class), anyLong(), anyLong(), any(Limit.class)))
+                .thenThrow(new IllegalStateException("boom"));
+        OverdueJob job = new OverdueJob(10.0, 10, null);
+
+        OverdueSummaryDTO summary = overdueInvoiceProcessor.process(10.0, 10, job);
+
+        assertEquals(1, summary.getFailed());
+        assertEquals(1, job.toDto().getFailedPartitions());
+        verify(partitionService, never()).complete(partition);
+        verify(partitionService, never()).release(partition);
+    }
+
+    @Test
+    void testCancelledRunReleasesClaimedPartition() {
+        OverdueJob job = new OverdueJob(10.0, 10, null);
+        when(partitionService.claimNext(anyString())).thenAnswer(invocation -> {
+            job.cancel();
+            return Optional.of(partition);
+        });
+
+        OverdueSummaryDTO summary = overdueInvoiceProcessor.process(10.0, 10, job);
+
+        assertEquals(0, summary.getScanned());
+        verify(partitionService, atLeastOnce()).release(partition);
+        verify(partitionService, never()).complete(partition);
+        verify(invoiceRepository, never()).findDueBetween(anyString(), any(), any(LocalDate.class), anyLong(), anyLong(), any(Limit.class));
+    }
+
+    private Invoice invoice(Long id, double amount, double paidAmount) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setAmount(amount);
+        invoice.setPaidAmount(paidAmount);
+        invoice.setStatus(InvoiceStatusConstants.PENDING);
+        invoice.setDueDate(LocalDate.now().minusDays(15));
+        return invoice;
+    }
+}
@@ -0,0 +1,137 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.dto.OverdueSummaryDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class OverdueJobServiceTest {
+
+    @InjectMocks
+    private OverdueJobService overdueJobService;
+
+    @Mock
+    private OverdueInvoiceProcessor overdueInvoiceProcessor;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @AfterEach
+    void tearDown() {
+        overdueJobService.destroy();
+    }
+
+    @Test
+    void testOverlappingSubmissionsShareOneJob() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(overdueInvoiceProcessor.process(anyDouble(), anyInt(), any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new OverdueSummaryDTO();
+        });
+
+        OverdueJob first = overdueJobService.submit(10.0, 10);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        OverdueJob second = overdueJobService.submit(10.0, 10);
+
+        assertSame(first, second);
+        assertEquals(OverdueJob.Status.RUNNING, first.getStatus());
+        release.countDown();
+        awaitFinished(first);
+        assertEquals(OverdueJob.Status.COMPLETED, first.getStatus());
+        assertNotSame(first, overdueJobService.submit(10.0, 10));
+        verify(overdueInvoiceProcessor, atLeast(1)).process(10.0, 10, null, first);
+    }
+
+    @Test
+    void testCancelStopsJob() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        when(overdueInvoiceProcessor.process(anyDouble(), anyInt(), any(), any())).thenAnswer(invocation -> {
+            OverdueRunListener listener = invocation.getArgument(3);
+            started.countDown();
+            while (!listener.isCancelled()) {
+                Thread.sleep(5);
+            }
+            return new OverdueSummaryDTO();
+        });
+
+        OverdueJob job = overdueJobService.submit(10.0, 10);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        overdueJobService.cancel(job.getId());
+        awaitFinished(job);
+
+        assertEquals(OverdueJob.Status.CANCELLED, job.getStatus());
+        assertNotNull(job.toDto().getFinishedAt());
+    }
+
+    @Test
+    void testTrySubmitReportsFinishedJobAndSkipsWhileActive() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(overdueInvoiceProcessor.process(anyDouble(), anyInt(), any(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new OverdueSummaryDTO();
+        });
+        LocalDate dueFrom = LocalDate.now().minusDays(31);
+        CountDownLatch finished = new CountDownLatch(1);
+
+        OverdueJob job = overdueJobService.trySubmit(10.0, 30, dueFrom, () -> true, done -> finished.countDown()).orElseThrow();
+
+        assertTrue(overdueJobService.trySubmit(10.0, 30, dueFrom, () -> true, done -> { }).isEmpty());
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(OverdueJob.Status.COMPLETED, job.getStatus());
+        assertEquals(dueFrom, job.toDto().getDueFrom());
+        verify(overdueInvoiceProcessor).process(10.0, 30, dueFrom, job);
+    }
+
+    @Test
+    void testLostLeaseStopsJob() throws Exception {
+        AtomicBoolean held = new AtomicBoolean(true);
+        CountDownLatch started = new CountDownLatch(1);
+        when(overdueInvoiceProcessor.process(anyDouble(), anyInt(), any(), any())).thenAnswer(invocation -> {
+            OverdueRunListener listener = invocation.getArgument(3);
+            started.countDown();
+            while (!listener.isCancelled()) {
+                Thread.sleep(5);
+            }
+            return new OverdueSummaryDTO();
+        });
+        CountDownLatch finished = new CountDownLatch(1);
+
+        OverdueJob job = overdueJobService.trySubmit(10.0, 30, null, held::get, done -> finished.countDown()).orElseThrow();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        held.set(false);
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(OverdueJob.Status.CANCELLED, job.getStatus());
+    }
+
+    @Test
+    void testGetUnknownJob() {
+        assertThrows(IllegalArgumentException.class, () -> overdueJobService.getJob("missing"));
+    }
+
+    private void awaitFinished(OverdueJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (job.getStatus().isActive() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.entity.OverduePartition;
+import com.project.invoicesystem.repository.OverduePartitionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OverduePartitionServiceTest {
+
+    @Autowired
+    private OverduePartitionService partitionService;
+
+    @Autowired
+    private OverduePartitionRepository partitionRepository;
+
+    @Test
+    void testWorkersOfOneInstanceClaimDifferentPartitions() {
+        String runKey = "claim-test";
+        partitionRepository.saveAll(List.of(new OverduePartition(runKey, 0, 0L, 10L), new OverduePartition(runKey, 1, 10L, 20L)));
+
+        Optional<OverduePartition> first = partitionService.claimNext(runKey);
+        Optional<OverduePartition> second = partitionService.claimNext(runKey);
+
+        assertTrue(first.isPresent());
+        assertTrue(second.isPresent());
+        assertNotEquals(first.get().getId(), second.get().getId(), "a held partition was claimed again");
+        assertTrue(partitionService.claimNext(runKey).isEmpty());
+
+        partitionService.complete(first.get());
+        partitionService.complete(second.get());
+    }
+
+    @Test
+    void testAbandonedRunsOfEarlierDaysAreDeleted() {
+        LocalDate today = LocalDate.now();
+        String abandoned = OverduePartitionService.runKey(today.minusDays(1), 10.0, 30, null);
+        String finished = OverduePartitionService.runKey(today.minusDays(1), 20.0, 30, null);
+        OverduePartition done = new OverduePartition(finished, 0, 0L, 10L);
+        done.setDone(true);
+        String running = OverduePartitionService.runKey(today.minusDays(1), 5.0, 30, null);
+        OverduePartition held = new OverduePartition(running, 1, 10L, 20L);
+        held.setOwner("another-instance");
+        held.setLeaseExpiresAt(Instant.now().plus(Duration.ofMinutes(5)));
+        partitionRepository.saveAll(List.of(new OverduePartition(abandoned, 0, 0L, 10L), new OverduePartition(abandoned, 1, 10L, 20L),
+                new OverduePartition(running, 0, 0L, 10L), held, done));
+
+        String runKey = OverduePartitionService.runKey(today, 10.0, 30, null);
+        partitionService.plan(runKey, null, today.minusDays(30));
+        partitionRepository.deleteByRunKey(runKey);
+
+        assertTrue(partitionRepository.findByRunKeyOrderByPartitionIndex(abandoned).isEmpty());
+        assertTrue(partitionRepository.findByRunKeyOrderByPartitionIndex(finished).isEmpty());
+        assertEquals(2, partitionRepository.findByRunKeyOrderByPartitionIndex(running).size(), "a run with a live lease is kept");
+        partitionRepository.deleteByRunKey(running);
+    }
+
+    @Test
+    void testPlanningKeepsTheProgressOfOtherRunsOfTheDay() {
+        LocalDate today = LocalDate.now();
+        // Parameters no sweep in the other tests runs with, whose partitions share the database.
+        String other = OverduePartitionService.runKey(today, 7.5, 45, null);
+        OverduePartition done = new OverduePartition(other, 0, 0L, 10L);
+        done.setDone(true);
+        partitionRepository.saveAll(List.of(done, new OverduePartition(other, 1, 10L, 20L)));
+
+        String runKey = OverduePartitionService.runKey(today, 10.0, 30, null);
+        partitionService.plan(runKey, null, today.minusDays(30));
+        partitionRepository.deleteByRunKey(runKey);
+
+        assertEquals(2, partitionRepository.findByRunKeyOrderByPartitionIndex(other).size(), "another run's progress was deleted");
+        partitionRepository.deleteByRunKey(other);
+    }
+}
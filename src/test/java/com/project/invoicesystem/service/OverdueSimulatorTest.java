@@ -0,0 +1,98 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.dto.OverdueSimulationDTO;
+import com.project.invoicesystem.dto.OverdueSummaryDTO;
+import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.entity.Payment;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import com.project.invoicesystem.repository.PaymentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OverdueSimulatorTest {
+
+    @Autowired
+    private OverdueSimulator overdueSimulator;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Test
+    void testSimulationProjectsTheSweepWithoutChangingInvoices() {
+        long overdueAfterFiveDays = overdueSimulator.simulate(10.0, 5, true).getOverdue();
+        OverdueSimulationDTO before = overdueSimulator.simulate(10.0, 30, true);
+        LocalDate longAgo = LocalDate.now().minusDays(60);
+        InvoiceResponseDTO partlyPaid = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, longAgo));
+        invoiceService.payInvoice(partlyPaid.getId(), 40.0);
+        invoiceService.createInvoice(new InvoiceRequestDTO(50.0, longAgo));
+        invoiceService.createInvoice(new InvoiceRequestDTO(70.0, LocalDate.now().minusDays(10)));
+
+        assertEquals(before, overdueSimulator.simulate(10.0, 30, false), "a recent snapshot is reused");
+        OverdueSimulationDTO simulated = overdueSimulator.simulate(10.0, 30, true);
+
+        assertEquals(before.getOverdue() + 2, simulated.getOverdue());
+        assertEquals(before.getPaid() + 1, simulated.getPaid());
+        assertEquals(before.getVoided() + 1, simulated.getVoided());
+        assertEquals(before.getOutstandingAmount() + 110.0, simulated.getOutstandingAmount(), 1e-6);
+        assertEquals(before.getReissuedAmount() + 130.0, simulated.getReissuedAmount(), 1e-6);
+        assertEquals(simulated.getOverdue() * 10.0, simulated.getLateFeeAmount(), 1e-6);
+        assertEquals(overdueAfterFiveDays + 3, overdueSimulator.simulate(10.0, 5, false).getOverdue());
+        assertEquals(simulated.getOverdue(), overdueSimulator.simulate(10.0, 30, true).getOverdue(), "simulating changes nothing");
+
+        OverdueSummaryDTO processed = invoiceService.processOverdueInvoices(10.0, 30);
+
+        assertEquals(simulated.getOverdue(), processed.getScanned());
+        assertEquals(simulated.getPaid(), processed.getPaid());
+        assertEquals(simulated.getVoided(), processed.getVoided());
+        assertEquals(0, overdueSimulator.simulate(10.0, 30, true).getOverdue());
+    }
+
+    @Test
+    void testUnfoldedLedgerPaymentsAreIncluded() {
+        OverdueSimulationDTO before = overdueSimulator.simulate(10.0, 30, true);
+        LocalDate longAgo = LocalDate.now().minusDays(60);
+        InvoiceResponseDTO partlyPaid = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, longAgo));
+        InvoiceResponseDTO settled = invoiceService.createInvoice(new InvoiceRequestDTO(50.0, longAgo));
+        paymentRepository.save(new Payment(partlyPaid.getId(), 40.0, false));
+        paymentRepository.save(new Payment(settled.getId(), 50.0, false));
+
+        OverdueSimulationDTO simulated = overdueSimulator.simulate(10.0, 30, true);
+
+        assertEquals(before.getOverdue() + 1, simulated.getOverdue(), "the fold settles the second invoice first");
+        assertEquals(before.getPaid() + 1, simulated.getPaid());
+        assertEquals(before.getOutstandingAmount() + 60.0, simulated.getOutstandingAmount(), 1e-6);
+        assertEquals(before.getReissuedAmount() + 70.0, simulated.getReissuedAmount(), 1e-6);
+
+        OverdueSummaryDTO processed = invoiceService.processOverdueInvoices(10.0, 30);
+
+        assertEquals(simulated.getOverdue(), processed.getScanned());
+        assertEquals(simulated.getPaid(), processed.getPaid());
+    }
+
+    @Test
+    void testInvoicesWithoutADueDateAreNeverOverdue() {
+        OverdueSimulationDTO before = overdueSimulator.simulate(10.0, 0, true);
+        Invoice undated = invoiceRepository.save(new Invoice(25.0, null));
+        try {
+            assertEquals(before.getOverdue(), overdueSimulator.simulate(10.0, 0, true).getOverdue());
+        } finally {
+            invoiceRepository.delete(undated);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.entity.OverdueSchedule;
+import com.project.invoicesystem.repository.OverdueScheduleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"invoice.overdue.schedule.overdue-days=30", "invoice.overdue.schedule.late-fee=10.0"})
+@ActiveProfiles("test")
+class OverdueSweepSchedulerTest {
+
+    @Autowired
+    private OverdueSweepScheduler overdueSweepScheduler;
+
+    @Autowired
+    private OverdueScheduleRepository overdueScheduleRepository;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        OverdueSchedule schedule = overdueScheduleRepository.findById(OverdueSweepScheduler.SCHEDULE_ID).orElseThrow();
+        schedule.setWatermark(null);
+        schedule.setOwner(null);
+        schedule.setLockExpiresAt(null);
+        overdueScheduleRepository.save(schedule);
+    }
+
+    @Test
+    void testSweepOnlyConsidersInvoicesPastTheWatermark() throws Exception {
+        // A complete sweep leaves no pending invoice due before its cutoff.
+        overdueSweepScheduler.runOnce().orElseThrow();
+        awaitUnlocked();
+        setWatermark(today.minusDays(35));
+        InvoiceResponseDTO newlyOverdue = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, today.minusDays(32)));
+
+        OverdueJob job = overdueSweepScheduler.runOnce().orElseThrow();
+        awaitUnlocked();
+
+        assertEquals(OverdueJob.Status.COMPLETED, job.getStatus());
+        assertEquals(today.minusDays(35), job.getDueFrom());
+        assertEquals(InvoiceStatusConstants.VOID, invoiceService.getInvoice(newlyOverdue.getId()).getStatus());
+        assertEquals(today.minusDays(30), watermark());
+    }
+
+    @Test
+    void testSweepsInvoicesCreatedWithADueDateBeforeTheWatermark() throws Exception {
+        overdueSweepScheduler.runOnce().orElseThrow();
+        awaitUnlocked();
+        assertEquals(today.minusDays(30), watermark());
+        InvoiceResponseDTO backdated = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, today.minusDays(40)));
+
+        OverdueJob job = overdueSweepScheduler.runOnce().orElseThrow();
+        awaitUnlocked();
+
+        assertEquals(OverdueJob.Status.COMPLETED, job.getStatus());
+        assertEquals(today.minusDays(40), job.getDueFrom());
+        assertEquals(InvoiceStatusConstants.VOID, invoiceService.getInvoice(backdated.getId()).getStatus());
+        assertEquals(today.minusDays(30), watermark());
+    }
+
+    @Test
+    void testNothingToDoOnceWatermarkReachesCutoff() throws Exception {
+        overdueSweepScheduler.runOnce().orElseThrow();
+        awaitUnlocked();
+        assertEquals(today.minusDays(30), watermark());
+
+        assertEquals(Optional.empty(), overdueSweepScheduler.runOnce());
+        assertNull(overdueScheduleRepository.findById(OverdueSweepScheduler.SCHEDULE_ID).orElseThrow().getOwner());
+    }
+
+    @Test
+    void testSkipsWhileAnotherInstanceHoldsTheLock() {
+        Instant now = Instant.now();
+        assertEquals(1, overdueScheduleRepository.lock(OverdueSweepScheduler.SCHEDULE_ID, "other", now.plusSeconds(60), now));
+
+        assertEquals(Optional.empty(), overdueSweepScheduler.runOnce());
+        assertEquals("other", overdueScheduleRepository.findById(OverdueSweepScheduler.SCHEDULE_ID).orElseThrow().getOwner());
+        assertNull(watermark());
+    }
+
+    private void setWatermark(LocalDate watermark) {
+        OverdueSchedule schedule = overdueScheduleRepository.findById(OverdueSweepScheduler.SCHEDULE_ID).orElseThrow();
+        schedule.setWatermark(watermark);
+        overdueScheduleRepository.save(schedule);
+    }
+
+    private LocalDate watermark() {
+        return overdueScheduleRepository.findById(OverdueSweepScheduler.SCHEDULE_ID).orElseThrow().getWatermark();
+    }
+
+    private void awaitUnlocked() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (overdueScheduleRepository.findById(OverdueSweepScheduler.SCHEDULE_ID).orElseThrow().getOwner() != null
+                && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.dto.PaymentResponseDTO;
+import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.entity.PaymentBufferSegment;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import com.project.invoicesystem.repository.PaymentBufferSegmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"invoice.payment.mode=buffered", "invoice.payment.buffer.window=1h"})
+@ActiveProfiles("test")
+class PaymentBufferTest {
+
+    @Autowired
+    private PaymentBuffer paymentBuffer;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PaymentBufferSegmentRepository segmentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() {
+        directory = Path.of((String) ReflectionTestUtils.getField(paymentBuffer, "directory"));
+    }
+
+    @Test
+    void testPaymentsAreCoalescedUntilTheFlush() throws Exception {
+        InvoiceResponseDTO created = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, LocalDate.now().plusDays(10)));
+
+        assertEquals(InvoiceStatusConstants.PENDING, invoiceService.payInvoice(created.getId(), 30.0).getStatus());
+        assertEquals(60.0, invoiceService.payInvoice(created.getId(), 30.0).getPaidAmount());
+        assertEquals(InvoiceStatusConstants.PAID, invoiceService.payInvoice(created.getId(), 40.0).getStatus());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> invoiceService.payInvoice(created.getId(), 1.0));
+        assertEquals(InvoiceRules.NOT_PENDING, e.getMessage());
+        assertEquals(0.0, invoiceRepository.findById(created.getId()).orElseThrow().getPaidAmount());
+
+        paymentBuffer.flush();
+
+        Invoice invoice = invoiceRepository.findById(created.getId()).orElseThrow();
+        assertEquals(100.0, invoice.getPaidAmount());
+        assertEquals(InvoiceStatusConstants.PAID, invoice.getStatus());
+        assertEquals(3, invoiceService.getPayments(created.getId(), null, 10).size());
+        assertEquals(List.of(), segmentFiles());
+    }
+
+    @Test
+    void testPaymentOfARolledBackRequestIsNotLogged() throws Exception {
+        InvoiceResponseDTO created = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, LocalDate.now().plusDays(10)));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertEquals(30.0, invoiceService.payInvoice(created.getId(), 30.0).getPaidAmount());
+            status.setRollbackOnly();
+        });
+
+        assertTrue(!Files.isDirectory(directory) || segmentFiles().isEmpty());
+        assertEquals(InvoiceStatusConstants.PENDING, invoiceService.payInvoice(created.getId(), 70.0).getStatus());
+        paymentBuffer.flush();
+        assertEquals(70.0, invoiceRepository.findById(created.getId()).orElseThrow().getPaidAmount());
+    }
+
+    @Test
+    void testPaymentsForAnInvoiceClosedElsewhereAreRecordedAsRejected() {
+        InvoiceResponseDTO created = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, LocalDate.now().plusDays(10)));
+        invoiceService.payInvoice(created.getId(), 30.0);
+        Invoice invoice = invoiceRepository.findById(created.getId()).orElseThrow();
+        invoice.setStatus(InvoiceStatusConstants.VOID);
+        invoiceRepository.save(invoice);
+
+        paymentBuffer.flush();
+
+        assertEquals(0.0, invoiceRepository.findById(created.getId()).orElseThrow().getPaidAmount());
+        List<PaymentResponseDTO> payments = invoiceService.getPayments(created.getId(), null, 10);
+        assertEquals(1, payments.size());
+        assertEquals(30.0, payments.get(0).getAmount());
+        assertTrue(payments.get(0).isRejected());
+    }
+
+    @Test
+    void testOverdueSweepAppliesBufferedPaymentsFirst() {
+        InvoiceResponseDTO created = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, LocalDate.now().minusDays(40)));
+        invoiceService.payInvoice(created.getId(), 100.0);
+
+        invoiceService.processOverdueInvoices(5.0, 30);
+
+        Invoice invoice = invoiceRepository.findById(created.getId()).orElseThrow();
+        assertEquals(InvoiceStatusConstants.PAID, invoice.getStatus());
+        assertEquals(100.0, invoice.getPaidAmount());
+    }
+
+    @Test
+    void testConcurrentPaymentsShareTheLog() throws Exception {
+        InvoiceResponseDTO created = invoiceService.createInvoice(new InvoiceRequestDTO(1000.0, LocalDate.now().plusDays(10)));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> IntStream.range(0, 50).forEach(n -> invoiceService.payInvoice(created.getId(), 1.0))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        paymentBuffer.flush();
+
+        assertEquals(400.0, invoiceRepository.findById(created.getId()).orElseThrow().getPaidAmount());
+        assertEquals(List.of(), segmentFiles());
+    }
+
+    @Test
+    void testSegmentsLeftByACrashAreReplayedOnce() throws Exception {
+        InvoiceResponseDTO created = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, LocalDate.now().plusDays(10)));
+        invoiceService.payInvoice(created.getId(), 25.0);
+        byte[] segment = Files.readAllBytes(segmentFiles().get(0));
+        paymentBuffer.flush();
+
+        Files.write(directory.resolve("1-unapplied.log"), segment);
+        Files.write(directory.resolve("2-applied.log"), segment);
+        segmentRepository.save(new PaymentBufferSegment("2-applied", Instant.now()));
+        Files.write(directory.resolve("3-torn.log"), Arrays.copyOf(segment, segment.length - 1));
+        paymentBuffer.afterPropertiesSet();
+
+        assertEquals(50.5, invoiceService.payInvoice(created.getId(), 0.5).getPaidAmount());
+        paymentBuffer.flush();
+
+        assertEquals(50.5, invoiceRepository.findById(created.getId()).orElseThrow().getPaidAmount());
+        assertEquals(3, invoiceService.getPayments(created.getId(), null, 10).size());
+        assertEquals(List.of(), segmentFiles());
+        assertFalse(segmentRepository.existsById("2-applied"));
+    }
+
+    @Test
+    void testSegmentWithACheckpointIsNotAppliedAgain() throws Exception {
+        InvoiceResponseDTO created = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, LocalDate.now().plusDays(10)));
+        invoiceService.payInvoice(created.getId(), 25.0);
+        String name = segmentFiles().get(0).getFileName().toString();
+        String id = name.substring(0, name.length() - ".log".length());
+        // The commit of an earlier flush went through although it reported a failure.
+        segmentRepository.save(new PaymentBufferSegment(id, Instant.now()));
+
+        paymentBuffer.flush();
+
+        assertEquals(0.0, invoiceRepository.findById(created.getId()).orElseThrow().getPaidAmount());
+        assertEquals(List.of(), segmentFiles());
+        assertFalse(segmentRepository.existsById(id));
+        assertEquals(5.0, invoiceService.payInvoice(created.getId(), 5.0).getPaidAmount());
+        paymentBuffer.flush();
+        assertEquals(5.0, invoiceRepository.findById(created.getId()).orElseThrow().getPaidAmount());
+    }
+
+    @Test
+    void testPaymentThatCannotBeForcedIsNotApplied() throws Exception {
+        InvoiceResponseDTO created = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, LocalDate.now().plusDays(10)));
+        invoiceService.payInvoice(created.getId(), 10.0);
+        Object segment = ReflectionTestUtils.getField(paymentBuffer, "open");
+        FileChannel channel = (FileChannel) ReflectionTestUtils.getField(segment, "channel");
+        ReflectionTestUtils.setField(segment, "channel", new FailingForceChannel(channel));
+
+        assertThrows(UncheckedIOException.class, () -> invoiceService.payInvoice(created.getId(), 20.0));
+
+        assertEquals(15.0, invoiceService.payInvoice(created.getId(), 5.0).getPaidAmount());
+        paymentBuffer.flush();
+        assertEquals(15.0, invoiceRepository.findById(created.getId()).orElseThrow().getPaidAmount());
+        assertEquals(List.of(10.0, 5.0), invoiceService.getPayments(created.getId(), null, 10).stream()
+                .map(PaymentResponseDTO::getAmount).sorted(Comparator.reverseOrder()).toList());
+    }
+
+    @Test
+    void testPaymentIsNotAppliedWhenClosingItsSegmentCannotForceIt() throws Exception {
+        InvoiceResponseDTO created = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, LocalDate.now().plusDays(10)));
+        invoiceService.payInvoice(created.getId(), 10.0);
+        Object segment = ReflectionTestUtils.getField(paymentBuffer, "open");
+        FileChannel channel = (FileChannel) ReflectionTestUtils.getField(segment, "channel");
+        ReflectionTestUtils.setField(segment, "channel", new FailingForceChannel(channel));
+        long written = (long) ReflectionTestUtils.getField(segment, "written");
+
+        CompletableFuture<InvoiceResponseDTO> payment;
+        synchronized (segment) {
+            // Holding the segment keeps the writer from forcing its record, so the flush closes the segment first.
+            payment = CompletableFuture.supplyAsync(() -> invoiceService.payInvoice(created.getId(), 20.0));
+            while ((long) ReflectionTestUtils.getField(segment, "written") == written) {
+                Thread.sleep(5);
+            }
+            paymentBuffer.flush();
+        }
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> payment.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(UncheckedIOException.class, failure.getCause());
+        assertEquals(10.0, invoiceRepository.findById(created.getId()).orElseThrow().getPaidAmount());
+        assertEquals(15.0, invoiceService.payInvoice(created.getId(), 5.0).getPaidAmount());
+        paymentBuffer.flush();
+        assertEquals(15.0, invoiceRepository.findById(created.getId()).orElseThrow().getPaidAmount());
+    }
+
+    private List<Path> segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+
+    /**
+     * A file channel whose first force fails, as a disk reporting a write error would.
+     */
+    private static final class FailingForceChannel extends FileChannel {
+
+        private final FileChannel delegate;
+        private boolean failed;
+
+        FailingForceChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (!failed) {
+                failed = true;
+                throw new IOException("Input/output error");
+            }
+            delegate.force(metaData);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
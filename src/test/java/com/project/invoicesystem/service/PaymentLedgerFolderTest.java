@@ -0,0 +1,59 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.constants.PaymentMode;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.dto.PaymentResponseDTO;
+import com.project.invoicesystem.entity.Invoice;
+import com.project.invoicesystem.repository.InvoiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PaymentLedgerFolderTest {
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PaymentLedgerFolder paymentLedgerFolder;
+
+    @Test
+    void testPaymentsOfInvoicesVoidedBeforeTheFoldAreRejected() {
+        InvoiceService target = AopTestUtils.getTargetObject(invoiceService);
+        InvoiceResponseDTO created = invoiceService.createInvoice(new InvoiceRequestDTO(100.0, LocalDate.now().plusDays(10)));
+        ReflectionTestUtils.setField(target, "paymentMode", PaymentMode.LEDGER);
+        try {
+            invoiceService.payInvoice(created.getId(), 40.0);
+        } finally {
+            ReflectionTestUtils.setField(target, "paymentMode", PaymentMode.OPTIMISTIC);
+        }
+        // As an overdue sweep running between the payment and the fold would.
+        Invoice invoice = invoiceRepository.findById(created.getId()).orElseThrow();
+        invoice.setStatus(InvoiceStatusConstants.VOID);
+        invoiceRepository.save(invoice);
+
+        paymentLedgerFolder.foldAll();
+
+        Invoice voided = invoiceRepository.findById(created.getId()).orElseThrow();
+        assertEquals(InvoiceStatusConstants.VOID, voided.getStatus());
+        assertEquals(0.0, voided.getPaidAmount());
+        List<PaymentResponseDTO> payments = invoiceService.getPayments(created.getId(), null, 10);
+        assertEquals(1, payments.size());
+        assertTrue(payments.get(0).isRejected());
+    }
+}
@@ -0,0 +1,80 @@
+package com.project.invoicesystem.service;
+
+import com.project.invoicesystem.constants.AgingBucket;
+import com.project.invoicesystem.constants.InvoiceStatusConstants;
+import com.project.invoicesystem.dto.InvoiceRequestDTO;
+import com.project.invoicesystem.dto.InvoiceResponseDTO;
+import com.project.invoicesystem.dto.ReceivablesSummaryDTO;
+import com.project.invoicesystem.dto.ReceivablesTotalsDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReceivablesServiceTest {
+
+    @Autowired
+    private ReceivablesService receivablesService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @ParameterizedTest(name = "exact = {0}")
+    @ValueSource(booleans = {false, true})
+    void testSummaryGroupsByStatusAndAgingBucket(boolean exact) {
+        LocalDate today = LocalDate.now();
+        ReceivablesSummaryDTO before = receivablesService.getSummary(exact);
+
+        invoiceService.createInvoice(new InvoiceRequestDTO(100.0, today));
+        invoiceService.createInvoice(new InvoiceRequestDTO(200.0, today.minusDays(30)));
+        invoiceService.createInvoice(new InvoiceRequestDTO(300.0, today.minusDays(91)));
+        InvoiceResponseDTO partiallyPaid = invoiceService.createInvoice(new InvoiceRequestDTO(400.0, today.minusDays(45)));
+        invoiceService.payInvoice(partiallyPaid.getId(), 150.0);
+        InvoiceResponseDTO paid = invoiceService.createInvoice(new InvoiceRequestDTO(50.0, today.minusDays(5)));
+        invoiceService.payInvoice(paid.getId(), 50.0);
+
+        ReceivablesSummaryDTO after = receivablesService.getSummary(exact);
+
+        assertDelta(before.getTotal(), after.getTotal(), 5, 1050.0, 200.0);
+        assertDelta(before.getByStatus().get(InvoiceStatusConstants.PENDING), after.getByStatus().get(InvoiceStatusConstants.PENDING), 4, 1000.0, 150.0);
+        assertDelta(before.getByStatus().get(InvoiceStatusConstants.PAID), after.getByStatus().get(InvoiceStatusConstants.PAID), 1, 50.0, 50.0);
+        assertDelta(aging(before, AgingBucket.CURRENT), aging(after, AgingBucket.CURRENT), 1, 100.0, 0.0);
+        assertDelta(aging(before, AgingBucket.DAYS_1_30), aging(after, AgingBucket.DAYS_1_30), 1, 200.0, 0.0);
+        assertDelta(aging(before, AgingBucket.DAYS_31_60), aging(after, AgingBucket.DAYS_31_60), 1, 400.0, 150.0);
+        assertDelta(aging(before, AgingBucket.DAYS_61_90), aging(after, AgingBucket.DAYS_61_90), 0, 0.0, 0.0);
+        assertDelta(aging(before, AgingBucket.DAYS_OVER_90), aging(after, AgingBucket.DAYS_OVER_90), 1, 300.0, 0.0);
+    }
+
+    @Test
+    void testViewMatchesDatabaseAfterOverdueRun() {
+        invoiceService.createInvoice(new InvoiceRequestDTO(120.0, LocalDate.now().minusDays(40)));
+        InvoiceResponseDTO partiallyPaid = invoiceService.createInvoice(new InvoiceRequestDTO(80.0, LocalDate.now().minusDays(40)));
+        invoiceService.payInvoice(partiallyPaid.getId(), 30.0);
+
+        invoiceService.processOverdueInvoices(5.0, 30);
+
+        ReceivablesSummaryDTO database = receivablesService.getSummary(true);
+        ReceivablesSummaryDTO view = receivablesService.getSummary(false);
+        database.getByStatus().forEach((status, totals) -> assertDelta(totals, view.getByStatus().get(status), 0, 0.0, 0.0));
+        database.getByAging().forEach((bucket, totals) -> assertDelta(totals, view.getByAging().get(bucket), 0, 0.0, 0.0));
+    }
+
+    private ReceivablesTotalsDTO aging(ReceivablesSummaryDTO summary, AgingBucket bucket) {
+        return summary.getByAging().get(bucket.getLabel());
+    }
+
+    private void assertDelta(ReceivablesTotalsDTO before, ReceivablesTotalsDTO after, long count, double amount, double paidAmount) {
+        assertEquals(count, after.getCount() - before.getCount());
+        assertEquals(amount, after.getAmount() - before.getAmount(), 0.001);
+        assertEquals(paidAmount, after.getPaidAmount() - before.getPaidAmount(), 0.001);
+        assertEquals(amount - paidAmount, after.getOutstanding() - before.getOutstanding(), 0.001);
+    }
+}